@@ -0,0 +1,154 @@
+package benchmark;
+
+import model.CommentEntity;
+import model.PostEntity;
+import model.StudentEntity;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import orm.DriverManagerDataSource;
+import orm.ORM;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>Benchmarks of the ORM against a database: persisting, loading (hydration of rows into entities) and updating. The
+ * benchmarks share one ORM per trial and clear its session before each operation, so that loads read the rows from the
+ * database instead of the persistence context.</p>
+ * <p>StudentEntity isn't cached by the second-level cache, so its loads always hydrate rows. By default the tables are
+ * created in an in-memory H2 database of the fork, another database can be passed with <b>-Dorm.url</b> (with
+ * <b>-Dorm.user</b> and <b>-Dorm.password</b>).</p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class DatabaseBenchmarks {
+
+    private static final String DEFAULT_URL = "jdbc:h2:mem:benchmarks;DB_CLOSE_DELAY=-1";
+
+    private static final String[] SCHEMA = {
+            "CREATE TABLE IF NOT EXISTS PostEntity (ID INT AUTO_INCREMENT PRIMARY KEY, title VARCHAR(255))",
+            "CREATE TABLE IF NOT EXISTS CommentEntity (ID INT AUTO_INCREMENT PRIMARY KEY, content VARCHAR(255), FK_POST_ID INT REFERENCES PostEntity(ID))",
+            "CREATE TABLE IF NOT EXISTS StudentEntity (ID INT AUTO_INCREMENT PRIMARY KEY, FIRST_NAME VARCHAR(255), LAST_NAME VARCHAR(255), PASSED_EXAMS INT)"
+    };
+
+    private static final String FIND_LAST_NAME = "benchmark-find";
+    private static final int FIND_ROWS = 100;
+    private static final int CHILDREN = 5;
+
+    private ORM orm;
+    private int loadedId;
+    private Map<String, Object> findConditions;
+    private StudentEntity updated;
+    private int passedExams;
+
+    @Setup
+    public void setUp() throws SQLException {
+        DataSource dataSource = new DriverManagerDataSource(System.getProperty("orm.url", DEFAULT_URL),
+                System.getProperty("orm.user", "sa"), System.getProperty("orm.password", ""));
+
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            for (String sql : SCHEMA) {
+                statement.execute(sql);
+            }
+        }
+
+        orm = new ORM(dataSource);
+
+        StudentEntity loaded = newStudent("Loaded");
+        orm.persist(loaded);
+        loadedId = loaded.getId();
+
+        findConditions = Collections.singletonMap("LAST_NAME", FIND_LAST_NAME);
+
+        // rows of the previous trials are reused
+        if (orm.find(StudentEntity.class, findConditions).size() < FIND_ROWS) {
+            List<StudentEntity> students = new ArrayList<>();
+
+            for (int i = 0; i < FIND_ROWS; i++) {
+                StudentEntity student = newStudent("Found");
+                student.setLastName(FIND_LAST_NAME);
+                students.add(student);
+            }
+
+            orm.persistAll(students);
+        }
+
+        updated = newStudent("Updated");
+        orm.persist(updated);
+    }
+
+    @TearDown
+    public void tearDown() {
+        orm.close();
+    }
+
+    @Benchmark
+    public boolean persist() {
+        orm.clear();
+        return orm.persist(newStudent("Persisted"));
+    }
+
+    @Benchmark
+    public boolean persistWithChildren() {
+        PostEntity post = new PostEntity();
+        post.setTitle("Post");
+
+        for (int i = 0; i < CHILDREN; i++) {
+            CommentEntity comment = new CommentEntity();
+            comment.setContent("Comment " + i);
+            post.getComments().add(comment);
+        }
+
+        orm.clear();
+        return orm.persist(post);
+    }
+
+    @Benchmark
+    public Object load() {
+        orm.clear();
+        return orm.load(StudentEntity.class, loadedId);
+    }
+
+    @Benchmark
+    public List<Object> find100Rows() {
+        orm.clear();
+        return orm.find(StudentEntity.class, findConditions);
+    }
+
+    @Benchmark
+    public StudentEntity update() {
+        // a changed column, otherwise dirty checking wouldn't update anything
+        updated.setNoOfPassedExams(++passedExams);
+        orm.update(updated);
+        return updated;
+    }
+
+    private static StudentEntity newStudent(String firstName) {
+        StudentEntity student = new StudentEntity();
+        student.setFirstName(firstName);
+        student.setLastName("Benchmark");
+        student.setNoOfPassedExams(10);
+
+        return student;
+    }
+}
@@ -0,0 +1,74 @@
+package benchmark;
+
+import model.CommentEntity;
+import model.PostEntity;
+import model.StudentEntity;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import orm.EntityHelper;
+import orm.metadata.EntityMetadata;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of extracting mapping metadata and column values out of entities.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class EntityHelperBenchmarks {
+
+    private EntityHelper entityHelper;
+    private StudentEntity student;
+    private CommentEntity comment;
+
+    @Setup
+    public void setUp() {
+        entityHelper = new EntityHelper();
+
+        student = new StudentEntity();
+        student.setId(7);
+        student.setFirstName("First");
+        student.setLastName("Last");
+        student.setNoOfPassedExams(12);
+
+        PostEntity post = new PostEntity();
+        post.setId(3);
+
+        comment = new CommentEntity();
+        comment.setContent("Comment");
+        comment.setPost(post);
+    }
+
+    @Benchmark
+    public EntityMetadata getMetadata() {
+        return entityHelper.getMetadata(StudentEntity.class);
+    }
+
+    @Benchmark
+    public Map<String, Object> getColumnNamesAndValues() {
+        return entityHelper.getColumnNamesAndValues(StudentEntity.class, student);
+    }
+
+    @Benchmark
+    public Map<String, Object> getJoinColumnNamesAndValues() {
+        return entityHelper.getJoinColumnNamesAndValues(CommentEntity.class, comment);
+    }
+
+    @Benchmark
+    public Object getIdValue() {
+        return entityHelper.getIdValue(student);
+    }
+}
@@ -0,0 +1,66 @@
+package benchmark;
+
+import model.PostEntity;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import orm.QueryFormer;
+import orm.StatementKey;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of forming SQL statements, both from scratch and through the statement templates.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class QueryFormerBenchmarks {
+
+    private final QueryFormer queryFormer = new QueryFormer();
+
+    private final List<String> columnNames = Arrays.asList("ID", "FIRST_NAME", "LAST_NAME", "PASSED_EXAMS");
+    private final List<String> idColumn = Collections.singletonList("ID");
+    private final StatementKey selectKey = new StatementKey(PostEntity.class, StatementKey.Operation.SELECT, idColumn);
+
+    private final List<String> joinTables = Arrays.asList("PostEntity", "CommentEntity");
+    private final List<List<String>> joinColumns = Arrays.asList(Arrays.asList("ID", "title"), Arrays.asList("ID", "content", "FK_POST_ID"));
+    private final List<String> joinColumnNames = Collections.singletonList("FK_POST_ID");
+
+    @Benchmark
+    public String formInsertQuery() {
+        return queryFormer.formInsertQuery("StudentEntity", columnNames);
+    }
+
+    @Benchmark
+    public String formSelectQuery() {
+        return queryFormer.formSelectQuery("StudentEntity", columnNames, idColumn);
+    }
+
+    @Benchmark
+    public String formSelectInQuery() {
+        return queryFormer.formSelectInQuery("StudentEntity", columnNames, "ID", 16);
+    }
+
+    @Benchmark
+    public String formJoinSelectQuery() {
+        return queryFormer.formJoinSelectQuery(joinTables, joinColumns, idColumn, joinColumnNames, "ID");
+    }
+
+    @Benchmark
+    public String getSelectQuery() {
+        return queryFormer.getSelectQuery(selectKey, "PostEntity", columnNames);
+    }
+}
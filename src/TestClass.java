@@ -1,5 +1,6 @@
 import model.PostEntity;
 import model.CommentEntity;
+import orm.DriverManagerDataSource;
 import orm.ORM;
 
 
@@ -12,7 +13,11 @@ public class TestClass {
 
     public static void main(String[] args) {
 
-        ORM orm = new ORM();
+        // statements are only logged unless a database is passed with -Dorm.url=jdbc:h2:mem:test
+        String url = System.getProperty("orm.url");
+
+        ORM orm = url == null ? new ORM() : new ORM(new DriverManagerDataSource(url,
+                System.getProperty("orm.user", "sa"), System.getProperty("orm.password", "")));
 
 //        StudentEntity student = new StudentEntity();
 //
@@ -38,5 +43,6 @@ public class TestClass {
 
         orm.persist(post);
 
+        orm.close();
     }
 }
@@ -9,7 +9,7 @@ import orm.annotations.ManyToOne;
 @Entity
 public class CommentEntity extends BasicEntity {
 
-    @ManyToOne
+    @ManyToOne(batchSize = 16)
     @JoinColumn(name = "FK_POST_ID")
     private PostEntity post;
 
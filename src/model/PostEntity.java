@@ -1,5 +1,6 @@
 package model;
 
+import orm.annotations.Cacheable;
 import orm.annotations.Column;
 import orm.annotations.Entity;
 import orm.annotations.OneToMany;
@@ -7,12 +8,13 @@ import orm.annotations.OneToMany;
 import java.util.List;
 
 @Entity()
+@Cacheable(region = "posts")
 public class PostEntity extends BasicEntity {
 
     @Column(name="title")
     private String title;
 
-    @OneToMany(mappedBy = "post")
+    @OneToMany(mappedBy = "post", batchSize = 16)
     private List<CommentEntity> comments;
 
 
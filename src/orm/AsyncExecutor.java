@@ -0,0 +1,53 @@
+package orm;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * <p>Runs the asynchronous operations of an {@link ORMFactory} on a fixed pool of daemon threads.</p>
+ * <p>The pool has <b>parallelism</b> threads (typically the size of the connection pool), so at most that many operations
+ * run at once and the others wait in the executor's queue instead of waiting for a connection inside the pool.</p>
+ */
+class AsyncExecutor {
+
+    private final ExecutorService executor;
+
+    /**
+     * @param parallelism Maximum number of operations that run at once.
+     */
+    AsyncExecutor(int parallelism) {
+        this.executor = Executors.newFixedThreadPool(parallelism, new DaemonThreadFactory());
+    }
+
+    /**
+     * @param operation Operation that needs to be run.
+     * @return Future that is completed with the result of the operation, or exceptionally if it has thrown an exception.
+     */
+    <T> CompletableFuture<T> submit(Supplier<T> operation) {
+        return CompletableFuture.supplyAsync(operation, executor);
+    }
+
+    /**
+     * Stops accepting operations, the ones that have already been submitted are still run.
+     */
+    void shutdown() {
+        executor.shutdown();
+    }
+
+    private static class DaemonThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "orm-async-" + count.incrementAndGet());
+            thread.setDaemon(true);
+
+            return thread;
+        }
+    }
+}
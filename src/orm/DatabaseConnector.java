@@ -1,26 +1,808 @@
 package orm;
 
+import orm.exceptions.EntityNotFound;
+import orm.lazy.AssociationLoader;
+import orm.metadata.EntityMetadata;
+import orm.metrics.Metrics;
+import orm.metrics.MetricsCollector;
+import orm.metrics.StatementStatistics;
+import orm.metrics.StatementType;
+import orm.pool.ConnectionPool;
+import orm.pool.ConnectionPoolConfig;
+import orm.pool.PooledConnection;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
+/**
+ * Executes statements against the database. Connections are borrowed from a {@link ConnectionPool} for every statement
+ * (or for the whole transaction) and returned right after, so a connector can be used by several threads at once.
+ */
 public class DatabaseConnector {
 
+    private static final Logger LOGGER = Logger.getLogger("orm.sql");
+
+    private ConnectionPool connectionPool;
+    private boolean ownsConnectionPool;
+
+    // connection of the transaction that the current thread has started
+    private final ThreadLocal<PooledConnection> transactionConnection = new ThreadLocal<>();
+
+    private StatementStatistics statementStatistics = StatementStatistics.getInstance();
+
+    /**
+     * Creates a connector without a database. Statements are only logged (by the "orm.sql" logger at FINE level) and never executed.
+     */
+    public DatabaseConnector() {
+    }
+
+    /**
+     * @param dataSource DataSource from which the connections of the connector's own pool are obtained.
+     */
+    public DatabaseConnector(DataSource dataSource) {
+        this(new ConnectionPool(dataSource));
+        this.ownsConnectionPool = true;
+    }
+
+    /**
+     * @param dataSource DataSource from which the connections of the connector's own pool are obtained.
+     * @param statementCacheSize Maximum number of prepared statements kept open per connection (0 disables caching).
+     */
+    public DatabaseConnector(DataSource dataSource, int statementCacheSize) {
+        ConnectionPoolConfig config = new ConnectionPoolConfig();
+        config.setStatementCacheSize(statementCacheSize);
+
+        this.connectionPool = new ConnectionPool(dataSource, config);
+        this.ownsConnectionPool = true;
+    }
+
+    /**
+     * @param connectionPool Pool from which connections are borrowed. It can be shared by many connectors and isn't
+     *                       closed when the connector is closed.
+     */
+    public DatabaseConnector(ConnectionPool connectionPool) {
+        this.connectionPool = connectionPool;
+    }
+
+    /**
+     * @return Pool of the connector (exposes pool and statement cache metrics), or null if there is no database.
+     */
+    public ConnectionPool getConnectionPool() {
+        return connectionPool;
+    }
+
+    /**
+     * @return DataSource of the connector, or null if there is no database.
+     */
+    public DataSource getDataSource() {
+        return connectionPool != null ? connectionPool.getDataSource() : null;
+    }
+
+    /**
+     * @return Statistics that the executed statements are recorded into.
+     */
+    public StatementStatistics getStatementStatistics() {
+        return statementStatistics;
+    }
+
+    /**
+     * @param statementStatistics Statistics that the executed statements are recorded into (the shared instance by default).
+     */
+    public void setStatementStatistics(StatementStatistics statementStatistics) {
+        this.statementStatistics = statementStatistics;
+    }
+
+    /**
+     * Executes a query and maps the rows of its result set into entities.
+     * @param metadata Metadata of the entities that are expected to be contained in the ResultSet
+     * @param query Query with placeholders that needs to be executed
+     * @param parameters Values that are bound to the placeholders, in order
+     * @return A list that contains one entity per row, or null if the query couldn't be executed.
+     */
+    public List<Object> executeQuery(EntityMetadata metadata, String query, List<Object> parameters){
+        return executeQuery(metadata, null, query, parameters);
+    }
+
+    /**
+     * Executes a query whose prepared statement is cached under a key and maps the rows of its result set into entities.
+     * @param metadata Metadata of the entities that are expected to be contained in the ResultSet
+     * @param key Key under which the prepared statement is cached (null if it shouldn't be cached)
+     * @param query Query with placeholders, prepared only if the statement isn't cached yet
+     * @param parameters Values that are bound to the placeholders, in order
+     * @return A list that contains one entity per row, or null if the query couldn't be executed.
+     */
+    public List<Object> executeQuery(EntityMetadata metadata, StatementKey key, String query, List<Object> parameters){
+        return executeQuery(metadata, key, query, parameters, null);
+    }
+
+    /**
+     * Executes a query whose prepared statement is cached under a key and maps the rows of its result set into entities
+     * whose associations are loaded lazily.
+     * @param metadata Metadata of the entities that are expected to be contained in the ResultSet
+     * @param key Key under which the prepared statement is cached (null if it shouldn't be cached)
+     * @param query Query with placeholders, prepared only if the statement isn't cached yet
+     * @param parameters Values that are bound to the placeholders, in order
+     * @param associationLoader Loader of the lazy associations (null if the associations are left untouched)
+     * @return A list that contains one entity per row, or null if the query couldn't be executed.
+     */
+    public List<Object> executeQuery(EntityMetadata metadata, StatementKey key, String query, List<Object> parameters, AssociationLoader associationLoader){
+        List<Object> results = new ArrayList<>();
+
+        logStatement(query, parameters);
+
+        // no database, nothing to read
+        if(connectionPool == null){
+            return results;
+        }
+
+        long start = System.nanoTime();
+        boolean failed = true;
+        PooledConnection pooledConnection = null;
+        PreparedStatement statement = null;
+
+        try {
+            pooledConnection = acquireConnection();
+            statement = prepareStatement(pooledConnection, key, query);
+            bindParameters(statement, parameters);
+
+            try (ResultSet resultSet = statement.executeQuery()) {
+                // column indexes are resolved once, not for every row
+                EntityHydrator hydrator = new EntityHydrator(metadata, resultSet.getMetaData(), associationLoader);
+
+                while (resultSet.next()) {
+                    results.add(hydrator.hydrate(resultSet));
+                }
+            }
+
+            failed = false;
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return null;
+        } catch (EntityNotFound entityNotFound) {
+            entityNotFound.printStackTrace();
+            return null;
+        } finally {
+            releaseStatement(pooledConnection, key, statement);
+            releaseConnection(pooledConnection);
+            statementExecuted(query, parameters, StatementType.SELECT, start, failed ? 0 : results.size(), failed);
+        }
+
+        return results;
+    }
+
     /**
-     * Reads a result set and retusn a list of objects that are read from the set.
-     * @param clazz Type of objects that are expected to be contained in the ResultSet
-     * @param query Query that needs to be executed
-     * @return
+     * Executes a query whose rows contain the columns of several joined tables and maps every row into one entity per table.
+     * Columns of the tables are expected to be labeled as formed by {@link QueryFormer#formJoinSelectQuery(List, List, List, List, String)}.
+     * @param metadata Metadata of the entities of every table, in the order of the tables
+     * @param key Key under which the prepared statement is cached (null if it shouldn't be cached)
+     * @param query Query with placeholders, prepared only if the statement isn't cached yet
+     * @param parameters Values that are bound to the placeholders, in order
+     * @param associationLoader Loader of the lazy associations (null if the associations are left untouched)
+     * @return A list that contains one array of entities per row (null elements for the tables that the row didn't match),
+     * or null if the query couldn't be executed.
      */
-    public List<Object> executeQuery(Class clazz, String query){
-        // todo jdbc insertion, reading of resultset
+    public List<Object[]> executeJoinQuery(List<EntityMetadata> metadata, StatementKey key, String query, List<Object> parameters, AssociationLoader associationLoader){
+        List<Object[]> results = new ArrayList<>();
 
-        System.out.println(query);
+        logStatement(query, parameters);
 
-        return new ArrayList<>();
+        // no database, nothing to read
+        if(connectionPool == null){
+            return results;
+        }
+
+        long start = System.nanoTime();
+        boolean failed = true;
+        PooledConnection pooledConnection = null;
+        PreparedStatement statement = null;
+
+        try {
+            pooledConnection = acquireConnection();
+            statement = prepareStatement(pooledConnection, key, query);
+            bindParameters(statement, parameters);
+
+            try (ResultSet resultSet = statement.executeQuery()) {
+                EntityHydrator[] hydrators = new EntityHydrator[metadata.size()];
+
+                for(int i = 0; i < hydrators.length; i++){
+                    hydrators[i] = new EntityHydrator(metadata.get(i), resultSet.getMetaData(), associationLoader, QueryFormer.getLabelPrefix(i));
+                }
+
+                while (resultSet.next()) {
+                    Object[] row = new Object[hydrators.length];
+
+                    for(int i = 0; i < hydrators.length; i++){
+                        // outer joins leave the columns of the tables that didn't match empty
+                        if(hydrators[i].hasEntity(resultSet)){
+                            row[i] = hydrators[i].hydrate(resultSet);
+                        }
+                    }
+
+                    results.add(row);
+                }
+            }
+
+            failed = false;
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return null;
+        } catch (EntityNotFound entityNotFound) {
+            entityNotFound.printStackTrace();
+            return null;
+        } finally {
+            releaseStatement(pooledConnection, key, statement);
+            releaseConnection(pooledConnection);
+            statementExecuted(query, parameters, StatementType.SELECT, start, failed ? 0 : results.size(), failed);
+        }
+
+        return results;
+    }
+
+    /**
+     * <p>Executes a query and returns a cursor that hydrates its rows one at a time. The statement is forward-only and
+     * read-only and the driver is asked to fetch <b>fetchSize</b> rows per round trip.</p>
+     * <p>The connection stays borrowed until the cursor is closed. Outside of a transaction, the connection is switched
+     * off auto-commit while the cursor is open, since some drivers (e.g. PostgreSQL) ignore the fetch size otherwise.</p>
+     * @param metadata Metadata of the entities that are expected to be contained in the ResultSet
+     * @param query Query with placeholders that needs to be executed
+     * @param parameters Values that are bound to the placeholders, in order
+     * @param fetchSize Number of rows fetched per round trip (0 leaves the driver's default)
+     * @return An open cursor, or an empty cursor if the query couldn't be executed.
+     */
+    public EntityCursor openCursor(EntityMetadata metadata, String query, List<Object> parameters, int fetchSize){
+        return openCursor(metadata, query, parameters, fetchSize, null);
+    }
+
+    /**
+     * Executes a query and returns a cursor that hydrates its rows one at a time into entities whose associations are
+     * loaded lazily. See {@link #openCursor(EntityMetadata, String, List, int)}.
+     * @param metadata Metadata of the entities that are expected to be contained in the ResultSet
+     * @param query Query with placeholders that needs to be executed
+     * @param parameters Values that are bound to the placeholders, in order
+     * @param fetchSize Number of rows fetched per round trip (0 leaves the driver's default)
+     * @param associationLoader Loader of the lazy associations (null if the associations are left untouched)
+     * @return An open cursor, or an empty cursor if the query couldn't be executed.
+     */
+    public EntityCursor openCursor(EntityMetadata metadata, String query, List<Object> parameters, int fetchSize, AssociationLoader associationLoader){
+        logStatement(query, parameters);
+
+        // no database, nothing to read
+        if(connectionPool == null){
+            return EntityCursor.empty();
+        }
+
+        long start = System.nanoTime();
+        PooledConnection pooledConnection = null;
+        PreparedStatement statement = null;
+        boolean transactional = false;
+
+        try {
+            pooledConnection = acquireConnection();
+            transactional = pooledConnection == transactionConnection.get();
+
+            Connection connection = pooledConnection.getConnection();
+
+            if(!transactional){
+                connection.setAutoCommit(false);
+            }
+
+            // the statement stays open while the cursor is read, so it isn't taken from the statement cache
+            statement = connection.prepareStatement(query, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(fetchSize);
+            bindParameters(statement, parameters);
+
+            ResultSet resultSet = statement.executeQuery();
+            EntityHydrator hydrator;
+
+            try {
+                hydrator = new EntityHydrator(metadata, resultSet.getMetaData(), associationLoader);
+            } catch (EntityNotFound | SQLException e) {
+                resultSet.close();
+                throw e;
+            }
+
+            final PooledConnection cursorConnection = pooledConnection;
+            final boolean cursorTransactional = transactional;
+
+            // only opening the cursor is measured, its rows are read later by the caller
+            statementExecuted(query, parameters, StatementType.SELECT, start, 0, false);
+
+            return new EntityCursor(statement, resultSet, hydrator, () -> closeCursor(cursorConnection, cursorTransactional));
+        } catch (SQLException e) {
+            e.printStackTrace();
+        } catch (EntityNotFound entityNotFound) {
+            entityNotFound.printStackTrace();
+        }
+
+        statementExecuted(query, parameters, StatementType.SELECT, start, 0, true);
+
+        // the query failed, releasing everything that has been acquired
+        releaseStatement(pooledConnection, null, statement);
+
+        if(pooledConnection != null){
+            closeCursor(pooledConnection, transactional);
+        }
+
+        return EntityCursor.empty();
+    }
+
+    /**
+     * Executes an INSERT, UPDATE or DELETE statement.
+     * @param query Statement with placeholders that needs to be executed
+     * @param parameters Values that are bound to the placeholders, in order
+     * @return Number of affected rows, or -1 if the statement couldn't be executed.
+     */
+    public int executeUpdate(String query, List<Object> parameters){
+        return executeUpdate(null, query, parameters);
     }
 
-    public int executeUpdate(String query){
+    /**
+     * Executes an INSERT, UPDATE or DELETE statement whose prepared statement is cached under a key.
+     * @param key Key under which the prepared statement is cached (null if it shouldn't be cached)
+     * @param query Statement with placeholders, prepared only if the statement isn't cached yet
+     * @param parameters Values that are bound to the placeholders, in order
+     * @return Number of affected rows, or -1 if the statement couldn't be executed.
+     */
+    public int executeUpdate(StatementKey key, String query, List<Object> parameters){
+        logStatement(query, parameters);
+
+        // no database, nothing to update
+        if(connectionPool == null){
+            return -1;
+        }
+
+        long start = System.nanoTime();
+        int rows = -1;
+        PooledConnection pooledConnection = null;
+        PreparedStatement statement = null;
+
+        try {
+            pooledConnection = acquireConnection();
+            statement = prepareStatement(pooledConnection, key, query);
+            bindParameters(statement, parameters);
+
+            rows = statement.executeUpdate();
+
+            return rows;
+        } catch (SQLException e) {
+            e.printStackTrace();
+        } finally {
+            releaseStatement(pooledConnection, key, statement);
+            releaseConnection(pooledConnection);
+            statementExecuted(query, parameters, null, start, Math.max(rows, 0), rows < 0);
+        }
+
         return -1;
     }
+
+    /**
+     * <p>Executes an INSERT statement and reads the values the database generated for the inserted row through
+     * getGeneratedKeys, so no additional query is needed to find out the ID of the row.</p>
+     * @param key Key under which the prepared statement is cached (null if it shouldn't be cached)
+     * @param query Statement with placeholders, prepared only if the statement isn't cached yet
+     * @param parameters Values that are bound to the placeholders, in order
+     * @param generatedColumnNames Names of the generated columns whose values are returned (empty if none are needed)
+     * @return Values of the generated columns, in the order of generatedColumnNames (an empty array if the driver didn't
+     * return them), or null if the statement couldn't be executed.
+     */
+    public Object[] executeInsert(StatementKey key, String query, List<Object> parameters, List<String> generatedColumnNames){
+        logStatement(query, parameters);
+
+        // no database, nothing is generated
+        if(connectionPool == null){
+            return new Object[0];
+        }
+
+        long start = System.nanoTime();
+        int rows = -1;
+        PooledConnection pooledConnection = null;
+        PreparedStatement statement = null;
+
+        try {
+            pooledConnection = acquireConnection();
+            statement = prepareStatement(pooledConnection, key, query, generatedColumnNames);
+            bindParameters(statement, parameters);
+
+            rows = statement.executeUpdate();
+
+            if(generatedColumnNames.isEmpty()){
+                return new Object[0];
+            }
+
+            List<Object[]> generatedValues = new ArrayList<>(1);
+            readGeneratedValues(statement, generatedColumnNames.size(), generatedValues);
+
+            return generatedValues.isEmpty() ? new Object[0] : generatedValues.get(0);
+        } catch (SQLException e) {
+            e.printStackTrace();
+        } finally {
+            releaseStatement(pooledConnection, key, statement);
+            releaseConnection(pooledConnection);
+            statementExecuted(query, parameters, StatementType.INSERT, start, Math.max(rows, 0), rows < 0);
+        }
+
+        return null;
+    }
+
+    /**
+     * <p>Executes an INSERT statement once for every row of parameters. Rows are sent to the database in chunks of
+     * batchSize rows (addBatch/executeBatch), so inserting n rows takes n / batchSize round-trips instead of n.</p>
+     * @param key Key under which the prepared statement is cached (null if it shouldn't be cached)
+     * @param query Statement with placeholders, prepared only if the statement isn't cached yet
+     * @param parameterRows Values that are bound to the placeholders, one list per row
+     * @param generatedColumnNames Names of the generated columns whose values are returned (empty if none are needed)
+     * @param batchSize Maximum number of rows sent in a single batch
+     * @return One Object[] of generated values per inserted row, in the order of the rows. Empty if no generated values
+     * were requested or the driver didn't return them for every row, null if the batch couldn't be executed.
+     */
+    public List<Object[]> executeBatch(StatementKey key, String query, List<List<Object>> parameterRows, List<String> generatedColumnNames, int batchSize){
+        List<Object[]> generatedValues = new ArrayList<>();
+
+        logStatement(query, "x" + parameterRows.size() + " (batch size " + batchSize + ")");
+
+        // no database or nothing to insert
+        if(connectionPool == null || parameterRows.isEmpty()){
+            return generatedValues;
+        }
+
+        PooledConnection pooledConnection = null;
+        PreparedStatement statement = null;
+
+        try {
+            pooledConnection = acquireConnection();
+            statement = prepareStatement(pooledConnection, key, query, generatedColumnNames);
+
+            for(int start = 0; start < parameterRows.size(); start += batchSize){
+                int end = Math.min(start + batchSize, parameterRows.size());
+
+                // adding a chunk of rows to the batch
+                for(int i = start; i < end; i++){
+                    bindParameters(statement, parameterRows.get(i));
+                    statement.addBatch();
+                }
+
+                // every chunk is a round trip of its own, so every chunk is measured
+                long batchStart = System.nanoTime();
+                boolean batchFailed = true;
+
+                try {
+                    statement.executeBatch();
+                    batchFailed = false;
+                } finally {
+                    batchExecuted(query, batchStart, end - start, batchFailed);
+                }
+
+                if(!generatedColumnNames.isEmpty()){
+                    readGeneratedValues(statement, generatedColumnNames.size(), generatedValues);
+                }
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return null;
+        } finally {
+            // rows of a failed chunk would otherwise stay in the cached statement and be sent with its next batch
+            clearBatch(statement);
+            releaseStatement(pooledConnection, key, statement);
+            releaseConnection(pooledConnection);
+        }
+
+        // values can't be matched to the rows if some of them are missing
+        if(generatedValues.size() != parameterRows.size()){
+            generatedValues.clear();
+        }
+
+        return generatedValues;
+    }
+
+    /**
+     * Starts a transaction on the current thread. The thread keeps the same connection, and every statement it executes
+     * is a part of the transaction, until {@link #commit()} or {@link #rollback()}.
+     * @return <b>true</b> if the transaction has been started.
+     */
+    public boolean beginTransaction(){
+        if(connectionPool == null){
+            return true;
+        }
+
+        // nested transactions are a part of the outer one
+        if(transactionConnection.get() != null){
+            return true;
+        }
+
+        PooledConnection pooledConnection = null;
+
+        try {
+            pooledConnection = connectionPool.borrow();
+            pooledConnection.getConnection().setAutoCommit(false);
+
+            transactionConnection.set(pooledConnection);
+            return true;
+        } catch (SQLException e) {
+            e.printStackTrace();
+
+            if(pooledConnection != null){
+                connectionPool.release(pooledConnection);
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Commits the transaction of the current thread and returns its connection to the pool.
+     * @return <b>true</b> if the transaction has been committed.
+     */
+    public boolean commit(){
+        PooledConnection pooledConnection = transactionConnection.get();
+
+        if(connectionPool == null || pooledConnection == null){
+            return true;
+        }
+
+        try {
+            pooledConnection.getConnection().commit();
+            return true;
+        } catch (SQLException e) {
+            e.printStackTrace();
+
+            try {
+                pooledConnection.getConnection().rollback();
+            } catch (SQLException rollbackException) {
+                rollbackException.printStackTrace();
+            }
+        } finally {
+            endTransaction(pooledConnection);
+        }
+
+        return false;
+    }
+
+    /**
+     * Rolls the transaction of the current thread back and returns its connection to the pool.
+     */
+    public void rollback(){
+        PooledConnection pooledConnection = transactionConnection.get();
+
+        if(connectionPool == null || pooledConnection == null){
+            return;
+        }
+
+        try {
+            pooledConnection.getConnection().rollback();
+        } catch (SQLException e) {
+            e.printStackTrace();
+        } finally {
+            endTransaction(pooledConnection);
+        }
+    }
+
+    /**
+     * Closes the connection pool of the connector, unless the pool was passed in and is shared with other connectors.
+     */
+    public void close(){
+        if(connectionPool != null && ownsConnectionPool){
+            connectionPool.close();
+        }
+    }
+
+    /**
+     * Logs a statement at FINE level, the message is built only if the level is enabled.
+     */
+    private void logStatement(String query, Object parameters){
+        if(LOGGER.isLoggable(Level.FINE)){
+            LOGGER.fine(query + " " + parameters);
+        }
+    }
+
+    /**
+     * Records an executed statement into the statement statistics and reports it to the metrics collector.
+     * @param type Type of the statement, null if it needs to be determined from the query.
+     * @param start Value of System.nanoTime() before the statement was executed.
+     */
+    private void statementExecuted(String query, List<Object> parameters, StatementType type, long start, int rows, boolean failed){
+        long nanos = System.nanoTime() - start;
+        statementStatistics.record(query, parameters, nanos, rows, failed);
+
+        MetricsCollector metrics = Metrics.getCollector();
+
+        if(metrics.isEnabled()){
+            metrics.statementExecuted(query, type != null ? type : StatementType.of(query), nanos, rows, failed);
+        }
+    }
+
+    /**
+     * Records an executed JDBC batch into the statement statistics and reports it to the metrics collector.
+     * @param start Value of System.nanoTime() before the batch was executed.
+     */
+    private void batchExecuted(String query, long start, int batchSize, boolean failed){
+        long nanos = System.nanoTime() - start;
+        statementStatistics.record(query, "x" + batchSize, nanos, failed ? 0 : batchSize, failed);
+
+        MetricsCollector metrics = Metrics.getCollector();
+
+        if(metrics.isEnabled()){
+            metrics.batchExecuted(query, StatementType.of(query), nanos, batchSize, failed);
+        }
+    }
+
+    /**
+     * Gets the connection the current thread should use: the one of its transaction, or a connection borrowed from the pool.
+     * @return A connection that needs to be handed to {@link #releaseConnection(PooledConnection)} once the statement is done.
+     * @throws SQLException if no connection could be borrowed.
+     */
+    private PooledConnection acquireConnection() throws SQLException {
+        PooledConnection pooledConnection = transactionConnection.get();
+
+        if(pooledConnection != null){
+            return pooledConnection;
+        }
+
+        return connectionPool.borrow();
+    }
+
+    /**
+     * Returns a connection to the pool unless it belongs to the current thread's transaction.
+     * @param pooledConnection Connection that has been acquired (null if acquiring failed).
+     */
+    private void releaseConnection(PooledConnection pooledConnection){
+        if(pooledConnection == null || pooledConnection == transactionConnection.get()){
+            return;
+        }
+
+        connectionPool.release(pooledConnection);
+    }
+
+    /**
+     * Puts the transaction's connection back into auto-commit mode and returns it to the pool.
+     */
+    private void endTransaction(PooledConnection pooledConnection){
+        transactionConnection.remove();
+
+        try {
+            pooledConnection.getConnection().setAutoCommit(true);
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+
+        connectionPool.release(pooledConnection);
+    }
+
+    /**
+     * Releases the connection of a closed cursor unless it belongs to a transaction. The pool ends the read-only
+     * transaction of the cursor and puts the connection back into auto-commit mode.
+     * <p>The cursor can be closed by a different thread than the one that opened it, so the transaction isn't looked up
+     * in the thread local.</p>
+     */
+    private void closeCursor(PooledConnection pooledConnection, boolean transactional){
+        if(!transactional){
+            connectionPool.release(pooledConnection);
+        }
+    }
+
+    /**
+     * Gets a prepared statement from the connection's statement cache, preparing and caching it if it isn't there.
+     * @param pooledConnection Connection on which the statement is prepared.
+     * @param key Key of the statement (null if it shouldn't be cached).
+     * @param query Query that is prepared on a cache miss.
+     * @return A prepared statement without bound parameters.
+     * @throws SQLException if the statement couldn't be prepared.
+     */
+    private PreparedStatement prepareStatement(PooledConnection pooledConnection, StatementKey key, String query) throws SQLException {
+        return prepareStatement(pooledConnection, key, query, Collections.<String>emptyList());
+    }
+
+    /**
+     * Gets a prepared statement from the connection's statement cache, preparing and caching it if it isn't there.
+     * @param pooledConnection Connection on which the statement is prepared.
+     * @param key Key of the statement (null if it shouldn't be cached).
+     * @param query Query that is prepared on a cache miss.
+     * @param generatedColumnNames Names of the generated columns the statement returns (empty if none).
+     * @return A prepared statement without bound parameters.
+     * @throws SQLException if the statement couldn't be prepared.
+     */
+    private PreparedStatement prepareStatement(PooledConnection pooledConnection, StatementKey key, String query, List<String> generatedColumnNames) throws SQLException {
+        Connection connection = pooledConnection.getConnection();
+        StatementCache statementCache = pooledConnection.getStatementCache();
+
+        if(key == null || !statementCache.isEnabled()){
+            return newStatement(connection, query, generatedColumnNames);
+        }
+
+        PreparedStatement statement = statementCache.get(key);
+
+        if(statement == null){
+            statement = newStatement(connection, query, generatedColumnNames);
+            statementCache.put(key, statement);
+        } else {
+            statement.clearParameters();
+        }
+
+        return statement;
+    }
+
+    /**
+     * Prepares a new statement, asking the driver to return the generated columns if there are any.
+     */
+    private PreparedStatement newStatement(Connection connection, String query, List<String> generatedColumnNames) throws SQLException {
+        if(generatedColumnNames.isEmpty()){
+            return connection.prepareStatement(query);
+        }
+
+        return connection.prepareStatement(query, generatedColumnNames.toArray(new String[0]));
+    }
+
+    /**
+     * Reads the generated values of the last execution of a statement.
+     * @param statement Statement that has been executed.
+     * @param columnCount Number of generated columns.
+     * @param generatedValues List to which one Object[] per returned row is added.
+     * @throws SQLException if the generated values couldn't be read.
+     */
+    private void readGeneratedValues(PreparedStatement statement, int columnCount, List<Object[]> generatedValues) throws SQLException {
+        try (ResultSet resultSet = statement.getGeneratedKeys()) {
+            while (resultSet.next()) {
+                Object[] row = new Object[columnCount];
+
+                for (int i = 0; i < columnCount; i++) {
+                    row[i] = resultSet.getObject(i + 1);
+                }
+
+                generatedValues.add(row);
+            }
+        }
+    }
+
+    /**
+     * Drops the rows that have been added to a statement's batch but not executed.
+     * @param statement Statement of the batch, null if it hasn't been prepared.
+     */
+    private void clearBatch(PreparedStatement statement){
+        if(statement == null){
+            return;
+        }
+
+        try {
+            statement.clearBatch();
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Closes a statement unless it is kept in the statement cache.
+     * @param pooledConnection Connection on which the statement was prepared.
+     * @param key Key of the statement (null if it wasn't cached).
+     * @param statement Statement that has been executed.
+     */
+    private void releaseStatement(PooledConnection pooledConnection, StatementKey key, PreparedStatement statement){
+        if(statement == null || (key != null && pooledConnection.getStatementCache().isEnabled())){
+            return;
+        }
+
+        try {
+            statement.close();
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Binds parameters to the placeholders of a statement.
+     * @param statement Statement whose placeholders need to be set.
+     * @param parameters Values of the placeholders, in order.
+     * @throws SQLException if a value couldn't be bound.
+     */
+    private void bindParameters(PreparedStatement statement, List<Object> parameters) throws SQLException {
+        for(int i = 0; i < parameters.size(); i++){
+            statement.setObject(i + 1, parameters.get(i));
+        }
+    }
 }
@@ -0,0 +1,135 @@
+package orm;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * <p>Forward-only cursor over the rows of a query. Rows are fetched from the database in chunks of the fetch size and each
+ * row is hydrated into an entity only when it's requested, so the memory used by the cursor doesn't depend on the number
+ * of rows the query returns.</p>
+ * <p>The cursor holds its database connection until it is closed. It is closed automatically once the last row has been
+ * read, but a cursor that isn't read to the end must be closed explicitly (e.g. with try-with-resources).</p>
+ */
+public class EntityCursor implements Iterator<Object>, AutoCloseable {
+
+    private final Statement statement;
+    private final ResultSet resultSet;
+    private final EntityHydrator hydrator;
+    private final Runnable onClose;
+
+    private Object next;
+    private boolean closed;
+
+    /**
+     * @param statement Statement that produced the ResultSet, closed together with the cursor (null if there is none).
+     * @param resultSet Forward-only ResultSet whose rows are read (null for an empty cursor).
+     * @param hydrator Hydrator that maps the rows of the ResultSet into entities.
+     * @param onClose Action that releases the cursor's connection (null if there is nothing to release).
+     */
+    EntityCursor(Statement statement, ResultSet resultSet, EntityHydrator hydrator, Runnable onClose) {
+        this.statement = statement;
+        this.resultSet = resultSet;
+        this.hydrator = hydrator;
+        this.onClose = onClose;
+        this.closed = resultSet == null;
+    }
+
+    /**
+     * @return A cursor without any rows.
+     */
+    static EntityCursor empty() {
+        return new EntityCursor(null, null, null, null);
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next != null) {
+            return true;
+        }
+
+        if (closed) {
+            return false;
+        }
+
+        try {
+            if (resultSet.next()) {
+                next = hydrator.hydrate(resultSet);
+                return true;
+            }
+        } catch (SQLException e) {
+            close();
+            throw new IllegalStateException("Couldn't read the next row of the cursor.", e);
+        }
+
+        // releasing the connection as soon as the last row has been read
+        close();
+
+        return false;
+    }
+
+    @Override
+    public Object next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+
+        Object entity = next;
+        next = null;
+
+        return entity;
+    }
+
+    /**
+     * <p>Wraps the cursor in a sequential stream. Closing the stream closes the cursor.</p>
+     * @return Stream of the remaining entities of the cursor.
+     */
+    public Stream<Object> stream() {
+        Spliterator<Object> spliterator = Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED | Spliterator.NONNULL);
+
+        return StreamSupport.stream(spliterator, false).onClose(this::close);
+    }
+
+    /**
+     * @return <b>true</b> if the cursor has been closed (or read to the end).
+     */
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Closes the ResultSet and its statement and releases the connection. Closing a closed cursor has no effect.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+
+        closed = true;
+
+        try {
+            resultSet.close();
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+
+        try {
+            if (statement != null) {
+                statement.close();
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+
+        if (onClose != null) {
+            onClose.run();
+        }
+    }
+}
@@ -1,22 +1,40 @@
 package orm;
 
-import orm.annotations.*;
-import orm.exceptions.ColumnNotFound;
 import orm.exceptions.NullValue;
+import orm.lazy.LazyReferences;
+import orm.metadata.ColumnMetadata;
+import orm.metadata.EntityMetadata;
+import orm.metadata.EntityMetadataRegistry;
+import orm.metadata.ManyToOneMetadata;
+import orm.metadata.OneToManyMetadata;
 
-import java.lang.annotation.Annotation;
 import java.lang.reflect.Field;
-import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
 public class EntityHelper {
 
-    private ClassHelper classHelper;
+    private final EntityMetadataRegistry metadataRegistry;
 
     public EntityHelper() {
-        classHelper = new ClassHelper();
+        this(EntityMetadataRegistry.getInstance());
+    }
+
+    /**
+     * @param metadataRegistry Registry that holds the mapping models of the entities.
+     */
+    public EntityHelper(EntityMetadataRegistry metadataRegistry) {
+        this.metadataRegistry = metadataRegistry;
+    }
+
+    /**
+     * <p>Gets the precomputed mapping model of a class.</p>
+     * @param clazz Class whose metadata is needed.
+     * @return Metadata of the class.
+     */
+    public EntityMetadata getMetadata(Class<?> clazz){
+        return metadataRegistry.getMetadata(clazz);
     }
 
     /**
@@ -25,17 +43,7 @@ public class EntityHelper {
      * @return <b>true</b> if it is an entity, <b>false</b> if it isn't.
      */
     public boolean isEntity(Object object){
-        Class<?> clazz = object.getClass();
-
-        Annotation[] classAnnotations = clazz.getDeclaredAnnotations();
-
-        for(Annotation classAnnotation : classAnnotations){
-            if(classAnnotation instanceof Entity){
-                return true;
-            }
-        }
-
-        return false;
+        return getMetadata(object.getClass()).isEntity();
     }
 
     /**
@@ -46,324 +54,167 @@ public class EntityHelper {
      * @return Name of the database table.
      */
     public String findTableName(Class<?> clazz){
-        String tableName = "";
+        return getMetadata(clazz).getTableName();
+    }
 
-        Annotation[] clazzAnnotations = clazz.getDeclaredAnnotations();
+    /**
+     * Retrieves the field which is marked as identifying column (primary key) in a class.
+     * @param clazz Entity class whose identifying field we need to find.
+     * @return A Field that is an identifying column.
+     */
+    public Field findIdField(Class clazz){
+        ColumnMetadata idColumn = getMetadata(clazz).getIdColumn();
 
+        return idColumn != null ? idColumn.getField() : null;
+    }
 
-        for (Annotation clazzAnnotation : clazzAnnotations) {
-            Entity entity = (Entity) clazzAnnotation;
+    /**
+     * <p>Maps column names and values of all the columns of an entity (including the ones inherited from mapped superclasses)
+     * that are not generated values.</p>
+     * @param clazz Class that has annotated fields.
+     * @param object Instance of a clazz that contains values.
+     * @return A map of column names and values in column order, or null if a NotNull column contains a null value.
+     */
+    public Map<String, Object> getColumnNamesAndValues(Class<?> clazz, Object object) {
+        Map<String, Object> map = new LinkedHashMap<>();
+
+        for (ColumnMetadata column : getMetadata(clazz).getInsertableColumns()) {
+            // getting the value of the field
+            Object columnValue = column.getAccessor().get(object);
+
+            // if the field marked as NotNull contains a null value
+            if (columnValue == null && column.isNotNull()) {
+                try {
+                    throw new NullValue("A property of an entity (" + column.getField().getName() + ") which is marked as @NotNull contains a null value.");
+                } catch (NullValue nullValue) {
+                    nullValue.printStackTrace();
+                    return null;
+                }
+            }
 
-            // has name value
-            if (!entity.name().isEmpty()) {
-                // setting table name to the annotated value
-                tableName = entity.name();
-            } else {
-                // doesn't have an annotated name value
+            // inserting the column name and column value into the column names and values map
+            map.put(column.getColumnName(), columnValue);
+        }
 
-                // setting table name to the entity's class name
-                tableName = clazz.getSimpleName();
-            }
+        return map;
+    }
 
-            // if the entity is annotated as a table
-            if (clazzAnnotation instanceof Table) {
-                Table table = (Table) clazzAnnotation;
 
-                // setting table name to the annotated values
+    /**
+     * <p>Gets the value of an entity's ID. An ID that is null or a number equal to zero is treated as not assigned yet,
+     * meaning that the entity hasn't been persisted.</p>
+     * @param entity Entity whose ID is needed.
+     * @return Value of the ID, or null if the entity doesn't have an assigned ID.
+     */
+    public Object getIdValue(Object entity){
+        ColumnMetadata idColumn = getMetadata(entity.getClass()).getIdColumn();
 
-                // has schema name
-                if(table.schema().equals("")) {
-                    tableName = table.name();
-                }
-                else {
-                    // doesn't have schema name
-                    tableName = table.schema() + "." + table.name();
-                }
-            }
+        if (idColumn == null) {
+            return null;
         }
 
+        Object idValue = idColumn.getAccessor().get(entity);
 
+        if (idValue instanceof Number && ((Number) idValue).longValue() == 0) {
+            return null;
+        }
 
-        return tableName;
+        return idValue;
     }
 
     /**
-     * Gets column names and values from a list of classes and an object from which the names and values are extracted.
-     * @param classes Classes that contain fields.
-     * @param object Object that contains field values.
-     * @return A map of column names and values.
+     * <p>Maps the join column names of an entity's ManyToOne associations to the IDs of the referenced entities.</p>
+     * @param clazz Class that has ManyToOne associations.
+     * @param object Instance of a clazz that references other entities.
+     * @return A map of join column names and referenced IDs (null if the referenced entity isn't persisted).
      */
-    public Map<String,Object> getColumnNamesAndValuesForClasses(List<Class<?>> classes, Object object){
-        Map map = new HashMap<String, Object>();
-
+    public Map<String, Object> getJoinColumnNamesAndValues(Class<?> clazz, Object object){
+        Map<String, Object> map = new LinkedHashMap<>();
 
-        // getting column names and values for each class
-        for(Class clazz : classes){
-            Map columnNamesAndValues = getColumnNamesAndValues(clazz, object);
-
-            if(columnNamesAndValues == null){
-                return null;
+        for (ManyToOneMetadata manyToOne : getMetadata(clazz).getManyToOneAssociations()) {
+            // ManyToOne without a JoinColumn isn't stored in this table
+            if (manyToOne.getJoinColumnName() == null) {
+                continue;
             }
 
-            // combining maps
-            map.putAll(columnNamesAndValues);
+            map.put(manyToOne.getJoinColumnName(), getJoinColumnValue(manyToOne, object));
         }
 
         return map;
     }
 
     /**
-     * Retrieves the field which is marked as identifying column (primary key) in a class.
-     * @param clazz Entity class whose identifying field we need to find.
-     * @return A Field that is an identifying column.
+     * <p>Gets the values of the join columns of an entity's ManyToOne associations.</p>
+     * @param metadata Metadata of the entity's class.
+     * @param object Entity that references other entities.
+     * @return One value per ManyToOne association, in the order of the associations (null for the associations without
+     * a join column and for the references that aren't persisted).
      */
-    public Field findIdField(Class clazz){
-
-        List<Class<?>> classes = classHelper.getSuperClasses(clazz);
-        classes.add(clazz);
+    public Object[] getJoinColumnValues(EntityMetadata metadata, Object object){
+        List<ManyToOneMetadata> manyToOneAssociations = metadata.getManyToOneAssociations();
+        Object[] values = new Object[manyToOneAssociations.size()];
 
-        Field idField = null;
+        for (int i = 0; i < values.length; i++) {
+            ManyToOneMetadata manyToOne = manyToOneAssociations.get(i);
 
-        for(int i = classes.size() - 1; i >= 0; i--){
-            Field[] fieldList = classes.get(i).getDeclaredFields();
-            for (Field field: fieldList){
-                Annotation[] annotationList = field.getDeclaredAnnotations();
-                for (Annotation annotation: annotationList){
-                    if (annotation instanceof ID){
-                        idField = field;
-                        break;
-                    }
-                }
+            if (manyToOne.getJoinColumnName() != null) {
+                values[i] = getJoinColumnValue(manyToOne, object);
             }
         }
 
-        return idField;
+        return values;
     }
 
     /**
-     * <p> Maps column names and values by iterating through all of the annotated fields of a class.</p>
-     * @param clazz Class that has annotated fields.
-     * @param object Instance of a clazz that contains values.
-     * @return
+     * @param manyToOne A ManyToOne association of the entity.
+     * @param object Entity that references another entity.
+     * @return ID of the referenced entity, or null if it doesn't reference one or the referenced entity isn't persisted.
      */
-    public Map<String, Object> getColumnNamesAndValues(Class<?> clazz, Object object) {
-        Map map = new HashMap<String, Object>();
-
-        Field[] clazzFields = clazz.getDeclaredFields();
-
-        for (Field field : clazzFields) {
-            Annotation[] fieldAnnotations = field.getDeclaredAnnotations();
-            boolean isGeneratedValue = false;
-
-            // checking if the field is a generated value
-            for (Annotation fieldAnnotation : fieldAnnotations) {
-                if (fieldAnnotation instanceof GeneratedValue) {
-                    isGeneratedValue = true;
-                }
-            }
-
-            // skipping the field if it's auto generated
-            if (isGeneratedValue) {
-                continue;
-            }
-
-
-            for (Annotation fieldAnnotation : fieldAnnotations) {
-                // checking elseif fields annotated with notnull are null
-                if (fieldAnnotation instanceof NotNull) {
-                    try {
-                        // seting the access modifier of the field to public
-                        field.setAccessible(true);
-
-                        // if the field marked as NotNull contains a null value
-                        if (field.get(object) == null) {
-                            try {
-                                throw new NullValue("A property of an entity (" + field.getName() + ") which is marked as @NotNull contains a null value.");
-                            } catch (NullValue nullValue) {
-                                nullValue.printStackTrace();
-                                return null;
-                            }
-                        }
-                    } catch (IllegalAccessException e) {
-                        e.printStackTrace();
-                    }
-                }
-
-                // we've ran into a column, getting the column name
-                if (fieldAnnotation instanceof Column) {
-                    Column column = (Column) fieldAnnotation;
-                    String columnName = column.name();
-
-                    try {
-                        // setting the access modifier to public
-                        field.setAccessible(true);
-
-                        // getting the value of the field
-                        Object columnValue = field.get(object);
-
-                        // inserting the column name and column alue into the column names and values map
-                        map.put(columnName, columnValue);
-
-                    } catch (IllegalAccessException e) {
-                        e.printStackTrace();
-                    }
-                }
-
-            }
+    public Object getJoinColumnValue(ManyToOneMetadata manyToOne, Object object){
+        Object referencedEntity = manyToOne.getAccessor().get(object);
 
+        // lazy reference that hasn't been loaded, its ID is known without loading it
+        if (referencedEntity == null) {
+            return LazyReferences.getPendingId(object, manyToOne.getField());
         }
 
-
-        return map;
+        return getIdValue(referencedEntity);
     }
 
-
     /**
-     * <p>Iterates through a class and all of its superclasses searching for fields that are marked as GeneratedValue.
-     * Once a field marked as GeneratedValue is found, then a lookup is made for Column annotation which contains the column name.</p>
+     * <p>Gets the names of the columns of a class and all of its superclasses that are marked as GeneratedValue.</p>
      * @param clazz Class that needs to be inspected.
      * @return A list of column names that represent GeneratedValue fields.
      */
     public List<String> getGeneratedValuesColumnNames(Class<?> clazz){
-
-        // a list of column names that belong to fields marked as GeneratedValue
-        List<String> generatedValuesColumnNames = new ArrayList<>();
-
-        // putting together superclasses and current class so that we can search for
-        // columnNames in all of the relevant classes
-        List<Class<?>> superClasses = classHelper.getSuperClasses(clazz);
-        List<Class<?>> allClasses = new ArrayList<>();
-
-        allClasses.addAll(superClasses);
-        allClasses.add(clazz);
-
-        for(Class<?> cls : allClasses){
-
-            Field[] clsFields = cls.getDeclaredFields();
-
-            for(Field clsField : clsFields){
-                Annotation[] clsFieldAnnotations = clsField.getDeclaredAnnotations();
-
-                boolean isGeneratedValue = false;
-
-                // checking for generatedValue annotation
-                for(Annotation clsFieldAnnotation : clsFieldAnnotations){
-                    if(clsFieldAnnotation instanceof GeneratedValue){
-                        isGeneratedValue = true;
-                        break;
-                    }
-                }
-
-                // found a GeneratedValue annotation
-                if(isGeneratedValue){
-                    boolean isColumn = false;
-
-                    // searching for Column annotation
-                    for(Annotation clsFieldAnnotation : clsFieldAnnotations){
-                        // found the Column annotation, getting the column name
-                        if(clsFieldAnnotation instanceof Column){
-                            isColumn = true;
-                            Column column = (Column) clsFieldAnnotation;
-
-                            // adding column name to the list of the column names
-                            generatedValuesColumnNames.add(column.name());
-                        }
-                    }
-
-                    // didn't find a column name, field with GeneratedValue wasn't annotated -> big NO NO
-                    if(!isColumn){
-                        try {
-                            throw new ColumnNotFound("Column name for a GeneratedValue could not be found. <<" + clazz.getSimpleName() + ">>");
-                        } catch (ColumnNotFound columnNotFound) {
-                            columnNotFound.printStackTrace();
-                            return null;
-                        }
-                    }
-                }
-            }
-        }
-
-        return generatedValuesColumnNames;
+        return getMetadata(clazz).getGeneratedColumnNames();
     }
 
     public boolean hasOneToMany(Class clazz){
-
-        Field[] classFields = clazz.getDeclaredFields();
-
-        for(Field classField : classFields){
-            Annotation[] fieldAnnotations = classField.getDeclaredAnnotations();
-
-            for(Annotation fieldAnnotation: fieldAnnotations){
-                if(fieldAnnotation instanceof OneToMany){
-                    return true;
-                }
-            }
-        }
-
-
-        return false;
+        return !getMetadata(clazz).getOneToManyAssociations().isEmpty();
     }
 
     public Field getOneToManyField(Class clazz){
-        Field[] classFields = clazz.getDeclaredFields();
+        List<OneToManyMetadata> oneToManyAssociations = getMetadata(clazz).getOneToManyAssociations();
 
-        for(Field classField : classFields){
-            Annotation[] fieldAnnotations = classField.getDeclaredAnnotations();
-
-            for(Annotation fieldAnnotation : fieldAnnotations){
-                if(fieldAnnotation instanceof OneToMany){
-                    return classField;
-                }
-            }
-        }
-
-        return null;
+        return oneToManyAssociations.isEmpty() ? null : oneToManyAssociations.get(0).getField();
     }
 
 
     public String getManyToOneColumnName(Class clazz){
-        String columnName = null;
-
-        Field[] classFields = clazz.getDeclaredFields();
-
-        for(Field classField: classFields){
-            Annotation[] fieldAnnotations = classField.getAnnotations();
-            boolean hasManyToOne = false;
-
-            for(Annotation fieldAnnotation : fieldAnnotations){
-                if(fieldAnnotation instanceof ManyToOne){
-                    hasManyToOne = true;
-                }
-
-                if(fieldAnnotation instanceof JoinColumn){
-                    if(hasManyToOne){
-                        JoinColumn joinColumn = (JoinColumn) fieldAnnotation;
-                        columnName = joinColumn.name();
-
-                        return columnName;
-                    }
-                }
+        for (ManyToOneMetadata manyToOne : getMetadata(clazz).getManyToOneAssociations()) {
+            if (manyToOne.getJoinColumnName() != null) {
+                return manyToOne.getJoinColumnName();
             }
         }
 
-        return columnName;
+        return null;
     }
 
 
     public Field getManyToOneField(Class clazz){
-        Field[] classFields = clazz.getDeclaredFields();
+        List<ManyToOneMetadata> manyToOneAssociations = getMetadata(clazz).getManyToOneAssociations();
 
-        for(Field classField : classFields){
-            Annotation[] fieldAnnotations = classField.getDeclaredAnnotations();
-
-            for(Annotation fieldAnnotation : fieldAnnotations){
-                if(fieldAnnotation instanceof ManyToOne){
-                    return classField;
-
-                }
-            }
-        }
-
-        return null;
+        return manyToOneAssociations.isEmpty() ? null : manyToOneAssociations.get(0).getField();
     }
 }
@@ -0,0 +1,226 @@
+package orm;
+
+import orm.access.EntityInstantiator;
+import orm.access.PropertyAccessor;
+import orm.exceptions.EntityNotFound;
+import orm.lazy.AssociationLoader;
+import orm.lazy.LazyAssociations;
+import orm.metadata.ColumnMetadata;
+import orm.metadata.EntityMetadata;
+import orm.metadata.ManyToOneMetadata;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * <p>Turns the rows of a ResultSet into entities. A hydrator is created once per ResultSet: it resolves the index of every
+ * mapped column from the ResultSet's metadata up front, so that reading a row is only a sequence of typed getters and
+ * accessor writes, without any column name lookups or reflection.</p>
+ * <p>Columns that aren't present in the ResultSet are left untouched (they keep the value given by the constructor).</p>
+ * <p>If the hydrator has an {@link AssociationLoader}, the associations of the entities are loaded lazily: the values of the
+ * join columns are kept as pending references and OneToMany fields get lists that load the children on first access.</p>
+ */
+public class EntityHydrator {
+
+    private final EntityMetadata metadata;
+    private final EntityInstantiator instantiator;
+    private final ColumnMetadata[] columns;
+    private final int[] columnIndexes;
+    private final int idIndex;
+    private final int[] joinColumnIndexes;
+    private final AssociationLoader associationLoader;
+
+    /**
+     * @param metadata Metadata of the entity that the rows are mapped into.
+     * @param resultSetMetaData Metadata of the ResultSet whose rows are mapped.
+     * @throws SQLException If the metadata of the ResultSet couldn't be read.
+     * @throws EntityNotFound If the entity class can't be instantiated (it doesn't have a no-argument constructor).
+     */
+    public EntityHydrator(EntityMetadata metadata, ResultSetMetaData resultSetMetaData) throws SQLException, EntityNotFound {
+        this(metadata, resultSetMetaData, null);
+    }
+
+    /**
+     * @param metadata Metadata of the entity that the rows are mapped into.
+     * @param resultSetMetaData Metadata of the ResultSet whose rows are mapped.
+     * @param associationLoader Loader of the lazy associations (null if the associations are left untouched).
+     * @throws SQLException If the metadata of the ResultSet couldn't be read.
+     * @throws EntityNotFound If the entity class can't be instantiated (it doesn't have a no-argument constructor).
+     */
+    public EntityHydrator(EntityMetadata metadata, ResultSetMetaData resultSetMetaData, AssociationLoader associationLoader) throws SQLException, EntityNotFound {
+        this(metadata, resultSetMetaData, associationLoader, "");
+    }
+
+    /**
+     * @param metadata Metadata of the entity that the rows are mapped into.
+     * @param resultSetMetaData Metadata of the ResultSet whose rows are mapped.
+     * @param associationLoader Loader of the lazy associations (null if the associations are left untouched).
+     * @param labelPrefix Prefix of the labels of the entity's columns, e.g. when the ResultSet contains the columns of several
+     * joined tables (empty if the labels are the column names).
+     * @throws SQLException If the metadata of the ResultSet couldn't be read.
+     * @throws EntityNotFound If the entity class can't be instantiated (it doesn't have a no-argument constructor).
+     */
+    public EntityHydrator(EntityMetadata metadata, ResultSetMetaData resultSetMetaData, AssociationLoader associationLoader,
+                          String labelPrefix) throws SQLException, EntityNotFound {
+        this.metadata = metadata;
+        this.instantiator = metadata.getInstantiator();
+        this.associationLoader = associationLoader;
+
+        if (instantiator == null) {
+            throw new EntityNotFound("Class <" + metadata.getEntityClass().getSimpleName() + "> cannot be loaded because it doesn't have a no-argument constructor.");
+        }
+
+        // labels are matched case insensitively since databases differ in how they fold unquoted identifiers
+        int columnCount = resultSetMetaData.getColumnCount();
+        Map<String, Integer> indexesByLabel = new HashMap<>(columnCount * 2);
+
+        for (int i = columnCount; i >= 1; i--) {
+            indexesByLabel.put(resultSetMetaData.getColumnLabel(i).toUpperCase(Locale.ROOT), i);
+        }
+
+        List<ColumnMetadata> mappedColumns = metadata.getColumns();
+        this.columns = mappedColumns.toArray(new ColumnMetadata[0]);
+        this.columnIndexes = new int[columns.length];
+        String prefix = labelPrefix.toUpperCase(Locale.ROOT);
+        int idIndex = 0;
+
+        for (int i = 0; i < columns.length; i++) {
+            Integer index = indexesByLabel.get(prefix + columns[i].getColumnName().toUpperCase(Locale.ROOT));
+            columnIndexes[i] = index != null ? index : 0;
+
+            if (columns[i].isId()) {
+                idIndex = columnIndexes[i];
+            }
+        }
+
+        this.idIndex = idIndex;
+
+        List<ManyToOneMetadata> manyToOneAssociations = metadata.getManyToOneAssociations();
+        this.joinColumnIndexes = new int[manyToOneAssociations.size()];
+
+        for (int i = 0; i < joinColumnIndexes.length; i++) {
+            String joinColumnName = manyToOneAssociations.get(i).getJoinColumnName();
+            Integer index = joinColumnName != null ? indexesByLabel.get(prefix + joinColumnName.toUpperCase(Locale.ROOT)) : null;
+            joinColumnIndexes[i] = index != null ? index : 0;
+        }
+    }
+
+    public EntityMetadata getMetadata() {
+        return metadata;
+    }
+
+    /**
+     * Checks whether the row the ResultSet is currently positioned on contains an entity, i.e. its ID isn't null. The ID is
+     * null in the rows of an outer join that didn't match any row of the entity's table.
+     * @param resultSet ResultSet positioned on a row.
+     * @return <b>true</b> if the row contains an entity (always <b>true</b> if the ID column isn't selected).
+     * @throws SQLException If the ID couldn't be read.
+     */
+    public boolean hasEntity(ResultSet resultSet) throws SQLException {
+        return idIndex == 0 || resultSet.getObject(idIndex) != null;
+    }
+
+    /**
+     * Creates an entity out of the row the ResultSet is currently positioned on.
+     * @param resultSet ResultSet positioned on a row.
+     * @return A new entity that holds the values of the row.
+     * @throws SQLException If a value couldn't be read.
+     */
+    public Object hydrate(ResultSet resultSet) throws SQLException {
+        Object entity = instantiator.newInstance();
+
+        for (int i = 0; i < columns.length; i++) {
+            int index = columnIndexes[i];
+
+            // column wasn't selected
+            if (index == 0) {
+                continue;
+            }
+
+            ColumnMetadata column = columns[i];
+            PropertyAccessor accessor = column.getAccessor();
+            Class<?> type = column.getType();
+
+            // int columns (typically IDs) are written without boxing
+            if (type == int.class) {
+                accessor.setInt(entity, resultSet.getInt(index));
+                continue;
+            }
+
+            Object value = readValue(resultSet, index, type);
+
+            // primitives can't hold a null, leaving the default value
+            if (value == null && type.isPrimitive()) {
+                continue;
+            }
+
+            accessor.set(entity, value);
+        }
+
+        if (associationLoader != null) {
+            Object[] foreignKeys = new Object[joinColumnIndexes.length];
+
+            for (int i = 0; i < joinColumnIndexes.length; i++) {
+                if (joinColumnIndexes[i] != 0) {
+                    foreignKeys[i] = resultSet.getObject(joinColumnIndexes[i]);
+                }
+            }
+
+            LazyAssociations.initialize(metadata, entity, foreignKeys, associationLoader);
+        }
+
+        return entity;
+    }
+
+    /**
+     * Reads a column value with the getter that matches the type of the field.
+     * @param resultSet ResultSet positioned on a row.
+     * @param index Index of the column.
+     * @param type Type of the field that the value is written into.
+     * @return Value of the column, null if it's SQL NULL.
+     * @throws SQLException If the value couldn't be read.
+     */
+    private Object readValue(ResultSet resultSet, int index, Class<?> type) throws SQLException {
+        if (type == String.class) {
+            return resultSet.getString(index);
+        }
+
+        Object value;
+
+        if (type == long.class || type == Long.class) {
+            value = resultSet.getLong(index);
+        } else if (type == Integer.class) {
+            value = resultSet.getInt(index);
+        } else if (type == double.class || type == Double.class) {
+            value = resultSet.getDouble(index);
+        } else if (type == float.class || type == Float.class) {
+            value = resultSet.getFloat(index);
+        } else if (type == boolean.class || type == Boolean.class) {
+            value = resultSet.getBoolean(index);
+        } else if (type == short.class || type == Short.class) {
+            value = resultSet.getShort(index);
+        } else if (type == byte.class || type == Byte.class) {
+            value = resultSet.getByte(index);
+        } else if (type == BigDecimal.class) {
+            value = resultSet.getBigDecimal(index);
+        } else if (type == UUID.class) {
+            value = resultSet.getObject(index);
+
+            // databases without a UUID type return it as a string
+            if (value != null && !(value instanceof UUID)) {
+                value = UUID.fromString(value.toString());
+            }
+        } else {
+            value = resultSet.getObject(index);
+        }
+
+        return resultSet.wasNull() ? null : value;
+    }
+}
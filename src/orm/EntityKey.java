@@ -0,0 +1,66 @@
+package orm;
+
+/**
+ * <p>Identifies a row of a table by the entity class it is mapped to and the value of its ID. Integral IDs are compared by
+ * their value, so loading an entity with an Integer and with a Long ID finds the same row.</p>
+ */
+public class EntityKey {
+
+    private final Class<?> entityClass;
+    private final Object id;
+    private final int hashCode;
+
+    /**
+     * @param entityClass Entity class the row is mapped to.
+     * @param id Value of the row's ID, must not be null.
+     */
+    public EntityKey(Class<?> entityClass, Object id) {
+        this.entityClass = entityClass;
+        this.id = normalize(id);
+        this.hashCode = 31 * entityClass.hashCode() + this.id.hashCode();
+    }
+
+    public Class<?> getEntityClass() {
+        return entityClass;
+    }
+
+    public Object getId() {
+        return id;
+    }
+
+    /**
+     * Widens integral IDs to Long, so that an int field and a Long argument produce equal keys.
+     */
+    private static Object normalize(Object id) {
+        if (id instanceof Integer || id instanceof Short || id instanceof Byte) {
+            return ((Number) id).longValue();
+        }
+
+        return id;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if(this == obj)
+            return true;
+
+        if(obj == null || this.getClass() != obj.getClass())
+            return false;
+
+        EntityKey other = (EntityKey) obj;
+
+        return hashCode == other.hashCode
+                && entityClass == other.entityClass
+                && id.equals(other.id);
+    }
+
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+
+    @Override
+    public String toString() {
+        return entityClass.getSimpleName() + "#" + id;
+    }
+}
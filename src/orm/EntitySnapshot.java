@@ -0,0 +1,131 @@
+package orm;
+
+import orm.metadata.ColumnMetadata;
+import orm.metadata.EntityMetadata;
+import orm.metadata.ManyToOneMetadata;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * <p>Copy of the column values of a managed entity as they were when the entity was loaded, persisted or last updated.
+ * Comparing the entity with its snapshot tells which columns have to be written by an UPDATE.</p>
+ * <p>Join columns of ManyToOne associations are kept as the IDs of the referenced entities, so pointing a reference at
+ * another entity makes its join column dirty, while loading a lazy reference doesn't.</p>
+ * <p>Values of int columns are kept in an int array so that neither taking a snapshot nor comparing against it boxes them.
+ * Mutable values (byte arrays and dates) are copied, so that changes made to them in place are detected as well.</p>
+ */
+public class EntitySnapshot {
+
+    private final int[] intValues;
+    private final Object[] values;
+    private final Object[] joinColumnValues;
+
+    private EntitySnapshot(int[] intValues, Object[] values, Object[] joinColumnValues) {
+        this.intValues = intValues;
+        this.values = values;
+        this.joinColumnValues = joinColumnValues;
+    }
+
+    /**
+     * Takes a snapshot of the current column values of an entity.
+     * @param metadata Metadata of the entity's class.
+     * @param entity Entity whose values are copied.
+     * @param joinColumnValues Values of the entity's join columns (see {@link EntityHelper#getJoinColumnValues}).
+     * @return The snapshot.
+     */
+    public static EntitySnapshot take(EntityMetadata metadata, Object entity, Object[] joinColumnValues) {
+        List<ColumnMetadata> columns = metadata.getColumns();
+        int[] intValues = new int[columns.size()];
+        Object[] values = new Object[columns.size()];
+
+        for (int i = 0; i < columns.size(); i++) {
+            ColumnMetadata column = columns.get(i);
+
+            if (column.getType() == int.class) {
+                intValues[i] = column.getAccessor().getInt(entity);
+            } else {
+                values[i] = copy(column.getAccessor().get(entity));
+            }
+        }
+
+        return new EntitySnapshot(intValues, values, joinColumnValues);
+    }
+
+    /**
+     * Finds the columns whose values differ from the snapshot. The ID column is never considered dirty.
+     * @param metadata Metadata of the entity's class.
+     * @param entity Entity that is compared with the snapshot.
+     * @return Modified columns in column order, empty if the entity is clean.
+     */
+    public List<ColumnMetadata> findDirtyColumns(EntityMetadata metadata, Object entity) {
+        List<ColumnMetadata> columns = metadata.getColumns();
+        List<ColumnMetadata> dirtyColumns = new ArrayList<>();
+
+        for (int i = 0; i < columns.size(); i++) {
+            ColumnMetadata column = columns.get(i);
+
+            if (column.isId()) {
+                continue;
+            }
+
+            boolean dirty;
+
+            if (column.getType() == int.class) {
+                dirty = column.getAccessor().getInt(entity) != intValues[i];
+            } else {
+                dirty = !isEqual(values[i], column.getAccessor().get(entity));
+            }
+
+            if (dirty) {
+                dirtyColumns.add(column);
+            }
+        }
+
+        return dirtyColumns;
+    }
+
+    /**
+     * Finds the ManyToOne associations whose join column values differ from the snapshot.
+     * @param metadata Metadata of the entity's class.
+     * @param joinColumnValues Current values of the entity's join columns (see {@link EntityHelper#getJoinColumnValues}).
+     * @return Associations with modified join columns in association order, empty if none of them has been modified.
+     */
+    public List<ManyToOneMetadata> findDirtyJoinColumns(EntityMetadata metadata, Object[] joinColumnValues) {
+        List<ManyToOneMetadata> manyToOneAssociations = metadata.getManyToOneAssociations();
+        List<ManyToOneMetadata> dirtyJoinColumns = new ArrayList<>();
+
+        for (int i = 0; i < joinColumnValues.length; i++) {
+            ManyToOneMetadata manyToOne = manyToOneAssociations.get(i);
+
+            if (manyToOne.getJoinColumnName() != null && !Objects.equals(this.joinColumnValues[i], joinColumnValues[i])) {
+                dirtyJoinColumns.add(manyToOne);
+            }
+        }
+
+        return dirtyJoinColumns;
+    }
+
+    private static Object copy(Object value) {
+        if (value instanceof byte[]) {
+            return ((byte[]) value).clone();
+        }
+
+        if (value instanceof Date) {
+            return ((Date) value).clone();
+        }
+
+        return value;
+    }
+
+    private static boolean isEqual(Object snapshotValue, Object value) {
+        if (snapshotValue instanceof byte[] && value instanceof byte[]) {
+            return Arrays.equals((byte[]) snapshotValue, (byte[]) value);
+        }
+
+        return Objects.equals(snapshotValue, value);
+    }
+}
@@ -0,0 +1,43 @@
+package orm;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * <p>Associations of an entity that are loaded together with the entity, see {@link ORM#load(Class, FetchPlan, Object...)}.
+ * Every fetched association is joined to the entity's table with a LEFT JOIN, so the entity and its associated entities
+ * are read in a single round trip instead of one query per association.</p>
+ * <b>fetchedFields</b> - names of the OneToMany and ManyToOne fields of the entity that are fetched.
+ * <br>
+ * <p>Fetching more than one OneToMany association multiplies the number of rows the query returns (every child of one
+ * association is paired with every child of the other), so it is usually better to fetch a single list.</p>
+ */
+public class FetchPlan {
+
+    private final List<String> fetchedFields;
+
+    /**
+     * @param fetchedFields Names of the association fields that are fetched.
+     */
+    public FetchPlan(String... fetchedFields) {
+        this.fetchedFields = Collections.unmodifiableList(new ArrayList<>(Arrays.asList(fetchedFields)));
+    }
+
+    public List<String> getFetchedFields() {
+        return fetchedFields;
+    }
+
+    /**
+     * @return <b>true</b> if the plan doesn't fetch any association.
+     */
+    public boolean isEmpty() {
+        return fetchedFields.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return "FetchPlan" + fetchedFields;
+    }
+}
@@ -1,84 +1,207 @@
 package orm;
 
 
+import orm.cache.CacheRegion;
+import orm.cache.QueryCache;
+import orm.cache.QueryKey;
+import orm.cache.SecondLevelCache;
+import orm.exceptions.AssociationNotFound;
 import orm.exceptions.EntityNotFound;
 import orm.exceptions.IDNotFound;
 import orm.exceptions.NoColumnsFound;
-
-import java.lang.annotation.Annotation;
-import java.lang.reflect.Field;
-import java.lang.reflect.ParameterizedType;
-import java.lang.reflect.Type;
-import java.sql.ResultSet;
+import orm.id.IdGenerators;
+import orm.lazy.AssociationLoader;
+import orm.lazy.LazyList;
+import orm.lazy.LazyReference;
+import orm.lazy.LazyReferences;
+import orm.pool.ConnectionPool;
+
+import orm.metadata.ColumnMetadata;
+import orm.metadata.EntityMetadata;
+import orm.metadata.ManyToOneMetadata;
+import orm.metadata.OneToManyMetadata;
+import orm.metrics.Metrics;
+import orm.metrics.MetricsCollector;
+import orm.metrics.OrmOperation;
+
+import javax.sql.DataSource;
+import java.lang.ref.WeakReference;
 import java.util.*;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 /**
  * Represents an Object Relation Mapper that maps certain objects into database tables. It can persist/load/update/delete
  * entities from the database.
+ * <p>An ORM is a session: its persistence context, unit of work and pending lazy associations belong to a single thread
+ * at a time. Servers should create one {@link ORMFactory} and open a short-lived session per request or task, the sessions
+ * of a factory share the metadata, statement templates, connection pool, ID generators and caches.</p>
  */
-public class ORM {
+public class ORM implements AutoCloseable {
 
     private QueryFormer queryFormer;
     private EntityHelper entityHelper;
-    private ClassHelper classHelper;
     private DatabaseConnector databaseConnector;
 
+    /**
+     * Number of rows inserted with a single JDBC batch when the size isn't specified.
+     */
+    public static final int DEFAULT_BATCH_SIZE = 50;
+
+    private int batchSize = DEFAULT_BATCH_SIZE;
+
+    private UnitOfWork unitOfWork;
+    private IdGenerators idGenerators;
+    private PersistenceContext persistenceContext = new PersistenceContext();
+    private SecondLevelCache secondLevelCache = SecondLevelCache.getInstance();
+    private QueryCache queryCache = QueryCache.getInstance();
+    private final SessionAssociationLoader associationLoader = new SessionAssociationLoader();
+    private final CursorAssociationLoader cursorAssociationLoader = new CursorAssociationLoader();
+
+    /**
+     * Creates an ORM that isn't connected to a database. Statements are only logged (at FINE level of the orm.sql logger).
+     */
     public ORM(){
         queryFormer = new QueryFormer();
         entityHelper = new EntityHelper();
-        classHelper = new ClassHelper();
         databaseConnector = new DatabaseConnector();
+        unitOfWork = new UnitOfWork(entityHelper);
+        idGenerators = new IdGenerators(null);
+    }
+
+    /**
+     * Creates an ORM that executes statements against a database.
+     *
+     * @param dataSource DataSource from which the database connection is obtained.
+     */
+    public ORM(DataSource dataSource){
+        queryFormer = new QueryFormer();
+        entityHelper = new EntityHelper();
+        databaseConnector = new DatabaseConnector(dataSource);
+        unitOfWork = new UnitOfWork(entityHelper);
+        idGenerators = new IdGenerators(dataSource);
+    }
+
+    /**
+     * Creates an ORM that borrows its database connections from a pool, which can be shared by many ORM instances.
+     *
+     * @param connectionPool Pool from which the connections are borrowed.
+     */
+    public ORM(ConnectionPool connectionPool){
+        queryFormer = new QueryFormer();
+        entityHelper = new EntityHelper();
+        databaseConnector = new DatabaseConnector(connectionPool);
+        unitOfWork = new UnitOfWork(entityHelper);
+        idGenerators = new IdGenerators(connectionPool.getDataSource());
+    }
+
+    /**
+     * Creates a session of a factory, everything except the session's own state is shared with the factory.
+     *
+     * @param queryFormer       Shared statement templates.
+     * @param entityHelper      Shared entity helper (backed by the metadata registry).
+     * @param databaseConnector Shared connector, closing the session doesn't close its pool.
+     * @param idGenerators      Shared ID generators.
+     * @param batchSize         Number of rows per JDBC batch.
+     */
+    ORM(QueryFormer queryFormer, EntityHelper entityHelper, DatabaseConnector databaseConnector, IdGenerators idGenerators, int batchSize){
+        this.queryFormer = queryFormer;
+        this.entityHelper = entityHelper;
+        this.databaseConnector = databaseConnector;
+        this.unitOfWork = new UnitOfWork(entityHelper);
+        this.idGenerators = idGenerators;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Sets the number of rows that are sent to the database in a single JDBC batch (e.g. children of a OneToMany association).
+     *
+     * @param batchSize Number of rows per batch, must be positive.
+     */
+    public void setBatchSize(int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be positive.");
+        }
+
+        this.batchSize = batchSize;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
     }
 
     /**
      * Inserts an entity into the database.
      *
      * @param object Entity that needs to be inserted.
+     * @return <b>true</b> if the entity (and its children) have been inserted.
      */
-    public void persist(Object object) {
+    public boolean persist(Object object) {
+        if (!Metrics.isEnabled()) {
+            return persistEntity(object);
+        }
+
+        return measure(object.getClass(), OrmOperation.PERSIST, () -> persistEntity(object));
+    }
+
+    private boolean persistEntity(Object object) {
 
 
         // getting class object that represents object's class
         Class<?> clazz = object.getClass();
 
+        // mapping model of the class, scanned only once per class
+        EntityMetadata metadata = entityHelper.getMetadata(clazz);
+
         // quitting if passed object isn't an entity
-        if (!entityHelper.isEntity(object)) {
+        if (!metadata.isEntity()) {
             try {
                 throw new EntityNotFound("Object of the class <" + clazz.getSimpleName() + "> cannot be persisted because it isn't an Entity.");
             } catch (EntityNotFound entityNotFound) {
                 entityNotFound.printStackTrace();
-                return;
+                return false;
             }
         }
 
-        // trying to find field annotated with ID (entities without an ID annotation cannot be mapped)
-        Field idField = entityHelper.findIdField(clazz);
+        // entities without an ID annotation cannot be mapped
+        ColumnMetadata idColumn = metadata.getIdColumn();
 
-        if(idField == null){
+        if(idColumn == null){
             try {
                 throw new IDNotFound("Couldn't find the primary column field.");
             } catch (IDNotFound idNotFound) {
                 idNotFound.printStackTrace();
-                return;
+                return false;
             }
         }
 
-        // represents name of the table to which the entity is mapped
-        String tableName = entityHelper.findTableName(clazz);
-
-        // list of super classes
-        List<Class<?>> superClasses = classHelper.getSuperClasses(clazz);
+        // assigning IDs that don't depend on the database (SEQUENCE, HILO, TABLE, UUID) to the entity and its children
+        // before any SQL is sent, so that the children's join columns are known up front
+        if(!assignGeneratedValues(object)){
+            return false;
+        }
 
-        // list of all the classes ( superclasses + object's class)
-        List<Class<?>> allClasses = new ArrayList<>();
+        for(OneToManyMetadata oneToMany : metadata.getOneToManyAssociations()) {
+            List children = (List) oneToMany.getAccessor().get(object);
 
-        allClasses.addAll(superClasses);
-        allClasses.add(clazz);
+            if(children != null){
+                for(Object child : children){
+                    if(!assignGeneratedValues(child)){
+                        return false;
+                    }
+                }
+            }
+        }
 
+        // represents name of the table to which the entity is mapped
+        String tableName = metadata.getTableName();
 
         // getting column names and values as a map
-        Map<String, Object> columnNamesAndValues = entityHelper.getColumnNamesAndValuesForClasses(allClasses, object);
+        Map<String, Object> columnNamesAndValues = entityHelper.getColumnNamesAndValues(clazz, object);
 
+        if(columnNamesAndValues == null){
+            return false;
+        }
 
         // throws an exception if there are no columns other than GeneratedValue
         if(columnNamesAndValues.keySet().size() == 0){
@@ -86,195 +209,1763 @@ public class ORM {
                 throw new NoColumnsFound("There must be at least one column not being a GeneratedValue.");
             } catch (NoColumnsFound noColumnsFound) {
                 noColumnsFound.printStackTrace();
-                return;
+                return false;
             }
         }
 
-        // forming a query out of the map
-        String query = queryFormer.formInsertQuery(tableName, columnNamesAndValues);
+        // foreign keys of the ManyToOne associations, null for the references that aren't persisted
+        columnNamesAndValues.putAll(entityHelper.getJoinColumnNamesAndValues(clazz, object));
 
+        // the inserted columns are always the same for a class, so the query is formed and prepared only once
+        List<String> columnNames = new ArrayList<>(columnNamesAndValues.keySet());
+        List<Object> columnValues = new ArrayList<>(columnNamesAndValues.values());
 
-        // getting all GeneratedValue column names so that we can request their value after object's persistance
-        List<String> generatedValuesColumnNames = entityHelper.getGeneratedValuesColumnNames(clazz);
+        StatementKey insertKey = new StatementKey(clazz, StatementKey.Operation.INSERT, columnNames);
+        String query = queryFormer.getInsertQuery(insertKey, tableName);
 
+        // the database returns the generated values (typically the ID) of the inserted row
+        List<ColumnMetadata> generatedColumns = metadata.getGeneratedColumns();
 
-        // found column names for generated values
-        if(generatedValuesColumnNames != null && generatedValuesColumnNames.size() != 0){
-            // making a select query and appending it to the insert query
-            query = query + " " + queryFormer.formSelectQuery(tableName, generatedValuesColumnNames, columnNamesAndValues);
-        }
+        Object[] generatedValues = databaseConnector.executeInsert(insertKey, query, columnValues, metadata.getGeneratedColumnNames());
 
+        if(generatedValues == null){
+            return false;
+        }
 
-        List<Object> results= databaseConnector.executeQuery(clazz, query);
+        // writing the generated values back into the entity
+        for(int i = 0; i < generatedValues.length && i < generatedColumns.size(); i++){
+            setColumnValue(generatedColumns.get(i), object, generatedValues[i]);
+        }
 
+        manage(metadata, object, getBoundJoinColumnValues(metadata, columnNamesAndValues));
+        queryCache.invalidate(tableName);
 
-        // check for oneToMany
-        Field oneToManyField = entityHelper.getOneToManyField(clazz);
 
-        if(oneToManyField != null) {
+        // persisting the children of every oneToMany association
+        for(OneToManyMetadata oneToMany : metadata.getOneToManyAssociations()) {
 
-            // getting the generic type of oneToManyField - typically a List
-            Type genericType = oneToManyField.getGenericType();
-            List objectList = null;
-            Class listClassType = null;
+            Class<?> listClassType = oneToMany.getElementType();
 
             // getting the objects contained in the list
-            try {
-                oneToManyField.setAccessible(true);
-                // getting
-                objectList = (List)oneToManyField.get(object);
+            List objectList = (List)oneToMany.getAccessor().get(object);
 
-            } catch (IllegalAccessException e) {
-                e.printStackTrace();
+            if(objectList == null || objectList.isEmpty() || listClassType == null){
+                continue;
             }
 
+            EntityMetadata childMetadata = entityHelper.getMetadata(listClassType);
 
-            // if generic type is parameterized
-            if(genericType instanceof ParameterizedType) {
+            // the field in the child entity that references the owner
+            ManyToOneMetadata manyToOne = childMetadata.findManyToOne(oneToMany.getMappedBy());
 
-                ParameterizedType parameterizedType = (ParameterizedType) genericType;
-                // Getting the parameterized type T type of List<T>
-                Type type = parameterizedType.getActualTypeArguments()[0];
+            if(manyToOne == null){
+                continue;
+            }
 
-                try {
-                    listClassType = Class.forName(type.getTypeName());
-                } catch (ClassNotFoundException e) {
-                    e.printStackTrace();
+            // setting manyToOne field to reference the object
+            for(Object o : objectList){
+                manyToOne.getAccessor().set(o, object);
+            }
+
+            String joinColumnName = manyToOne.getJoinColumnName();
+
+            Object primaryFieldValue = idColumn.getAccessor().get(object);
+
+            String childTableName = childMetadata.getTableName();
+
+            // collecting the values of every child so that they can be inserted as a batch
+            List<String> childColumnNames = null;
+            List<List<Object>> parameterRows = new ArrayList<>(objectList.size());
+            List<Object[]> childJoinColumnValues = new ArrayList<>(objectList.size());
+
+            for(Object o : objectList){
+                columnNamesAndValues = entityHelper.getColumnNamesAndValues(listClassType, o);
+
+                if(columnNamesAndValues == null){
+                    return false;
                 }
 
+                // children are inserted with their own columns followed by their join columns, the one referencing
+                // the owner included
+                columnNamesAndValues.putAll(entityHelper.getJoinColumnNamesAndValues(listClassType, o));
+                columnNamesAndValues.put(joinColumnName, primaryFieldValue);
+
+                if(childColumnNames == null){
+                    childColumnNames = new ArrayList<>(columnNamesAndValues.keySet());
+                }
 
+                parameterRows.add(new ArrayList<>(columnNamesAndValues.values()));
+                childJoinColumnValues.add(getBoundJoinColumnValues(childMetadata, columnNamesAndValues));
             }
 
+            StatementKey childInsertKey = new StatementKey(listClassType, StatementKey.Operation.INSERT, childColumnNames);
+            String childQuery = queryFormer.getInsertQuery(childInsertKey, childTableName);
 
-            // setting manyToOne field to reference the object
-            Field manyToOneField = entityHelper.getManyToOneField(listClassType);
+            List<ColumnMetadata> childGeneratedColumns = childMetadata.getGeneratedColumns();
 
-            for(Object o : objectList){
-                manyToOneField.setAccessible(true);
+            List<Object[]> childGeneratedValues = databaseConnector.executeBatch(childInsertKey, childQuery, parameterRows,
+                    childMetadata.getGeneratedColumnNames(), batchSize);
+
+            if(childGeneratedValues == null){
+                return false;
+            }
+
+            // writing the generated values (typically IDs) back into the children
+            for(int i = 0; i < childGeneratedValues.size(); i++){
+                Object[] row = childGeneratedValues.get(i);
+
+                for(int j = 0; j < childGeneratedColumns.size(); j++){
+                    setColumnValue(childGeneratedColumns.get(j), objectList.get(i), row[j]);
+                }
+            }
+
+            for(int i = 0; i < objectList.size(); i++){
+                manage(childMetadata, objectList.get(i), childJoinColumnValues.get(i));
+            }
+
+            queryCache.invalidate(childTableName);
+
+        }
+
+        return true;
+    }
+
+    /**
+     * <p>Inserts a collection of entities (together with the children of their OneToMany associations) into the database.
+     * The entities are registered in the unit of work and flushed right away.</p>
+     *
+     * @param objects Entities that need to be inserted.
+     * @return <b>true</b> if all the entities have been inserted, <b>false</b> if none of them has been.
+     */
+    public boolean persistAll(Collection<?> objects) {
+        if (!Metrics.isEnabled()) {
+            return persistEntities(objects);
+        }
+
+        return measure(getMeasuredClass(objects), OrmOperation.PERSIST, () -> persistEntities(objects));
+    }
+
+    private boolean persistEntities(Collection<?> objects) {
+        for (Object object : objects) {
+            Class<?> clazz = object.getClass();
+
+            // quitting if any of the objects isn't an entity, nothing has been written yet
+            if (!entityHelper.getMetadata(clazz).isEntity()) {
                 try {
-                    manyToOneField.set(o, object);
-                } catch (IllegalAccessException e) {
-                    e.printStackTrace();
+                    throw new EntityNotFound("Object of the class <" + clazz.getSimpleName() + "> cannot be persisted because it isn't an Entity.");
+                } catch (EntityNotFound entityNotFound) {
+                    entityNotFound.printStackTrace();
+                    unitOfWork.clear();
+                    return false;
                 }
             }
 
-            String joinColumnName = entityHelper.getManyToOneColumnName(listClassType);
+            unitOfWork.registerNew(object);
+        }
 
+        return flush();
+    }
 
+    /**
+     * <p>Writes all the entities pending in the unit of work inside a single transaction. Entities are grouped by class and
+     * every group is written with batched statements, referenced entities first, so that the generated IDs of the parents
+     * are known by the time their children are inserted. If any of the groups fails, the whole transaction is rolled back.</p>
+     * <p>The entities become managed only once the transaction is committed. If it's rolled back, the generated values
+     * that have been assigned to the entities are cleared again, so that none of them looks persisted.</p>
+     *
+     * @return <b>true</b> if the transaction has been committed (or there was nothing to write).
+     */
+    public boolean flush() {
+        if (unitOfWork.isEmpty()) {
+            return true;
+        }
 
+        Map<Class<?>, List<Object>> groups = unitOfWork.getOrderedGroups();
+        unitOfWork.clear();
 
-            Field primaryField = entityHelper.findIdField(clazz);
+        // generated columns that don't have a value yet, they are cleared again if the transaction fails
+        Map<Object, List<ColumnMetadata>> unassignedColumns = new IdentityHashMap<>();
 
-            primaryField.setAccessible(true);
-            Object primaryFieldValue = null;
+        // pre-assigned IDs are reserved before the transaction starts
+        for (List<Object> group : groups.values()) {
+            for (Object object : group) {
+                unassignedColumns.put(object, getUnassignedGeneratedColumns(object));
 
-            try {
-                primaryFieldValue = primaryField.get(object);
-            } catch (IllegalAccessException e) {
-                e.printStackTrace();
+                if (!assignGeneratedValues(object)) {
+                    clearGeneratedValues(unassignedColumns);
+                    return false;
+                }
             }
+        }
 
-            tableName = entityHelper.findTableName(listClassType);
+        if (!databaseConnector.beginTransaction()) {
+            clearGeneratedValues(unassignedColumns);
+            return false;
+        }
 
-            superClasses = classHelper.getSuperClasses(listClassType);
+        // join column values that have been inserted for every entity, its snapshot is taken after the commit
+        Map<Object, Object[]> insertedJoinColumnValues = new IdentityHashMap<>();
 
-            allClasses = new ArrayList<>();
+        for (Map.Entry<Class<?>, List<Object>> group : groups.entrySet()) {
+            if (!insertGroup(group.getKey(), group.getValue(), insertedJoinColumnValues)) {
+                databaseConnector.rollback();
+                clearGeneratedValues(unassignedColumns);
+                return false;
+            }
+        }
 
-            allClasses.addAll(superClasses);
-            allClasses.add(listClassType);
+        if (!databaseConnector.commit()) {
+            clearGeneratedValues(unassignedColumns);
+            return false;
+        }
 
+        // rows of a rolled back transaction must never be found in the persistence context, so the entities are only
+        // managed now
+        for (Map.Entry<Object, Object[]> inserted : insertedJoinColumnValues.entrySet()) {
+            Object object = inserted.getKey();
+            manage(entityHelper.getMetadata(object.getClass()), object, inserted.getValue());
+        }
 
-            for(Object o : objectList){
-                columnNamesAndValues = entityHelper.getColumnNamesAndValuesForClasses(allClasses, o);
-                columnNamesAndValues.put(joinColumnName, primaryFieldValue);
+        // cached results are invalidated only once the rows are visible, a query that runs before the commit would
+        // otherwise cache the old rows as current ones
+        for (Class<?> clazz : groups.keySet()) {
+            queryCache.invalidate(entityHelper.getMetadata(clazz).getTableName());
+        }
 
+        return true;
+    }
 
-                // throws an exception if there are no columns other than GeneratedValue
-                if(columnNamesAndValues.keySet().size() == 0){
-                    try {
-                        throw new NoColumnsFound("There must be at least one column not being a GeneratedValue.");
-                    } catch (NoColumnsFound noColumnsFound) {
-                        noColumnsFound.printStackTrace();
-                        return;
-                    }
-                }
+    /**
+     * Inserts entities of the same class with a batched statement and writes their generated values back. The generated
+     * values are needed by the groups that reference these entities, so they are written back before the transaction is
+     * committed.
+     *
+     * @param clazz            Class of the entities.
+     * @param objects          Entities that need to be inserted.
+     * @param joinColumnValues Map to which the join column values inserted for every entity are added.
+     * @return <b>true</b> if the entities have been inserted.
+     */
+    private boolean insertGroup(Class<?> clazz, List<Object> objects, Map<Object, Object[]> joinColumnValues) {
+        EntityMetadata metadata = entityHelper.getMetadata(clazz);
+
+        if (metadata.getIdColumn() == null) {
+            try {
+                throw new IDNotFound("Couldn't find the primary column field.");
+            } catch (IDNotFound idNotFound) {
+                idNotFound.printStackTrace();
+                return false;
+            }
+        }
+
+        List<String> columnNames = null;
+        List<List<Object>> parameterRows = new ArrayList<>(objects.size());
+
+        for (Object object : objects) {
+            Map<String, Object> columnNamesAndValues = entityHelper.getColumnNamesAndValues(clazz, object);
 
-                query = queryFormer.formInsertQuery(tableName, columnNamesAndValues);
+            if (columnNamesAndValues == null) {
+                return false;
+            }
+
+            // foreign keys, the referenced entities have already been inserted
+            columnNamesAndValues.putAll(entityHelper.getJoinColumnNamesAndValues(clazz, object));
+
+            if (columnNames == null) {
+                columnNames = new ArrayList<>(columnNamesAndValues.keySet());
+            }
 
-                databaseConnector.executeQuery(listClassType, query);
+            parameterRows.add(new ArrayList<>(columnNamesAndValues.values()));
+            joinColumnValues.put(object, getBoundJoinColumnValues(metadata, columnNamesAndValues));
+        }
+
+        // throws an exception if there are no columns other than GeneratedValue
+        if (columnNames.size() == 0) {
+            try {
+                throw new NoColumnsFound("There must be at least one column not being a GeneratedValue.");
+            } catch (NoColumnsFound noColumnsFound) {
+                noColumnsFound.printStackTrace();
+                return false;
             }
+        }
+
+        StatementKey insertKey = new StatementKey(clazz, StatementKey.Operation.INSERT, columnNames);
+        String query = queryFormer.getInsertQuery(insertKey, metadata.getTableName());
+
+        List<Object[]> generatedValues = databaseConnector.executeBatch(insertKey, query, parameterRows,
+                metadata.getGeneratedColumnNames(), batchSize);
+
+        if (generatedValues == null) {
+            return false;
+        }
 
+        List<ColumnMetadata> generatedColumns = metadata.getGeneratedColumns();
+
+        for (int i = 0; i < generatedValues.size(); i++) {
+            for (int j = 0; j < generatedColumns.size(); j++) {
+                setColumnValue(generatedColumns.get(j), objects.get(i), generatedValues.get(i)[j]);
+            }
         }
+
+        return true;
     }
 
     /**
-     * Updates a database entity.
+     * <p>Updates a database entity. An entity that has been loaded or persisted by this ORM is compared with the snapshot of
+     * its values and only the modified columns are written. If nothing has been modified, no statement is executed at all.</p>
+     * <p>An entity that isn't managed by this ORM has all of its columns written and becomes managed.</p>
      *
      * @param object Entity that needs to be updated.
      */
     public void update(Object object) {
+        if (!Metrics.isEnabled()) {
+            updateEntity(object);
+            return;
+        }
+
+        measure(object.getClass(), OrmOperation.UPDATE, () -> updateEntity(object));
+    }
+
+    private void updateEntity(Object object) {
         Class<?> clazz = object.getClass();
-        Annotation[] annotations = clazz.getAnnotations();
+        EntityMetadata metadata = entityHelper.getMetadata(clazz);
+
+        if (!metadata.isEntity()) {
+            try {
+                throw new EntityNotFound("Object of the class <" + clazz.getSimpleName() + "> cannot be updated because it isn't an Entity.");
+            } catch (EntityNotFound entityNotFound) {
+                entityNotFound.printStackTrace();
+                return;
+            }
+        }
+
+        ColumnMetadata idColumn = metadata.getIdColumn();
+
+        if (idColumn == null || !isAssigned(idColumn, object)) {
+            try {
+                throw new IDNotFound("Object of the class <" + clazz.getSimpleName() + "> cannot be updated because it doesn't have an ID value.");
+            } catch (IDNotFound idNotFound) {
+                idNotFound.printStackTrace();
+                return;
+            }
+        }
+
+        EntitySnapshot snapshot = persistenceContext.getSnapshot(object);
+        Object[] joinColumnValues = entityHelper.getJoinColumnValues(metadata, object);
+        List<ColumnMetadata> dirtyColumns;
+        List<ManyToOneMetadata> dirtyJoinColumns;
+
+        if (snapshot != null) {
+            dirtyColumns = snapshot.findDirtyColumns(metadata, object);
+            dirtyJoinColumns = snapshot.findDirtyJoinColumns(metadata, joinColumnValues);
+        } else {
+            // detached entity, there is nothing to compare with
+            dirtyColumns = new ArrayList<>(metadata.getColumns());
+            dirtyColumns.remove(idColumn);
+            dirtyJoinColumns = new ArrayList<>();
+
+            for (ManyToOneMetadata manyToOne : metadata.getManyToOneAssociations()) {
+                if (manyToOne.getJoinColumnName() != null) {
+                    dirtyJoinColumns.add(manyToOne);
+                }
+            }
+        }
+
+        // clean entity, nothing to write
+        if (dirtyColumns.isEmpty() && dirtyJoinColumns.isEmpty()) {
+            return;
+        }
+
+        int columnCount = dirtyColumns.size() + dirtyJoinColumns.size() + 1;
+        List<String> columnNames = new ArrayList<>(columnCount);
+        List<Object> columnValues = new ArrayList<>(columnCount);
+
+        for (ColumnMetadata column : dirtyColumns) {
+            columnNames.add(column.getColumnName());
+            columnValues.add(column.getAccessor().get(object));
+        }
+
+        // join columns hold the IDs of the referenced entities
+        List<ManyToOneMetadata> manyToOneAssociations = metadata.getManyToOneAssociations();
 
+        for (ManyToOneMetadata manyToOne : dirtyJoinColumns) {
+            columnNames.add(manyToOne.getJoinColumnName());
+            columnValues.add(joinColumnValues[manyToOneAssociations.indexOf(manyToOne)]);
+        }
+
+        Object idValue = idColumn.getAccessor().get(object);
+        columnNames.add(idColumn.getColumnName());
+        columnValues.add(idValue);
+
+        // every combination of modified columns has its own statement, formed and prepared only once
+        StatementKey updateKey = new StatementKey(clazz, StatementKey.Operation.UPDATE, columnNames);
+        String query = queryFormer.getUpdateQuery(updateKey, metadata.getTableName());
+
+        EntityKey entityKey = new EntityKey(clazz, idValue);
+
+        // the cached state of the row and the cached results of the table are stale from now on
+        secondLevelCache.evict(metadata, entityKey);
+        queryCache.invalidate(metadata.getTableName());
+
+        int updatedRows = databaseConnector.executeUpdate(updateKey, query, columnValues);
+
+        // evicting again, a concurrent load could have cached the row before the update was written
+        secondLevelCache.evict(metadata, entityKey);
+        queryCache.invalidate(metadata.getTableName());
+
+        if (updatedRows < 1) {
+            return;
+        }
+
+        if (snapshot != null) {
+            persistenceContext.setSnapshot(object, EntitySnapshot.take(metadata, object, joinColumnValues));
+        } else {
+            register(metadata, entityKey, object);
+        }
     }
 
     /**
      * Retrieves an entity from the database as an object.
      *
      * @param entityClass Class of the entity that needs to be retrieved.
-     * @param args        Additional parameters
-     * @return entity as an Object.
+     * @param args        Additional parameters, the first one is the value of the entity's ID.
+     * @return entity as an Object, or null if there is no row with such ID.
      */
     public Object load(Class entityClass, Object... args) {
-        return null;
+        if (!Metrics.isEnabled()) {
+            return loadEntity(entityClass, args);
+        }
+
+        return measure(entityClass, OrmOperation.LOAD, () -> loadEntity(entityClass, args));
     }
 
+    private Object loadEntity(Class entityClass, Object... args) {
+        EntityMetadata metadata = entityHelper.getMetadata(entityClass);
+
+        if (!metadata.isEntity()) {
+            try {
+                throw new EntityNotFound("Class <" + entityClass.getSimpleName() + "> cannot be loaded because it isn't an Entity.");
+            } catch (EntityNotFound entityNotFound) {
+                entityNotFound.printStackTrace();
+                return null;
+            }
+        }
+
+        ColumnMetadata idColumn = metadata.getIdColumn();
+
+        if (idColumn == null || args == null || args.length == 0 || args[0] == null) {
+            try {
+                throw new IDNotFound("Object of the class <" + entityClass.getSimpleName() + "> cannot be loaded without an ID value.");
+            } catch (IDNotFound idNotFound) {
+                idNotFound.printStackTrace();
+                return null;
+            }
+        }
+
+        // the row has already been loaded or persisted by this session
+        EntityKey entityKey = new EntityKey(entityClass, args[0]);
+        Object managed = persistenceContext.get(entityKey);
+
+        if (managed != null) {
+            return managed;
+        }
+
+        // the row is cached by the second-level cache, assembling a new instance out of it
+        CacheRegion region = secondLevelCache.getRegion(metadata);
+
+        if (region != null) {
+            Object cached = secondLevelCache.get(region, metadata, entityKey, associationLoader);
+
+            if (cached != null) {
+                return register(metadata, entityKey, cached);
+            }
+        }
+
+        long readVersion = region != null ? region.getVersion() : 0;
+
+        // selecting every mapped column by the ID, the query is formed and prepared only once per class
+        StatementKey selectKey = new StatementKey(entityClass, StatementKey.Operation.SELECT, Collections.singletonList(idColumn.getColumnName()));
+        String query = queryFormer.getSelectQuery(selectKey, metadata.getTableName(), metadata.getSelectColumnNames());
+
+        List<Object> entities = databaseConnector.executeQuery(metadata, selectKey, query, Collections.singletonList(args[0]), associationLoader);
+
+        if (entities == null || entities.isEmpty()) {
+            return null;
+        }
+
+        return manageLoaded(metadata, region, entityKey, entities.get(0), readVersion);
+    }
 
     /**
-     * Removes an entity from the database.
+     * <p>Retrieves an entity from the database together with the associations of a fetch plan. The entity's row and the rows
+     * of the fetched associations are selected by a single query that LEFT JOINs the associations' tables through their join
+     * columns. The entity's row is repeated once per child, but it is hydrated only once.</p>
+     * <p>If the entity is already managed and all of the plan's associations have been loaded, no query is executed.</p>
      *
-     * @param object The entity that needs to be removed.
+     * @param entityClass Class of the entity that needs to be retrieved.
+     * @param fetchPlan   Associations that are loaded together with the entity.
+     * @param args        Additional parameters, the first one is the value of the entity's ID.
+     * @return entity as an Object, or null if there is no row with such ID or the plan can't be fetched.
      */
-    public void delete(Object object) {
-        Class<?> clazz = object.getClass();
+    public Object load(Class entityClass, FetchPlan fetchPlan, Object... args) {
+        if (!Metrics.isEnabled()) {
+            return fetchEntity(entityClass, fetchPlan, args);
+        }
+
+        return measure(entityClass, OrmOperation.LOAD, () -> fetchEntity(entityClass, fetchPlan, args));
+    }
+
+    private Object fetchEntity(Class entityClass, FetchPlan fetchPlan, Object... args) {
+        if (fetchPlan == null || fetchPlan.isEmpty()) {
+            return loadEntity(entityClass, args);
+        }
+
+        EntityMetadata metadata = entityHelper.getMetadata(entityClass);
 
-        if (!entityHelper.isEntity(object)) {
+        if (!metadata.isEntity()) {
             try {
-                throw new EntityNotFound("Object of the class <" + clazz.getSimpleName() + "> cannot be deleted because it isn't an Entity.");
+                throw new EntityNotFound("Class <" + entityClass.getSimpleName() + "> cannot be loaded because it isn't an Entity.");
             } catch (EntityNotFound entityNotFound) {
                 entityNotFound.printStackTrace();
-                return;
+                return null;
             }
         }
 
-        Field idField = entityHelper.findIdField(clazz);
+        ColumnMetadata idColumn = metadata.getIdColumn();
 
-        if (idField == null){
+        if (idColumn == null || args == null || args.length == 0 || args[0] == null) {
             try {
-                throw new IDNotFound("Object of the class <" + clazz.getSimpleName() + "> cannot be deleted because it doesn't have ID field.");
+                throw new IDNotFound("Object of the class <" + entityClass.getSimpleName() + "> cannot be loaded without an ID value.");
             } catch (IDNotFound idNotFound) {
                 idNotFound.printStackTrace();
-                return;
+                return null;
             }
         }
 
-        Object idFieldValue = null;
+        // metadata of the root table followed by the joined tables, and the association each joined table is fetched for
+        List<EntityMetadata> tables = new ArrayList<>();
+        List<Object> associations = new ArrayList<>();
+        List<String> rootJoinColumnNames = new ArrayList<>();
+        List<String> joinedColumnNames = new ArrayList<>();
+
+        tables.add(metadata);
+
         try {
-            idField.setAccessible(true);
-            idFieldValue = idField.get(object);
-        } catch (IllegalAccessException e) {
-            e.printStackTrace();
+            for (String fieldName : fetchPlan.getFetchedFields()) {
+                addFetchedAssociation(metadata, fieldName, tables, associations, rootJoinColumnNames, joinedColumnNames);
+            }
+        } catch (AssociationNotFound associationNotFound) {
+            associationNotFound.printStackTrace();
+            return null;
+        }
+
+        EntityKey entityKey = new EntityKey(entityClass, args[0]);
+        Object managed = persistenceContext.get(entityKey);
+
+        // the entity and its associations have already been loaded by this session
+        if (managed != null && isFetched(managed, associations)) {
+            return managed;
         }
 
-        String tableName = entityHelper.findTableName(clazz);
-        String columnName = idField.getName();
+        List<CacheRegion> regions = new ArrayList<>(tables.size());
+        List<Long> readVersions = new ArrayList<>(tables.size());
+        List<List<String>> columnsForSelection = new ArrayList<>(tables.size());
 
+        for (EntityMetadata table : tables) {
+            CacheRegion region = secondLevelCache.getRegion(table);
 
-        String deleteQuery = queryFormer.formDeleteQuery(tableName, columnName, idFieldValue);
-        System.out.println(deleteQuery);
+            regions.add(region);
+            readVersions.add(region != null ? region.getVersion() : 0);
+            columnsForSelection.add(table.getSelectColumnNames());
+        }
 
-    }
+        List<String> tableNames = new ArrayList<>(tables.size());
+
+        for (EntityMetadata table : tables) {
+            tableNames.add(table.getTableName());
+        }
+
+        // the fetched fields are a part of the key, since they determine the joined tables
+        List<String> keyColumnNames = new ArrayList<>();
+        keyColumnNames.add(idColumn.getColumnName());
+        keyColumnNames.addAll(fetchPlan.getFetchedFields());
+
+        StatementKey selectKey = new StatementKey(entityClass, StatementKey.Operation.SELECT_JOIN, keyColumnNames);
+        String query = queryFormer.getJoinSelectQuery(selectKey, tableNames, columnsForSelection, rootJoinColumnNames, joinedColumnNames);
 
+        List<Object[]> rows = databaseConnector.executeJoinQuery(tables, selectKey, query, Collections.singletonList(args[0]), associationLoader);
 
+        if (rows == null || rows.isEmpty()) {
+            return null;
+        }
+
+        // every row repeats the entity, only the first one is hydrated into the managed instance
+        Object entity = manageLoaded(metadata, regions.get(0), entityKey, rows.get(0)[0], readVersions.get(0));
+
+        for (int i = 1; i < tables.size(); i++) {
+            EntityMetadata table = tables.get(i);
+            ColumnMetadata tableIdColumn = table.getIdColumn();
+            Map<EntityKey, Object> fetched = new LinkedHashMap<>();
+
+            for (Object[] row : rows) {
+                if (row[i] == null) {
+                    continue;
+                }
+
+                EntityKey key = new EntityKey(table.getEntityClass(), tableIdColumn.getAccessor().get(row[i]));
+
+                // the same child is repeated in the rows of the other joined lists
+                if (!fetched.containsKey(key)) {
+                    fetched.put(key, manageLoaded(table, regions.get(i), key, row[i], readVersions.get(i)));
+                }
+            }
+
+            setFetchedAssociation(entity, associations.get(i - 1), new ArrayList<>(fetched.values()));
+        }
+
+        return entity;
+    }
 
+    /**
+     * Resolves a field of a fetch plan into the table that is joined for it.
+     *
+     * @param metadata            Metadata of the loaded entity.
+     * @param fieldName           Name of the fetched field.
+     * @param tables              Metadata of the joined tables, the table of the field is added.
+     * @param associations        Fetched associations, the association of the field is added.
+     * @param rootJoinColumnNames Columns of the entity's table the joined tables are joined on.
+     * @param joinedColumnNames   Columns of the joined tables that are equal to the columns of the entity's table.
+     * @throws AssociationNotFound If the field isn't an association that can be joined.
+     */
+    private void addFetchedAssociation(EntityMetadata metadata, String fieldName, List<EntityMetadata> tables, List<Object> associations,
+                                       List<String> rootJoinColumnNames, List<String> joinedColumnNames) throws AssociationNotFound {
+        for (OneToManyMetadata oneToMany : metadata.getOneToManyAssociations()) {
+            if (!oneToMany.getField().getName().equals(fieldName) || oneToMany.getElementType() == null) {
+                continue;
+            }
+
+            EntityMetadata childMetadata = entityHelper.getMetadata(oneToMany.getElementType());
+            ManyToOneMetadata parentReference = childMetadata.findManyToOne(oneToMany.getMappedBy());
+
+            if (parentReference == null || parentReference.getJoinColumnName() == null || childMetadata.getIdColumn() == null) {
+                throw new AssociationNotFound("OneToMany <" + fieldName + "> cannot be fetched because its children don't have a JoinColumn that references <"
+                        + metadata.getEntityClass().getSimpleName() + ">.");
+            }
+
+            tables.add(childMetadata);
+            associations.add(oneToMany);
+            rootJoinColumnNames.add(metadata.getIdColumn().getColumnName());
+            joinedColumnNames.add(parentReference.getJoinColumnName());
+            return;
+        }
+
+        ManyToOneMetadata manyToOne = metadata.findManyToOne(fieldName);
+
+        if (manyToOne != null && manyToOne.getJoinColumnName() != null) {
+            EntityMetadata targetMetadata = entityHelper.getMetadata(manyToOne.getTargetType());
+
+            if (targetMetadata.getIdColumn() != null) {
+                tables.add(targetMetadata);
+                associations.add(manyToOne);
+                rootJoinColumnNames.add(manyToOne.getJoinColumnName());
+                joinedColumnNames.add(targetMetadata.getIdColumn().getColumnName());
+                return;
+            }
+        }
+
+        throw new AssociationNotFound("Field <" + fieldName + "> of the class <" + metadata.getEntityClass().getSimpleName() + "> isn't an association that can be fetched.");
+    }
+
+    /**
+     * @param entity       A managed entity.
+     * @param associations Associations of the entity.
+     * @return <b>true</b> if none of the associations is waiting to be loaded lazily.
+     */
+    private boolean isFetched(Object entity, List<Object> associations) {
+        for (Object association : associations) {
+            if (association instanceof OneToManyMetadata) {
+                Object list = ((OneToManyMetadata) association).getAccessor().get(entity);
+
+                if (list instanceof LazyList && !((LazyList) list).isInitialized()) {
+                    return false;
+                }
+            } else if (LazyReferences.isPending(entity, ((ManyToOneMetadata) association).getField())) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Writes fetched entities into an association of a managed entity, unless the association has been loaded already.
+     *
+     * @param entity      The managed entity.
+     * @param association Association that has been fetched.
+     * @param fetched     Managed instances of the fetched entities.
+     */
+    private void setFetchedAssociation(Object entity, Object association, List<Object> fetched) {
+        if (association instanceof ManyToOneMetadata) {
+            ManyToOneMetadata manyToOne = (ManyToOneMetadata) association;
+
+            if (!fetched.isEmpty() && LazyReferences.isPending(entity, manyToOne.getField())) {
+                manyToOne.getAccessor().set(entity, fetched.get(0));
+                LazyReferences.remove(entity, manyToOne.getField());
+            }
+
+            return;
+        }
+
+        OneToManyMetadata oneToMany = (OneToManyMetadata) association;
+        ManyToOneMetadata parentReference = entityHelper.getMetadata(oneToMany.getElementType()).findManyToOne(oneToMany.getMappedBy());
+
+        // the children reference the entity, there is no need to load it again
+        for (Object child : fetched) {
+            if (LazyReferences.isPending(child, parentReference.getField())) {
+                parentReference.getAccessor().set(child, entity);
+                LazyReferences.remove(child, parentReference.getField());
+            }
+        }
+
+        Object list = oneToMany.getAccessor().get(entity);
+
+        if (list instanceof LazyList) {
+            ((LazyList) list).initialize(fetched);
+        }
+    }
+
+    /**
+     * <p>Retrieves the entities whose columns are equal to the given values.</p>
+     * <p>Results of queries over Cacheable entities are cached in the query cache as lists of IDs, and the entities are
+     * resolved through the persistence context and the second-level cache. A cached result is discarded as soon as its
+     * table is written by any ORM instance.</p>
+     *
+     * @param entityClass Class of the entities that need to be retrieved.
+     * @param conditions  Column names and the values the columns need to be equal to, an empty map selects every row.
+     * @return Retrieved entities, an empty list if there aren't any or they couldn't be retrieved.
+     */
+    public List<Object> find(Class entityClass, Map<String, Object> conditions) {
+        if (!Metrics.isEnabled()) {
+            return findEntities(entityClass, conditions);
+        }
+
+        return measure(entityClass, OrmOperation.FIND, () -> findEntities(entityClass, conditions));
+    }
+
+    private List<Object> findEntities(Class entityClass, Map<String, Object> conditions) {
+        EntityMetadata metadata = entityHelper.getMetadata(entityClass);
+
+        if (!metadata.isEntity()) {
+            try {
+                throw new EntityNotFound("Class <" + entityClass.getSimpleName() + "> cannot be loaded because it isn't an Entity.");
+            } catch (EntityNotFound entityNotFound) {
+                entityNotFound.printStackTrace();
+                return new ArrayList<>();
+            }
+        }
+
+        ColumnMetadata idColumn = metadata.getIdColumn();
+
+        if (idColumn == null) {
+            try {
+                throw new IDNotFound("Couldn't find the primary column field.");
+            } catch (IDNotFound idNotFound) {
+                idNotFound.printStackTrace();
+                return new ArrayList<>();
+            }
+        }
+
+        List<String> conditionalColumnNames = new ArrayList<>(conditions.keySet());
+        List<Object> parameters = new ArrayList<>(conditions.values());
+
+        StatementKey selectKey = new StatementKey(entityClass, StatementKey.Operation.SELECT, conditionalColumnNames);
+        String query = queryFormer.getSelectQuery(selectKey, metadata.getTableName(), metadata.getSelectColumnNames());
+
+        // only results of cacheable entities are cached, others would have to be loaded one by one
+        CacheRegion region = secondLevelCache.getRegion(metadata);
+        QueryKey queryKey = null;
+
+        if (region != null && databaseConnector.getDataSource() != null) {
+            queryKey = new QueryKey(query, parameters);
+
+            List<Object> ids = queryCache.get(queryKey);
+
+            if (ids != null) {
+                List<Object> entities = loadAll(entityClass, ids);
+
+                // null if any of the rows has been deleted by somebody else in the meantime
+                if (entities != null) {
+                    return entities;
+                }
+            }
+        }
+
+        long readTimestamp = queryCache.getTimestamp();
+        long readVersion = region != null ? region.getVersion() : 0;
+
+        List<Object> rows = databaseConnector.executeQuery(metadata, selectKey, query, parameters, associationLoader);
+
+        if (rows == null) {
+            return new ArrayList<>();
+        }
+
+        List<Object> entities = new ArrayList<>(rows.size());
+        List<Object> ids = new ArrayList<>(rows.size());
+
+        for (Object row : rows) {
+            Object id = idColumn.getAccessor().get(row);
+
+            ids.add(id);
+            entities.add(manageLoaded(metadata, region, new EntityKey(entityClass, id), row, readVersion));
+        }
+
+        if (queryKey != null) {
+            queryCache.put(queryKey, ids, metadata.getTableName(), readTimestamp);
+        }
+
+        return entities;
+    }
+
+
+    /**
+     * <p>Opens a forward-only cursor over all the rows of an entity's table. Rows are fetched in chunks of <b>fetchSize</b>
+     * and hydrated one at a time, so that tables of any size can be read with constant memory.</p>
+     * <p>The cursor holds a database connection until it is read to the end or closed. Entities read by a cursor aren't
+     * added to the persistence context, otherwise the memory would grow with every row. For the same reason their lazy
+     * associations aren't remembered for batch loading, each of them is loaded on its own.</p>
+     *
+     * @param entityClass Class of the entities that need to be retrieved.
+     * @param fetchSize   Number of rows fetched from the database per round trip.
+     * @return An open cursor, or an empty cursor if the class isn't an entity.
+     */
+    public EntityCursor scroll(Class entityClass, int fetchSize) {
+        if (fetchSize < 0) {
+            throw new IllegalArgumentException("Fetch size must not be negative.");
+        }
+
+        EntityMetadata metadata = entityHelper.getMetadata(entityClass);
+
+        if (!metadata.isEntity()) {
+            try {
+                throw new EntityNotFound("Class <" + entityClass.getSimpleName() + "> cannot be loaded because it isn't an Entity.");
+            } catch (EntityNotFound entityNotFound) {
+                entityNotFound.printStackTrace();
+                return EntityCursor.empty();
+            }
+        }
+
+        // selecting every mapped column without any condition
+        StatementKey selectKey = new StatementKey(entityClass, StatementKey.Operation.SELECT, Collections.<String>emptyList());
+        String query = queryFormer.getSelectQuery(selectKey, metadata.getTableName(), metadata.getSelectColumnNames());
+
+        return databaseConnector.openCursor(metadata, query, Collections.emptyList(), fetchSize, cursorAssociationLoader);
+    }
+
+    /**
+     * <p>Streams all the rows of an entity's table, see {@link #scroll(Class, int)}. The stream must be closed (e.g. with
+     * try-with-resources) unless it is consumed to the end.</p>
+     *
+     * @param entityClass Class of the entities that need to be retrieved.
+     * @param fetchSize   Number of rows fetched from the database per round trip.
+     * @return Sequential stream of the entities.
+     */
+    public Stream<Object> stream(Class entityClass, int fetchSize) {
+        return scroll(entityClass, fetchSize).stream();
+    }
+
+    /**
+     * Removes an entity from the database together with the children of its OneToMany associations.
+     *
+     * @param object The entity that needs to be removed.
+     * @return <b>true</b> if the entity has been removed.
+     */
+    public boolean delete(Object object) {
+        return deleteAll(Collections.singletonList(object));
+    }
+
+    /**
+     * <p>Removes a collection of entities from the database inside a single transaction. Entities are grouped by class and
+     * every group is deleted with "DELETE ... WHERE ID IN (...)" statements of up to batch size IDs each.</p>
+     * <p>Children of OneToMany associations are deleted first, with a single set-based statement per child table and
+     * chunk, instead of being deleted row by row.</p>
+     *
+     * @param objects Entities that need to be removed.
+     * @return <b>true</b> if the entities have been removed, <b>false</b> if none of them has been (the transaction has
+     * been rolled back).
+     */
+    public boolean deleteAll(Collection<?> objects) {
+        if (!Metrics.isEnabled()) {
+            return deleteEntities(objects);
+        }
+
+        return measure(getMeasuredClass(objects), OrmOperation.DELETE, () -> deleteEntities(objects));
+    }
+
+    private boolean deleteEntities(Collection<?> objects) {
+        Map<Class<?>, List<Object>> groups = new LinkedHashMap<>();
+
+        for (Object object : objects) {
+            Class<?> clazz = object.getClass();
+            EntityMetadata metadata = entityHelper.getMetadata(clazz);
+
+            // quitting if any of the objects can't be deleted, nothing has been deleted yet
+            if (!metadata.isEntity()) {
+                try {
+                    throw new EntityNotFound("Object of the class <" + clazz.getSimpleName() + "> cannot be deleted because it isn't an Entity.");
+                } catch (EntityNotFound entityNotFound) {
+                    entityNotFound.printStackTrace();
+                    return false;
+                }
+            }
+
+            ColumnMetadata idColumn = metadata.getIdColumn();
+
+            if (idColumn == null || !isAssigned(idColumn, object)) {
+                try {
+                    throw new IDNotFound("Object of the class <" + clazz.getSimpleName() + "> cannot be deleted because it doesn't have an ID value.");
+                } catch (IDNotFound idNotFound) {
+                    idNotFound.printStackTrace();
+                    return false;
+                }
+            }
+
+            List<Object> group = groups.get(clazz);
+
+            if (group == null) {
+                group = new ArrayList<>();
+                groups.put(clazz, group);
+            }
+
+            group.add(object);
+        }
+
+        // nothing to delete
+        if (groups.isEmpty()) {
+            return true;
+        }
+
+        // entities referencing other deleted entities are deleted before the entities they reference
+        List<Class<?>> orderedClasses = new ArrayList<>(unitOfWork.orderByDependencies(groups).keySet());
+        Collections.reverse(orderedClasses);
+
+        // classes whose rows have been deleted by a cascade
+        Set<EntityMetadata> cascadedClasses = new LinkedHashSet<>();
+
+        // cached state is evicted on both sides of the transaction, the entities stay managed until the commit though,
+        // so that they are still usable if the delete fails
+        evictDeleted(groups, cascadedClasses, false);
+
+        if (!databaseConnector.beginTransaction()) {
+            return false;
+        }
+
+        for (Class<?> clazz : orderedClasses) {
+            EntityMetadata metadata = entityHelper.getMetadata(clazz);
+            List<Object> group = groups.get(clazz);
+            List<Object> ids = new ArrayList<>(group.size());
+
+            for (Object object : group) {
+                ids.add(metadata.getIdColumn().getAccessor().get(object));
+            }
+
+            for (int i = 0; i < ids.size(); i += batchSize) {
+                List<Object> chunk = new ArrayList<>(ids.subList(i, Math.min(i + batchSize, ids.size())));
+
+                if (!deleteChunk(metadata, chunk, cascadedClasses)) {
+                    databaseConnector.rollback();
+                    return false;
+                }
+            }
+        }
+
+        if (!databaseConnector.commit()) {
+            return false;
+        }
+
+        evictDeleted(groups, cascadedClasses, true);
+
+        return true;
+    }
+
+    /**
+     * Deletes the rows with the given IDs and, before them, the rows of their OneToMany children.
+     *
+     * @param metadata        Metadata of the deleted entities.
+     * @param ids             IDs of the deleted rows, at most batch size of them.
+     * @param cascadedClasses Set to which the classes whose rows have been deleted by the cascade are added.
+     * @return <b>true</b> if the rows have been deleted.
+     */
+    private boolean deleteChunk(EntityMetadata metadata, List<Object> ids, Set<EntityMetadata> cascadedClasses) {
+        // the IN list is padded with the last ID, so that only a few differently sized statements are ever prepared
+        int inListSize = getInListSize(ids.size(), batchSize);
+        Object lastId = ids.get(ids.size() - 1);
+
+        while (ids.size() < inListSize) {
+            ids.add(lastId);
+        }
+
+        List<String> tableNames = new ArrayList<>();
+        List<String> idColumnNames = new ArrayList<>();
+        List<String> foreignKeyNames = new ArrayList<>();
+
+        tableNames.add(metadata.getTableName());
+        idColumnNames.add(metadata.getIdColumn().getColumnName());
+
+        if (!deleteChildren(metadata, metadata, tableNames, idColumnNames, foreignKeyNames, ids, cascadedClasses)) {
+            return false;
+        }
+
+        StatementKey deleteKey = new StatementKey(metadata.getEntityClass(), StatementKey.Operation.DELETE, foreignKeyNames, inListSize);
+        String query = queryFormer.getDeleteInQuery(deleteKey, tableNames, idColumnNames);
+
+        return executeDelete(deleteKey, query, ids);
+    }
+
+    /**
+     * <p>Deletes the children of the rows selected by a path of foreign keys, deepest children first. Every child table is
+     * deleted with a single statement whose condition follows the path back to the IDs of the deleted entities.</p>
+     *
+     * @param rootMetadata    Metadata of the entities whose deletion is cascaded.
+     * @param metadata        Metadata of the last class on the path, whose children are deleted.
+     * @param tableNames      Names of the tables on the path.
+     * @param idColumnNames   Names of the ID columns of the tables on the path.
+     * @param foreignKeyNames Names of the foreign keys on the path.
+     * @param ids             IDs of the deleted entities.
+     * @param cascadedClasses Set to which the classes whose rows have been deleted are added.
+     * @return <b>true</b> if the children have been deleted.
+     */
+    private boolean deleteChildren(EntityMetadata rootMetadata, EntityMetadata metadata, List<String> tableNames, List<String> idColumnNames,
+                                   List<String> foreignKeyNames, List<Object> ids, Set<EntityMetadata> cascadedClasses) {
+        for (OneToManyMetadata oneToMany : metadata.getOneToManyAssociations()) {
+            if (oneToMany.getElementType() == null) {
+                continue;
+            }
+
+            EntityMetadata childMetadata = entityHelper.getMetadata(oneToMany.getElementType());
+            ManyToOneMetadata manyToOne = childMetadata.findManyToOne(oneToMany.getMappedBy());
+
+            // a table that is already on the path would make the cascade cyclic
+            if (manyToOne == null || manyToOne.getJoinColumnName() == null || tableNames.contains(childMetadata.getTableName())) {
+                continue;
+            }
+
+            ColumnMetadata childIdColumn = childMetadata.getIdColumn();
+
+            tableNames.add(childMetadata.getTableName());
+            idColumnNames.add(childIdColumn != null ? childIdColumn.getColumnName() : null);
+            foreignKeyNames.add(manyToOne.getJoinColumnName());
+
+            // grandchildren reference the children, so they are deleted first
+            boolean deleted = childIdColumn == null
+                    || deleteChildren(rootMetadata, childMetadata, tableNames, idColumnNames, foreignKeyNames, ids, cascadedClasses);
+
+            if (deleted) {
+                // sibling children may share the name of their foreign key, so the tables on the path are a part of the key
+                StatementKey deleteKey = new StatementKey(rootMetadata.getEntityClass(), StatementKey.Operation.DELETE,
+                        new ArrayList<>(foreignKeyNames), ids.size(), new ArrayList<>(tableNames));
+                String query = queryFormer.getDeleteInQuery(deleteKey, tableNames, idColumnNames);
+
+                deleted = executeDelete(deleteKey, query, ids);
+            }
+
+            tableNames.remove(tableNames.size() - 1);
+            idColumnNames.remove(idColumnNames.size() - 1);
+            foreignKeyNames.remove(foreignKeyNames.size() - 1);
+
+            if (!deleted) {
+                return false;
+            }
+
+            cascadedClasses.add(childMetadata);
+        }
+
+        return true;
+    }
+
+    /**
+     * Executes a DELETE statement.
+     *
+     * @return <b>true</b> if the statement has been executed (or only logged, if there is no database).
+     */
+    private boolean executeDelete(StatementKey deleteKey, String query, List<Object> parameters) {
+        return databaseConnector.executeUpdate(deleteKey, query, parameters) >= 0 || databaseConnector.getDataSource() == null;
+    }
+
+    /**
+     * Rounds the number of IDs up to a power of two, or to the maximum size.
+     *
+     * @param count   Number of IDs, at most <b>maxSize</b>.
+     * @param maxSize Maximum number of IDs in a single statement.
+     * @return Number of placeholders of the IN list.
+     */
+    private int getInListSize(int count, int maxSize) {
+        int size = Integer.highestOneBit(count);
+
+        if (size < count) {
+            size <<= 1;
+        }
+
+        return Math.min(size, maxSize);
+    }
+
+    /**
+     * Evicts deleted entities from the caches and, once the delete has been committed, detaches them (and their children)
+     * from the persistence context.
+     *
+     * @param groups          Deleted entities grouped by class.
+     * @param cascadedClasses Classes whose rows have been deleted by a cascade.
+     * @param detach          <b>true</b> if the entities are detached as well, i.e. the delete has been committed.
+     */
+    private void evictDeleted(Map<Class<?>, List<Object>> groups, Set<EntityMetadata> cascadedClasses, boolean detach) {
+        for (Map.Entry<Class<?>, List<Object>> group : groups.entrySet()) {
+            EntityMetadata metadata = entityHelper.getMetadata(group.getKey());
+
+            for (Object object : group.getValue()) {
+                EntityKey entityKey = new EntityKey(group.getKey(), metadata.getIdColumn().getAccessor().get(object));
+
+                secondLevelCache.evict(metadata, entityKey);
+
+                if (!detach) {
+                    continue;
+                }
+
+                persistenceContext.remove(entityKey);
+
+                // children that are held in memory are gone as well
+                for (OneToManyMetadata oneToMany : metadata.getOneToManyAssociations()) {
+                    List children = (List) oneToMany.getAccessor().get(object);
+
+                    if (children != null) {
+                        for (Object child : children) {
+                            detach(child);
+                        }
+                    }
+                }
+            }
+
+            queryCache.invalidate(metadata.getTableName());
+        }
+
+        // rows deleted by a cascade aren't known one by one
+        for (EntityMetadata metadata : cascadedClasses) {
+            secondLevelCache.evictAll(metadata);
+            queryCache.invalidate(metadata.getTableName());
+        }
+    }
+
+    /**
+     * Removes an entity from the persistence context.
+     *
+     * @param object Entity that is no longer managed.
+     */
+    private void detach(Object object) {
+        EntityMetadata metadata = entityHelper.getMetadata(object.getClass());
+        ColumnMetadata idColumn = metadata.getIdColumn();
+
+        if (idColumn != null && isAssigned(idColumn, object)) {
+            persistenceContext.remove(new EntityKey(object.getClass(), idColumn.getAccessor().get(object)));
+        }
+    }
+
+    /**
+     * Detaches every entity that has been loaded or persisted, subsequent loads read the rows from the database again.
+     */
+    public void clear() {
+        persistenceContext.clear();
+    }
+
+    /**
+     * Closes the database connections of this ORM (unless they come from a shared connection pool) and ends the session.
+     */
+    @Override
+    public void close() {
+        persistenceContext.clear();
+        associationLoader.clear();
+        databaseConnector.close();
+    }
+
+    /**
+     * @return Number of lazy references and lists the session remembers for batch loading.
+     */
+    int getPendingAssociationCount() {
+        return associationLoader.getPendingCount();
+    }
+
+    /**
+     * Runs an operation and reports its duration to the installed metrics collector.
+     *
+     * @param entityClass Class of the entities the operation works with.
+     * @param operation   The measured operation.
+     * @param body        Body of the operation.
+     * @return Result of the operation.
+     */
+    private <T> T measure(Class<?> entityClass, OrmOperation operation, Supplier<T> body) {
+        MetricsCollector collector = Metrics.getCollector();
+        long start = System.nanoTime();
+        boolean failed = true;
+
+        try {
+            T result = body.get();
+            failed = false;
+
+            return result;
+        } finally {
+            collector.operationCompleted(entityClass, operation, System.nanoTime() - start, failed);
+        }
+    }
+
+    private void measure(Class<?> entityClass, OrmOperation operation, Runnable body) {
+        measure(entityClass, operation, () -> {
+            body.run();
+            return null;
+        });
+    }
+
+    /**
+     * @return Class of the first entity of a collection, or Object if the collection is empty.
+     */
+    private Class<?> getMeasuredClass(Collection<?> objects) {
+        Iterator<?> iterator = objects.iterator();
+        Object first = iterator.hasNext() ? iterator.next() : null;
+
+        return first != null ? first.getClass() : Object.class;
+    }
+
+    /**
+     * Loads entities by their IDs.
+     *
+     * @param entityClass Class of the entities.
+     * @param ids         IDs of the entities, in order.
+     * @return The entities in the order of their IDs, or null if any of them doesn't exist.
+     */
+    private List<Object> loadAll(Class entityClass, List<Object> ids) {
+        List<Object> entities = new ArrayList<>(ids.size());
+
+        for (Object id : ids) {
+            Object entity = loadEntity(entityClass, id);
+
+            if (entity == null) {
+                return null;
+            }
+
+            entities.add(entity);
+        }
+
+        return entities;
+    }
+
+    /**
+     * Adds an entity that has been read from the database to the persistence context and to the second-level cache.
+     *
+     * @param metadata    Metadata of the entity's class.
+     * @param region      Second-level cache region of the class (null if the class isn't cacheable).
+     * @param entityKey   Key of the entity's row.
+     * @param entity      Entity hydrated from the row.
+     * @param readVersion Version of the region obtained before the row was read.
+     * @return The instance that represents the row in this session.
+     */
+    private Object manageLoaded(EntityMetadata metadata, CacheRegion region, EntityKey entityKey, Object entity, long readVersion) {
+        // caching the state of the row, not the state of an instance that may already be managed (and modified)
+        if (region != null) {
+            secondLevelCache.putFromLoad(region, metadata, entityKey, entity, readVersion);
+        }
+
+        return register(metadata, entityKey, entity);
+    }
+
+    /**
+     * Takes a snapshot of an entity's column values and of the IDs its ManyToOne associations reference.
+     *
+     * @param metadata Metadata of the entity's class.
+     * @param entity   Entity whose values are copied.
+     * @return The snapshot.
+     */
+    private EntitySnapshot takeSnapshot(EntityMetadata metadata, Object entity) {
+        return EntitySnapshot.take(metadata, entity, entityHelper.getJoinColumnValues(metadata, entity));
+    }
+
+    /**
+     * Adds an entity to the persistence context together with a snapshot of its values, unless the row is already
+     * represented by another instance.
+     *
+     * @param metadata  Metadata of the entity's class.
+     * @param entityKey Key of the entity's row.
+     * @param entity    Entity whose values are the values of the row.
+     * @return The instance that represents the row in this session.
+     */
+    private Object register(EntityMetadata metadata, EntityKey entityKey, Object entity) {
+        Object managed = persistenceContext.get(entityKey);
+
+        if (managed != null) {
+            return managed;
+        }
+
+        return persistenceContext.register(entityKey, entity, takeSnapshot(metadata, entity));
+    }
+
+    /**
+     * Adds an entity whose ID is known to the persistence context. Its snapshot keeps the join column values that have
+     * been written, so that a reference which couldn't be written (e.g. to an entity that wasn't persisted yet) stays
+     * dirty and is written by the next update.
+     *
+     * @param metadata         Metadata of the entity's class.
+     * @param object           Entity that has been persisted.
+     * @param joinColumnValues Values of the join columns that have been inserted (see {@link #getBoundJoinColumnValues}).
+     */
+    private void manage(EntityMetadata metadata, Object object, Object[] joinColumnValues) {
+        ColumnMetadata idColumn = metadata.getIdColumn();
+
+        if (idColumn == null || !isAssigned(idColumn, object)) {
+            return;
+        }
+
+        EntityKey entityKey = new EntityKey(metadata.getEntityClass(), idColumn.getAccessor().get(object));
+
+        if (persistenceContext.get(entityKey) == null) {
+            persistenceContext.register(entityKey, object, EntitySnapshot.take(metadata, object, joinColumnValues));
+        }
+    }
+
+    /**
+     * Gets the join column values of an entity out of the values bound to its INSERT.
+     *
+     * @param metadata    Metadata of the entity's class.
+     * @param boundValues Column names and values that have been bound to the statement.
+     * @return One value per ManyToOne association, in the order of the associations (see
+     * {@link EntityHelper#getJoinColumnValues}).
+     */
+    private Object[] getBoundJoinColumnValues(EntityMetadata metadata, Map<String, Object> boundValues) {
+        List<ManyToOneMetadata> manyToOneAssociations = metadata.getManyToOneAssociations();
+        Object[] values = new Object[manyToOneAssociations.size()];
+
+        for (int i = 0; i < values.length; i++) {
+            String joinColumnName = manyToOneAssociations.get(i).getJoinColumnName();
+
+            if (joinColumnName != null) {
+                values[i] = boundValues.get(joinColumnName);
+            }
+        }
+
+        return values;
+    }
+
+    /**
+     * Assigns values to the pre-assigned generated columns of an entity that don't have a value yet.
+     *
+     * @param object Entity whose values need to be assigned.
+     * @return <b>true</b> if every column has a value, <b>false</b> if a generator couldn't provide one.
+     */
+    private boolean assignGeneratedValues(Object object) {
+        EntityMetadata metadata = entityHelper.getMetadata(object.getClass());
+
+        for (ColumnMetadata column : metadata.getPreAssignedColumns()) {
+            if (!isAssigned(column, object)) {
+                Object value = idGenerators.getGenerator(metadata, column).next();
+
+                if (value == null) {
+                    return false;
+                }
+
+                setColumnValue(column, object, value);
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Checks whether a column of an entity has a value. Null and numeric zero mean that the value isn't assigned.
+     *
+     * @param column Column that is checked.
+     * @param object Entity that contains the column.
+     * @return <b>true</b> if the column has a value.
+     */
+    private boolean isAssigned(ColumnMetadata column, Object object) {
+        // int IDs are read without boxing
+        if (column.getType() == int.class) {
+            return column.getAccessor().getInt(object) != 0;
+        }
+
+        Object value = column.getAccessor().get(object);
+
+        return value != null && !(value instanceof Number && ((Number) value).longValue() == 0);
+    }
+
+    /**
+     * @param object Entity that is about to be inserted.
+     * @return Generated columns (assigned by the database or pre-assigned) of the entity that don't have a value yet.
+     */
+    private List<ColumnMetadata> getUnassignedGeneratedColumns(Object object) {
+        EntityMetadata metadata = entityHelper.getMetadata(object.getClass());
+        List<ColumnMetadata> columns = new ArrayList<>();
+
+        for (ColumnMetadata column : metadata.getGeneratedColumns()) {
+            if (!isAssigned(column, object)) {
+                columns.add(column);
+            }
+        }
+
+        for (ColumnMetadata column : metadata.getPreAssignedColumns()) {
+            if (!columns.contains(column) && !isAssigned(column, object)) {
+                columns.add(column);
+            }
+        }
+
+        return columns;
+    }
+
+    /**
+     * Resets the generated columns of entities whose inserts have been rolled back to their default values.
+     *
+     * @param columns Columns that didn't have a value before the inserts, per entity.
+     */
+    private void clearGeneratedValues(Map<Object, List<ColumnMetadata>> columns) {
+        for (Map.Entry<Object, List<ColumnMetadata>> entry : columns.entrySet()) {
+            for (ColumnMetadata column : entry.getValue()) {
+                Class<?> type = column.getType();
+
+                if (type == int.class) {
+                    column.getAccessor().setInt(entry.getKey(), 0);
+                } else if (type == long.class) {
+                    column.getAccessor().set(entry.getKey(), 0L);
+                } else if (!type.isPrimitive()) {
+                    column.getAccessor().set(entry.getKey(), null);
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes a value read from the database into a column's field, converting numbers to the type of the field.
+     *
+     * @param column Column whose field is being written.
+     * @param object Entity that contains the field.
+     * @param value Value read from the database.
+     */
+    private void setColumnValue(ColumnMetadata column, Object object, Object value) {
+        Class<?> type = column.getType();
+
+        // primitives can't hold a null, leaving the default value
+        if (value == null && type.isPrimitive()) {
+            return;
+        }
+
+        if (type == int.class) {
+            column.getAccessor().setInt(object, ((Number) value).intValue());
+        } else if ((type == long.class || type == Long.class) && value instanceof Number) {
+            column.getAccessor().set(object, ((Number) value).longValue());
+        } else if (type == Integer.class && value instanceof Number) {
+            column.getAccessor().set(object, ((Number) value).intValue());
+        } else if (type == String.class && value != null && !(value instanceof String)) {
+            // e.g. a generated UUID stored in a String field
+            column.getAccessor().set(object, value.toString());
+        } else {
+            column.getAccessor().set(object, value);
+        }
+    }
+
+
+
+    /**
+     * <p>Loads the lazy associations of the entities loaded by this session. Referenced entities and children are resolved
+     * through the persistence context, so an association yields the same instances as {@link #load(Class, Object...)}.</p>
+     * <p>Associations with a batch size greater than 1 are loaded in batches: the loader remembers the references and lists
+     * that haven't been loaded yet, and the first one that is accessed is loaded together with the other pending ones by a
+     * single <b>IN</b> query, instead of one query per entity.</p>
+     */
+    private class SessionAssociationLoader implements AssociationLoader {
+
+        // keys of the referenced entities that haven't been loaded yet, by class
+        private final Map<Class<?>, Set<EntityKey>> pendingReferences = new HashMap<>();
+        // lists that haven't been loaded yet, by association; owners that aren't used anymore can be collected
+        private final Map<OneToManyMetadata, Deque<WeakReference<LazyList>>> pendingCollections = new HashMap<>();
+
+        @Override
+        public Object loadReference(ManyToOneMetadata manyToOne, Object id) {
+            if (manyToOne.getBatchSize() > 1) {
+                loadReferences(manyToOne, new EntityKey(manyToOne.getTargetType(), id));
+            }
+
+            return load(manyToOne.getTargetType(), id);
+        }
+
+        @Override
+        public List<Object> loadCollection(OneToManyMetadata oneToMany, Object owner) {
+            EntityMetadata ownerMetadata = entityHelper.getMetadata(owner.getClass());
+            EntityMetadata childMetadata = entityHelper.getMetadata(oneToMany.getElementType());
+            ManyToOneMetadata parentReference = childMetadata.findManyToOne(oneToMany.getMappedBy());
+            ColumnMetadata childIdColumn = childMetadata.getIdColumn();
+            ColumnMetadata ownerIdColumn = ownerMetadata.getIdColumn();
+
+            // children can't be looked up without the column that references the owner
+            if (parentReference == null || parentReference.getJoinColumnName() == null || childIdColumn == null || ownerIdColumn == null) {
+                return new ArrayList<>();
+            }
+
+            Class<?> ownerClass = ownerMetadata.getEntityClass();
+            Map<EntityKey, Object> owners = new LinkedHashMap<>();
+            owners.put(new EntityKey(ownerClass, ownerIdColumn.getAccessor().get(owner)), owner);
+
+            // other lists of the association that are loaded by the same query
+            List<LazyList> batch = oneToMany.getBatchSize() > 1 ? pollPendingCollections(oneToMany, owner, oneToMany.getBatchSize() - 1) : Collections.<LazyList>emptyList();
+
+            for (LazyList list : batch) {
+                owners.put(new EntityKey(ownerClass, ownerIdColumn.getAccessor().get(list.getOwner())), list.getOwner());
+            }
+
+            Class<?> childClass = childMetadata.getEntityClass();
+            List<String> joinColumn = Collections.singletonList(parentReference.getJoinColumnName());
+            List<Object> parameters = new ArrayList<>(owners.size());
+
+            for (EntityKey ownerKey : owners.keySet()) {
+                parameters.add(ownerKey.getId());
+            }
+
+            StatementKey selectKey;
+            String query;
+
+            if (parameters.size() == 1) {
+                selectKey = new StatementKey(childClass, StatementKey.Operation.SELECT, joinColumn);
+                query = queryFormer.getSelectQuery(selectKey, childMetadata.getTableName(), childMetadata.getSelectColumnNames());
+            } else {
+                int inListSize = padInList(parameters, oneToMany.getBatchSize());
+
+                selectKey = new StatementKey(childClass, StatementKey.Operation.SELECT, joinColumn, inListSize);
+                query = queryFormer.getSelectInQuery(selectKey, childMetadata.getTableName(), childMetadata.getSelectColumnNames());
+            }
+
+            CacheRegion region = secondLevelCache.getRegion(childMetadata);
+            long readVersion = region != null ? region.getVersion() : 0;
+
+            List<Object> rows = databaseConnector.executeQuery(childMetadata, selectKey, query, parameters, this);
+
+            if (rows == null) {
+                return new ArrayList<>();
+            }
+
+            Map<EntityKey, List<Object>> childrenByOwner = new HashMap<>();
+
+            for (Object row : rows) {
+                EntityKey ownerKey = new EntityKey(ownerClass, LazyReferences.getPendingId(row, parentReference.getField()));
+                Object child = manageLoaded(childMetadata, region, new EntityKey(childClass, childIdColumn.getAccessor().get(row)), row, readVersion);
+
+                // the children reference the owner, there is no need to load it again
+                if (LazyReferences.isPending(child, parentReference.getField())) {
+                    parentReference.getAccessor().set(child, owners.get(ownerKey));
+                    LazyReferences.remove(child, parentReference.getField());
+                }
+
+                List<Object> children = childrenByOwner.get(ownerKey);
+
+                if (children == null) {
+                    children = new ArrayList<>();
+                    childrenByOwner.put(ownerKey, children);
+                }
+
+                children.add(child);
+            }
+
+            for (LazyList list : batch) {
+                List<Object> children = childrenByOwner.get(new EntityKey(ownerClass, ownerIdColumn.getAccessor().get(list.getOwner())));
+                list.initialize(children != null ? children : Collections.emptyList());
+            }
+
+            List<Object> children = childrenByOwner.get(owners.keySet().iterator().next());
+
+            return children != null ? children : new ArrayList<>();
+        }
+
+        @Override
+        public void addPendingReference(LazyReference reference) {
+            ManyToOneMetadata manyToOne = reference.getManyToOne();
+
+            if (manyToOne.getBatchSize() > 1) {
+                pendingReferences.computeIfAbsent(manyToOne.getTargetType(), c -> new LinkedHashSet<>())
+                        .add(new EntityKey(manyToOne.getTargetType(), reference.getId()));
+            }
+        }
+
+        @Override
+        public void addPendingCollection(LazyList list) {
+            if (list.getOneToMany().getBatchSize() > 1) {
+                pendingCollections.computeIfAbsent(list.getOneToMany(), o -> new ArrayDeque<>()).add(new WeakReference<>(list));
+            }
+        }
+
+        /**
+         * Forgets the pending references and lists, they are loaded one by one from now on.
+         */
+        private void clear() {
+            pendingReferences.clear();
+            pendingCollections.clear();
+        }
+
+        private int getPendingCount() {
+            int count = 0;
+
+            for (Set<EntityKey> keys : pendingReferences.values()) {
+                count += keys.size();
+            }
+
+            for (Deque<WeakReference<LazyList>> lists : pendingCollections.values()) {
+                count += lists.size();
+            }
+
+            return count;
+        }
+
+        /**
+         * Loads a referenced entity together with other pending references to entities of the same class.
+         *
+         * @param manyToOne    Association whose reference is being read.
+         * @param requestedKey Key of the referenced entity.
+         */
+        private void loadReferences(ManyToOneMetadata manyToOne, EntityKey requestedKey) {
+            Class<?> targetClass = manyToOne.getTargetType();
+            EntityMetadata metadata = entityHelper.getMetadata(targetClass);
+            ColumnMetadata idColumn = metadata.getIdColumn();
+
+            if (idColumn == null) {
+                return;
+            }
+
+            CacheRegion region = secondLevelCache.getRegion(metadata);
+            Set<EntityKey> pending = pendingReferences.get(targetClass);
+            List<Object> ids = new ArrayList<>();
+
+            if (pending != null) {
+                pending.remove(requestedKey);
+            }
+
+            if (!isLoaded(metadata, region, requestedKey)) {
+                ids.add(requestedKey.getId());
+            }
+
+            // the requested entity comes first, the rest of the batch are the references that have been pending the longest
+            if (pending != null) {
+                Iterator<EntityKey> iterator = pending.iterator();
+
+                while (iterator.hasNext() && ids.size() < manyToOne.getBatchSize()) {
+                    EntityKey key = iterator.next();
+                    iterator.remove();
+
+                    if (!isLoaded(metadata, region, key)) {
+                        ids.add(key.getId());
+                    }
+                }
+            }
+
+            // a single entity is loaded by load() itself
+            if (ids.size() < 2) {
+                return;
+            }
+
+            int inListSize = padInList(ids, manyToOne.getBatchSize());
+            long readVersion = region != null ? region.getVersion() : 0;
+
+            StatementKey selectKey = new StatementKey(targetClass, StatementKey.Operation.SELECT, Collections.singletonList(idColumn.getColumnName()), inListSize);
+            String query = queryFormer.getSelectInQuery(selectKey, metadata.getTableName(), metadata.getSelectColumnNames());
+
+            List<Object> entities = databaseConnector.executeQuery(metadata, selectKey, query, ids, this);
+
+            if (entities == null) {
+                return;
+            }
+
+            for (Object entity : entities) {
+                manageLoaded(metadata, region, new EntityKey(targetClass, idColumn.getAccessor().get(entity)), entity, readVersion);
+            }
+        }
+
+        /**
+         * Checks whether an entity is present in the persistence context, or assembles it from the second-level cache.
+         *
+         * @return <b>true</b> if the entity doesn't need to be selected.
+         */
+        private boolean isLoaded(EntityMetadata metadata, CacheRegion region, EntityKey key) {
+            if (persistenceContext.contains(key)) {
+                return true;
+            }
+
+            if (region != null) {
+                Object cached = secondLevelCache.get(region, metadata, key, this);
+
+                if (cached != null) {
+                    register(metadata, key, cached);
+                    return true;
+                }
+            }
+
+            return false;
+        }
+
+        /**
+         * Takes pending lists of an association that haven't been loaded yet.
+         *
+         * @param oneToMany Association whose lists are taken.
+         * @param owner     Owner whose list is being loaded, it isn't taken.
+         * @param maxCount  Maximum number of lists.
+         * @return Lists of other owners.
+         */
+        private List<LazyList> pollPendingCollections(OneToManyMetadata oneToMany, Object owner, int maxCount) {
+            Deque<WeakReference<LazyList>> pending = pendingCollections.get(oneToMany);
+            List<LazyList> lists = new ArrayList<>();
+
+            while (pending != null && !pending.isEmpty() && lists.size() < maxCount) {
+                LazyList list = pending.poll().get();
+
+                // owner has been collected, or the list has been loaded already
+                if (list == null || list.isInitialized() || list.getOwner() == owner) {
+                    continue;
+                }
+
+                lists.add(list);
+            }
+
+            return lists;
+        }
+
+        /**
+         * Pads the values of an IN list with the last value, so that only a few differently sized statements are ever prepared.
+         *
+         * @param values  Values of the IN list, at most <b>maxSize</b>.
+         * @param maxSize Maximum number of values.
+         * @return Number of placeholders of the IN list.
+         */
+        private int padInList(List<Object> values, int maxSize) {
+            int inListSize = getInListSize(values.size(), maxSize);
+            Object lastValue = values.get(values.size() - 1);
+
+            while (values.size() < inListSize) {
+                values.add(lastValue);
+            }
+
+            return inListSize;
+        }
+    }
+
+    /**
+     * <p>Loads the lazy associations of the entities read by a cursor through the session's loader, but doesn't remember
+     * them for batch loading. A cursor reads any number of rows, the pending associations of all of them would be kept
+     * until the session is closed.</p>
+     */
+    private class CursorAssociationLoader implements AssociationLoader {
+
+        @Override
+        public Object loadReference(ManyToOneMetadata manyToOne, Object id) {
+            return associationLoader.loadReference(manyToOne, id);
+        }
+
+        @Override
+        public List<Object> loadCollection(OneToManyMetadata oneToMany, Object owner) {
+            return associationLoader.loadCollection(oneToMany, owner);
+        }
+
+        @Override
+        public void addPendingReference(LazyReference reference) {
+        }
+
+        @Override
+        public void addPendingCollection(LazyList list) {
+        }
+    }
 }
@@ -0,0 +1,260 @@
+package orm;
+
+import orm.exceptions.OperationFailed;
+import orm.id.IdGenerators;
+import orm.metadata.EntityMetadataRegistry;
+import orm.pool.ConnectionPool;
+import orm.pool.ConnectionPoolConfig;
+
+import javax.sql.DataSource;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * <p>Thread-safe factory of ORM sessions. A factory is created once per database and shared by every thread of the
+ * application; it holds everything that doesn't change between sessions:</p>
+ * <p><b>metadata</b> - mapping models of the entities, scanned once per class (see {@link EntityMetadataRegistry})<br>
+ * <b>statement templates</b> - SQL formed once per {@link StatementKey}<br>
+ * <b>connection pool</b> - connections and their prepared statement caches<br>
+ * <b>ID generators</b> - blocks of pre-assigned IDs<br>
+ * <b>caches</b> - the second-level cache and the query cache</p>
+ * <p>Metadata, statement templates and the ID generators of the columns are looked up in concurrent maps, which don't lock
+ * on reads. The other shared structures do lock, but only briefly and never while a statement is executed:<br>
+ * <b>second-level cache</b> - every region is guarded by a lock of its own, so reads and writes of one region are serialized<br>
+ * <b>query cache</b> - cached results are a synchronized LRU map, the timestamps of the tables are a concurrent map<br>
+ * <b>ID generators</b> - handing out the next ID of a pre-assigned block is synchronized per sequence, the sequence itself
+ * is only queried once per block<br>
+ * <b>connection pool</b> - borrowing a connection acquires the pool's fair semaphore</p>
+ * <p>A session itself ({@link ORM}) only holds its persistence context and unit of work (pending lazy references are kept
+ * by the loaded entities), which makes opening one cheap. Sessions aren't thread-safe, a session should be opened per
+ * request or task and closed when it's done:</p>
+ * <p>try (ORM orm = factory.openSession()) {<br>
+ * &nbsp;&nbsp;&nbsp;&nbsp;orm.persist(entity);<br>
+ * }</p>
+ * <p>The factory can also run single operations asynchronously ({@link #persistAsync(Object)}, {@link #loadAsync(Class, Object)},
+ * {@link #deleteAsync(Object)}). Every such operation runs in a session of its own, on a thread of the factory's executor
+ * (see {@link AsyncExecutor}), and at most as many of them run at once as the pool has connections.</p>
+ */
+public class ORMFactory implements AutoCloseable {
+
+    private final QueryFormer queryFormer = new QueryFormer();
+    private final EntityHelper entityHelper;
+    private final DatabaseConnector databaseConnector;
+    private final IdGenerators idGenerators;
+    private final ConnectionPool connectionPool;
+    private final boolean ownsConnectionPool;
+
+    private volatile int batchSize = ORM.DEFAULT_BATCH_SIZE;
+    private volatile AsyncExecutor asyncExecutor;
+
+    /**
+     * Creates a factory whose sessions aren't connected to a database. Statements are only logged.
+     */
+    public ORMFactory() {
+        this.entityHelper = new EntityHelper();
+        this.connectionPool = null;
+        this.ownsConnectionPool = false;
+        this.databaseConnector = new DatabaseConnector();
+        this.idGenerators = new IdGenerators(null);
+    }
+
+    /**
+     * Creates a factory with its own connection pool, which is closed when the factory is closed.
+     *
+     * @param dataSource DataSource from which the connections of the pool are obtained.
+     */
+    public ORMFactory(DataSource dataSource) {
+        this(dataSource, new ConnectionPoolConfig());
+    }
+
+    /**
+     * Creates a factory with its own connection pool, which is closed when the factory is closed.
+     *
+     * @param dataSource DataSource from which the connections of the pool are obtained.
+     * @param config     Configuration of the pool (its maximum size should match the number of concurrent sessions).
+     */
+    public ORMFactory(DataSource dataSource, ConnectionPoolConfig config) {
+        this(new ConnectionPool(dataSource, config), true);
+    }
+
+    /**
+     * Creates a factory whose sessions borrow their connections from an existing pool. The pool isn't closed when the
+     * factory is closed.
+     *
+     * @param connectionPool Pool from which the connections are borrowed.
+     */
+    public ORMFactory(ConnectionPool connectionPool) {
+        this(connectionPool, false);
+    }
+
+    private ORMFactory(ConnectionPool connectionPool, boolean ownsConnectionPool) {
+        this.entityHelper = new EntityHelper();
+        this.connectionPool = connectionPool;
+        this.ownsConnectionPool = ownsConnectionPool;
+        // the connector doesn't own the pool, so closing a session doesn't close it
+        this.databaseConnector = new DatabaseConnector(connectionPool);
+        this.idGenerators = new IdGenerators(connectionPool.getDataSource());
+    }
+
+    /**
+     * Scans the given classes up front, so that the first sessions don't pay for building their metadata.
+     *
+     * @param entityClasses Classes of the entities.
+     * @return This factory.
+     */
+    public ORMFactory register(Class<?>... entityClasses) {
+        for (Class<?> entityClass : entityClasses) {
+            entityHelper.getMetadata(entityClass);
+        }
+
+        return this;
+    }
+
+    /**
+     * Opens a new session. The session is meant to be used by one thread at a time and has to be closed when it's done.
+     *
+     * @return A new session that shares the factory's metadata, templates, pool, ID generators and caches.
+     */
+    public ORM openSession() {
+        return new ORM(queryFormer, entityHelper, databaseConnector, idGenerators, batchSize);
+    }
+
+    /**
+     * <p>Inserts an entity (together with the children of its OneToMany associations) in a session of its own, without
+     * blocking the calling thread.</p>
+     *
+     * @param entity Entity that needs to be inserted, it must not be modified until the future is completed.
+     * @return Future that is completed with the entity once it's been inserted (with its generated values assigned), or
+     * exceptionally with {@link OperationFailed} if it couldn't be inserted.
+     */
+    public <T> CompletableFuture<T> persistAsync(T entity) {
+        return getAsyncExecutor().submit(() -> {
+            try (ORM orm = openSession()) {
+                if (!orm.persist(entity)) {
+                    throw new CompletionException(new OperationFailed("Entity of the class <" + entity.getClass().getSimpleName() + "> couldn't be persisted."));
+                }
+            }
+
+            return entity;
+        });
+    }
+
+    /**
+     * <p>Retrieves an entity in a session of its own, without blocking the calling thread. Independent entities can be loaded
+     * in parallel, e.g. with CompletableFuture.allOf(...).</p>
+     * <p>Lazy associations of the entity are loaded (blocking) by the thread that first accesses them, associations that
+     * are certainly needed should rather be fetched with {@link #loadAsync(Class, FetchPlan, Object)}.</p>
+     *
+     * @param entityClass Class of the entity that needs to be retrieved.
+     * @param id          Value of the entity's ID.
+     * @return Future that is completed with the entity, or with null if there is no row with such ID.
+     */
+    public <T> CompletableFuture<T> loadAsync(Class<T> entityClass, Object id) {
+        return getAsyncExecutor().submit(() -> {
+            try (ORM orm = openSession()) {
+                return entityClass.cast(orm.load(entityClass, id));
+            }
+        });
+    }
+
+    /**
+     * Retrieves an entity together with the associations of a fetch plan in a session of its own, without blocking the
+     * calling thread. See {@link ORM#load(Class, FetchPlan, Object...)}.
+     *
+     * @param entityClass Class of the entity that needs to be retrieved.
+     * @param fetchPlan   Associations that are loaded together with the entity.
+     * @param id          Value of the entity's ID.
+     * @return Future that is completed with the entity, or with null if there is no row with such ID.
+     */
+    public <T> CompletableFuture<T> loadAsync(Class<T> entityClass, FetchPlan fetchPlan, Object id) {
+        return getAsyncExecutor().submit(() -> {
+            try (ORM orm = openSession()) {
+                return entityClass.cast(orm.load(entityClass, fetchPlan, id));
+            }
+        });
+    }
+
+    /**
+     * Removes an entity (together with the children of its OneToMany associations) in a session of its own, without
+     * blocking the calling thread.
+     *
+     * @param entity The entity that needs to be removed.
+     * @return Future that is completed once the entity has been removed, or exceptionally with {@link OperationFailed} if
+     * it couldn't be removed.
+     */
+    public CompletableFuture<Void> deleteAsync(Object entity) {
+        return getAsyncExecutor().submit(() -> {
+            try (ORM orm = openSession()) {
+                if (!orm.delete(entity)) {
+                    throw new CompletionException(new OperationFailed("Entity of the class <" + entity.getClass().getSimpleName() + "> couldn't be deleted."));
+                }
+            }
+
+            return null;
+        });
+    }
+
+    /**
+     * Sets the number of rows per JDBC batch of the sessions that are opened from now on.
+     *
+     * @param batchSize Number of rows per batch, must be positive.
+     */
+    public void setBatchSize(int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be positive.");
+        }
+
+        this.batchSize = batchSize;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * @return Pool of the factory (exposes pool and statement cache metrics), or null if there is no database.
+     */
+    public ConnectionPool getConnectionPool() {
+        return connectionPool;
+    }
+
+    /**
+     * Stops accepting asynchronous operations and closes the connection pool if the factory has created it. Sessions that are
+     * still open can't execute statements anymore.
+     */
+    @Override
+    public void close() {
+        AsyncExecutor executor = asyncExecutor;
+
+        if (executor != null) {
+            executor.shutdown();
+        }
+
+        if (connectionPool != null && ownsConnectionPool) {
+            connectionPool.close();
+        }
+    }
+
+    /**
+     * @return Executor of the asynchronous operations, created by the first one so that factories that don't use them don't
+     * start any threads.
+     */
+    private AsyncExecutor getAsyncExecutor() {
+        AsyncExecutor executor = asyncExecutor;
+
+        if (executor == null) {
+            synchronized (this) {
+                executor = asyncExecutor;
+
+                if (executor == null) {
+                    // without a pool, the operations only log their statements
+                    int parallelism = connectionPool != null ? connectionPool.getConfig().getMaxSize() : Runtime.getRuntime().availableProcessors();
+                    executor = new AsyncExecutor(Math.max(1, parallelism));
+                    asyncExecutor = executor;
+                }
+            }
+        }
+
+        return executor;
+    }
+}
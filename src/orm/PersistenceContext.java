@@ -0,0 +1,93 @@
+package orm;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * <p>Identity map of a single ORM session. It holds every entity that has been loaded or persisted by the session, keyed
+ * by its {@link EntityKey}, which guarantees that a row is represented by at most one instance per session and lets
+ * repeated loads of the same row be answered without a query.</p>
+ * <p>Every managed entity has an {@link EntitySnapshot} of its column values, against which updates are dirty checked.</p>
+ * <p>Like the ORM that owns it, a persistence context is meant to be used by one thread at a time.</p>
+ */
+public class PersistenceContext {
+
+    private final Map<EntityKey, Object> entities = new HashMap<>();
+
+    // snapshots are looked up by the instance that is being updated, regardless of its equals method
+    private final Map<Object, EntitySnapshot> snapshots = new IdentityHashMap<>();
+
+    /**
+     * @param key Key of the row.
+     * @return The instance that represents the row in this session, or null if it hasn't been loaded or persisted.
+     */
+    public Object get(EntityKey key) {
+        return entities.get(key);
+    }
+
+    /**
+     * <p>Registers an entity unless the row is already represented by another instance.</p>
+     * @param key Key of the row.
+     * @param entity Entity that represents the row.
+     * @param snapshot Snapshot of the entity's values as they are in the database.
+     * @return The instance that represents the row from now on (the already registered one, if there was any).
+     */
+    public Object register(EntityKey key, Object entity, EntitySnapshot snapshot) {
+        Object existing = entities.putIfAbsent(key, entity);
+
+        if (existing != null) {
+            return existing;
+        }
+
+        snapshots.put(entity, snapshot);
+
+        return entity;
+    }
+
+    /**
+     * @param entity A managed entity.
+     * @return Snapshot of the entity, or null if the entity isn't managed by this session.
+     */
+    public EntitySnapshot getSnapshot(Object entity) {
+        return snapshots.get(entity);
+    }
+
+    /**
+     * Replaces the snapshot of a managed entity, typically after its changes have been written.
+     * @param entity A managed entity.
+     * @param snapshot New snapshot of the entity.
+     */
+    public void setSnapshot(Object entity, EntitySnapshot snapshot) {
+        if (snapshots.containsKey(entity)) {
+            snapshots.put(entity, snapshot);
+        }
+    }
+
+    /**
+     * @param key Key of the row that is no longer managed by the session (e.g. it has been deleted).
+     */
+    public void remove(EntityKey key) {
+        Object entity = entities.remove(key);
+
+        if (entity != null) {
+            snapshots.remove(entity);
+        }
+    }
+
+    public boolean contains(EntityKey key) {
+        return entities.containsKey(key);
+    }
+
+    public int size() {
+        return entities.size();
+    }
+
+    /**
+     * Forgets every managed entity, typically at the end of the session.
+     */
+    public void clear() {
+        entities.clear();
+        snapshots.clear();
+    }
+}
@@ -1,89 +1,260 @@
 package orm;
 
-import java.lang.reflect.Field;
-import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
+/**
+ * Forms SQL statements. Values are never written into the statements, every value is represented by a "?" placeholder
+ * so that the database can parse a statement once and execute it many times with different bound parameters.
+ * <p>Since the text of a statement depends only on its {@link StatementKey}, formed statements are kept as templates and
+ * each one is built only once.</p>
+ */
 public class QueryFormer {
 
+    private final ConcurrentMap<StatementKey, String> statementTemplates = new ConcurrentHashMap<>();
+
+    /**
+     * <p>Gets the INSERT query of a statement key, forming it only the first time it is requested.</p>
+     * @param key Key whose column names are the inserted columns.
+     * @param tableName Name of the table that we're using for insertion.
+     * @return A formed query.
+     */
+    public String getInsertQuery(StatementKey key, String tableName){
+        String query = statementTemplates.get(key);
+
+        if(query == null){
+            query = formInsertQuery(tableName, key.getColumnNames());
+            statementTemplates.putIfAbsent(key, query);
+        }
+
+        return query;
+    }
+
+    /**
+     * <p>Gets the SELECT query of a statement key, forming it only the first time it is requested.</p>
+     * @param key Key whose column names are the conditional columns.
+     * @param tableName Name of the table that SELECT needs to be performed on.
+     * @param columnsForSelection List of column names that need to be selected. It must be the same for every call with an equal key.
+     * @return A formed query.
+     */
+    public String getSelectQuery(StatementKey key, String tableName, List<String> columnsForSelection){
+        String query = statementTemplates.get(key);
+
+        if(query == null){
+            query = formSelectQuery(tableName, columnsForSelection, key.getColumnNames());
+            statementTemplates.putIfAbsent(key, query);
+        }
+
+        return query;
+    }
+
+    /**
+     * <p>Gets the SELECT query of a statement key that selects rows by a set of values of a single column, forming it only
+     * the first time it is requested.</p>
+     * @param key Key whose only column name is the conditional column and whose IN list size is the number of values.
+     * @param tableName Name of the table that SELECT needs to be performed on.
+     * @param columnsForSelection List of column names that need to be selected. It must be the same for every call with an equal key.
+     * @return A formed query.
+     */
+    public String getSelectInQuery(StatementKey key, String tableName, List<String> columnsForSelection){
+        String query = statementTemplates.get(key);
+
+        if(query == null){
+            query = formSelectInQuery(tableName, columnsForSelection, key.getColumnNames().get(0), key.getInListSize());
+            statementTemplates.putIfAbsent(key, query);
+        }
+
+        return query;
+    }
+
+    /**
+     * <p>Gets the SELECT query of a statement key that selects rows of a table together with the rows of joined tables,
+     * forming it only the first time it is requested. See {@link #formJoinSelectQuery(List, List, List, List, String)}.</p>
+     * @param key Key whose first column name is the conditional column of the first table, followed by the fetched fields.
+     * @param tableNames Names of the tables, starting with the table whose rows are selected.
+     * @param columnsForSelection Names of the selected columns of every table. They must be the same for every call with an equal key.
+     * @param rootJoinColumnNames Columns of the first table that the joined tables are joined on, one per joined table.
+     * @param joinedColumnNames Columns of the joined tables that are equal to the columns of the first table.
+     * @return A formed query.
+     */
+    public String getJoinSelectQuery(StatementKey key, List<String> tableNames, List<List<String>> columnsForSelection,
+                                     List<String> rootJoinColumnNames, List<String> joinedColumnNames){
+        String query = statementTemplates.get(key);
+
+        if(query == null){
+            query = formJoinSelectQuery(tableNames, columnsForSelection, rootJoinColumnNames, joinedColumnNames, key.getColumnNames().get(0));
+            statementTemplates.putIfAbsent(key, query);
+        }
+
+        return query;
+    }
+
+    /**
+     * <p>Gets the UPDATE query of a statement key, forming it only the first time it is requested.</p>
+     * @param key Key whose column names are the updated columns followed by the conditional column.
+     * @param tableName Name of the table that UPDATE will be performed on.
+     * @return A formed query.
+     */
+    public String getUpdateQuery(StatementKey key, String tableName){
+        String query = statementTemplates.get(key);
+
+        if(query == null){
+            List<String> columnNames = key.getColumnNames();
+            query = formUpdateQuery(tableName, columnNames.subList(0, columnNames.size() - 1), columnNames.get(columnNames.size() - 1));
+            statementTemplates.putIfAbsent(key, query);
+        }
+
+        return query;
+    }
+
+    /**
+     * <p>Gets the DELETE query of a statement key that deletes rows by a set of IDs, forming it only the first time it is requested.
+     * The rows are either the rows of the first table with the given IDs, or the rows of the last table that reference them
+     * through a path of foreign keys, see {@link #formDeleteInQuery(List, List, List, int)}.</p>
+     * @param key Key whose column names are the foreign keys of the path, whose table names are the tables of the path (for
+     * cascaded deletes) and whose IN list size is the number of IDs.
+     * @param tableNames Names of the tables on the path, starting with the table the IDs belong to.
+     * @param idColumnNames Names of the ID columns of the tables on the path.
+     * @return A formed query.
+     */
+    public String getDeleteInQuery(StatementKey key, List<String> tableNames, List<String> idColumnNames){
+        String query = statementTemplates.get(key);
+
+        if(query == null){
+            query = formDeleteInQuery(tableNames, idColumnNames, key.getColumnNames(), key.getInListSize());
+            statementTemplates.putIfAbsent(key, query);
+        }
+
+        return query;
+    }
+
+    /**
+     * <p>Gets the DELETE query of a statement key, forming it only the first time it is requested.</p>
+     * @param key Key whose only column name is the conditional column.
+     * @param tableName Name of the table that DELETE will be performed on.
+     * @return A formed query.
+     */
+    public String getDeleteQuery(StatementKey key, String tableName){
+        String query = statementTemplates.get(key);
+
+        if(query == null){
+            query = formDeleteQuery(tableName, key.getColumnNames().get(0));
+            statementTemplates.putIfAbsent(key, query);
+        }
+
+        return query;
+    }
+
     /**
      * <p>Forms an INSERT query for insertion into the database.</p>
+     * <p><b>Example of such a query:</b> "INSERT INTO TABLE_NAME (COL1,COL2,COL3) VALUES (?,?,?)"</p>
      * @param tableName  Name of the table that we're using for insertion
-     * @param map  Map that contains column names and values
-     * @return
+     * @param columnNames  Names of the columns whose values are inserted, in the order the values are bound
+     * @return A formed query.
      */
-    public String formInsertQuery(String tableName, Map map){
-        // creating a list of column names out of map keys
-        List columnNames = new ArrayList<String>(map.keySet());
-
+    public String formInsertQuery(String tableName, List<String> columnNames){
         StringBuilder stringBuilder = new StringBuilder("INSERT INTO " + tableName + " (");
 
-        // makes a string that looks like "INSERT INTO TABLE_NAME (COL1,COl2,COl3)"
-        for(int i = 0; i < columnNames.size() - 1; i++){
+        // makes a string that looks like "INSERT INTO TABLE_NAME (COL1,COl2,COl3"
+        for(int i = 0; i < columnNames.size(); i++){
             stringBuilder.append(columnNames.get(i));
-            stringBuilder.append(",");
+
+            if(i < columnNames.size() - 1){
+                stringBuilder.append(",");
+            }
         }
 
         // makes a string that looks like "INSERT INTO TABLE NAME (COL1,COL2,COL3) VALUES ("
-        stringBuilder.append(columnNames.get(columnNames.size()-1));
         stringBuilder.append(") VALUES (");
 
+        // makes a string that looks like "INSERT INTO TABLE NAME (COL1,COL2,COL3) VALUES (?,?,?)"
+        appendPlaceholders(stringBuilder, columnNames.size());
+        stringBuilder.append(")");
 
-        // makes a string that looks like "INSERT INTO TABLE NAME (COL1,COL2,COL3) VALUES (VAL1, VAL2, VAL3)"
-        for(int i = 0; i <= columnNames.size() - 1; i++) {
+        return stringBuilder.toString();
+    }
 
-            Object columnValue = map.get(columnNames.get(i));
+    /**
+     * <p>Forms an UPDATE query.</p>
+     * <p><b>Example of such a query:</b> "UPDATE TABLE_NAME SET COL1 = ?, COL2 = ? WHERE ID = ?"</p>
+     * @param tableName Name of the table that UPDATE will be performed on.
+     * @param updatedColumnNames Names of the columns whose values are set, in the order the values are bound.
+     * @param conditionalColumnName Name of the conditional column, its value is bound last.
+     * @return A formed query.
+     */
+    public String formUpdateQuery(String tableName, List<String> updatedColumnNames, String conditionalColumnName){
+        StringBuilder stringBuilder = new StringBuilder("UPDATE " + tableName + " SET ");
 
-            // if columnValue is a String then we need to format it properly
-            if(columnValue instanceof String){
-                stringBuilder.append("'");
-                stringBuilder.append(columnValue);
-                stringBuilder.append("'");
-            } else {
-                // if columnValue is some other type then we're just appending it to the stringBuilder
-                stringBuilder.append(columnValue);
-            }
+        for(int i = 0; i < updatedColumnNames.size(); i++){
+            stringBuilder.append(updatedColumnNames.get(i));
+            stringBuilder.append(" = ?");
 
-            // appending "," for all entries but the last
-            if(i < columnNames.size() - 1){
-                stringBuilder.append(",");
-            } else {
-                // closing the query with a bracket
-                stringBuilder.append(")");
+            if(i < updatedColumnNames.size() - 1){
+                stringBuilder.append(", ");
             }
         }
 
+        stringBuilder.append(" WHERE ");
+        stringBuilder.append(conditionalColumnName);
+        stringBuilder.append(" = ?");
 
         return stringBuilder.toString();
     }
 
     /**
-     * <p>Forms a DELETE query.</p>
-     * @param tableName Name of the table that DELETE will be performed on.
-     * @param columnName Name of the conditional column that the query will use.
-     * @param columnValue Value that a record in the column needs to have in order to be deleted.
+     * <p>Forms a DELETE query that deletes rows by a set of IDs. Without foreign keys the rows of the first table whose IDs
+     * are in the set are deleted. With foreign keys, the rows of the last table that reference the deleted rows through the
+     * path are deleted, each further step of the path being a subselect of the IDs of the previous table.</p>
+     * <p><b>Example of such queries:</b> "DELETE FROM POST WHERE ID IN (?,?)", "DELETE FROM COMMENT WHERE FK_POST_ID IN (?,?)",
+     * "DELETE FROM LIKE WHERE FK_COMMENT_ID IN (SELECT ID FROM COMMENT WHERE FK_POST_ID IN (?,?))"</p>
+     * @param tableNames Names of the tables on the path, starting with the table the IDs belong to.
+     * @param idColumnNames Names of the ID columns of the tables on the path.
+     * @param foreignKeyNames Names of the foreign keys on the path, the first one references the first table.
+     * @param inListSize Number of IDs.
      * @return A formed query.
      */
-    public String formDeleteQuery(String tableName, String columnName, Object columnValue){
+    public String formDeleteInQuery(List<String> tableNames, List<String> idColumnNames, List<String> foreignKeyNames, int inListSize){
+        StringBuilder idSet = new StringBuilder("(");
+        appendPlaceholders(idSet, inListSize);
+        idSet.append(")");
 
-        if (columnValue instanceof String){
-            columnValue = "'"+columnValue+"'";
+        if(foreignKeyNames.isEmpty()){
+            return "DELETE FROM " + tableNames.get(0) + " WHERE " + idColumnNames.get(0) + " IN " + idSet;
         }
 
-        return "DELETE FROM " + tableName + " WHERE " + columnName + " = " + columnValue;
+        String condition = foreignKeyNames.get(0) + " IN " + idSet;
+
+        // every further step selects the IDs of the rows the previous step matched
+        for(int i = 1; i < foreignKeyNames.size(); i++){
+            condition = foreignKeyNames.get(i) + " IN (SELECT " + idColumnNames.get(i) + " FROM " + tableNames.get(i) + " WHERE " + condition + ")";
+        }
+
+        return "DELETE FROM " + tableNames.get(foreignKeyNames.size()) + " WHERE " + condition;
+    }
+
+    /**
+     * <p>Forms a DELETE query.</p>
+     * <p><b>Example of such a query:</b> "DELETE FROM TABLE_NAME WHERE ID = ?"</p>
+     * @param tableName Name of the table that DELETE will be performed on.
+     * @param columnName Name of the conditional column that the query will use.
+     * @return A formed query.
+     */
+    public String formDeleteQuery(String tableName, String columnName){
+        return "DELETE FROM " + tableName + " WHERE " + columnName + " = ?";
     }
 
 
     /**
      * Forms a SELECT query.
-     * <p><b>Example of such a query:</b> "SELECT A, B FROM C WHERE D = E AND F = G". A and B are columns for selection while D,E,F and G are conditional columns and values.</p>
+     * <p><b>Example of such a query:</b> "SELECT A, B FROM C WHERE D = ? AND F = ?". A and B are columns for selection while D and F are conditional columns.</p>
      * @param tableName Name of the table that SELECT needs to be performed on. (C from the above example)
      * @param columnsForSelection List of column names that need to be selected. (A and B from the above example)
-     * @param conditionalColumnNamesAndValues Map of column names and their values which serve as a criteria (condition) for SELECT clause. (D,E,F and G from the above example)
+     * @param conditionalColumnNames Names of the columns which serve as a criteria (condition) for SELECT clause, in the order their values are bound. (D and F from the above example)
      * @return a complete SELECT query.
      */
-    public String formSelectQuery(String tableName, List<String> columnsForSelection, Map<String, Object> conditionalColumnNamesAndValues){
+    public String formSelectQuery(String tableName, List<String> columnsForSelection, List<String> conditionalColumnNames){
         StringBuilder stringBuilder = new StringBuilder("SELECT ");
 
         // appending the columns that need to be selected
@@ -99,38 +270,124 @@ public class QueryFormer {
         stringBuilder.append(" FROM ");
         stringBuilder.append(tableName);
 
+        // a query without conditions selects the whole table
+        if(conditionalColumnNames.isEmpty()){
+            return stringBuilder.toString();
+        }
+
         // appending the conditional columns part
         stringBuilder.append(" WHERE ");
 
-        // converting the keySet to an ArrayList so we can tell at which iteration we're exactly
-        List<String> conditionalColumnNames = new ArrayList<>();
-        conditionalColumnNames.addAll(conditionalColumnNamesAndValues.keySet());
-
         for(int i = 0;  i < conditionalColumnNames.size(); i++){
+            stringBuilder.append(conditionalColumnNames.get(i));
+            stringBuilder.append(" = ?");
 
-            String columnName = conditionalColumnNames.get(i);
-            Object columnValue = conditionalColumnNamesAndValues.get(columnName);
+            // appending AND if not we're on the last column name
+            if(i < conditionalColumnNames.size() -1){
+                stringBuilder.append(" AND ");
+            }
+        }
 
+        return stringBuilder.toString();
+    }
 
-            stringBuilder.append(columnName);
-            stringBuilder.append(" = ");
+    /**
+     * <p>Forms a SELECT query that selects the rows whose column is equal to any of the given values.</p>
+     * <p><b>Example of such a query:</b> "SELECT ID, TITLE FROM TABLE_NAME WHERE ID IN (?,?,?,?)"</p>
+     * @param tableName Name of the table that SELECT needs to be performed on.
+     * @param columnsForSelection List of column names that need to be selected.
+     * @param conditionalColumnName Name of the column that is compared with the values.
+     * @param inListSize Number of placeholders of the IN list.
+     * @return A formed query.
+     */
+    public String formSelectInQuery(String tableName, List<String> columnsForSelection, String conditionalColumnName, int inListSize){
+        StringBuilder stringBuilder = new StringBuilder(formSelectQuery(tableName, columnsForSelection, Collections.<String>emptyList()));
 
-            // single-quoting columnValue
-            if(columnValue instanceof String){
-                stringBuilder.append("'");
-                stringBuilder.append(columnValue);
-                stringBuilder.append("'");
-            } else {
-                // columnValue isn't a String
-                stringBuilder.append(columnValue);
-            }
+        stringBuilder.append(" WHERE ");
+        stringBuilder.append(conditionalColumnName);
+        stringBuilder.append(" IN (");
+        appendPlaceholders(stringBuilder, inListSize);
+        stringBuilder.append(")");
 
-            // appending AND if not we're on the last column name
-            if(i < conditionalColumnNames.size() -1){
-                stringBuilder.append(" AND ");
+        return stringBuilder.toString();
+    }
+
+    /**
+     * <p>Forms a SELECT query that selects the rows of a table that match a condition, each of them joined with the rows of
+     * other tables by LEFT JOINs. Tables are aliased by their position ({@link #getTableAlias(int)}) and every column is
+     * labeled with the alias of its table ({@link #getLabelPrefix(int)}), so that equally named columns of different tables
+     * can be told apart.</p>
+     * <p><b>Example of such a query:</b> "SELECT t0.ID AS t0_ID, t1.ID AS t1_ID, t1.FK AS t1_FK FROM PARENT t0 LEFT JOIN CHILD t1
+     * ON t1.FK = t0.ID WHERE t0.ID = ?"</p>
+     * @param tableNames Names of the tables, starting with the table whose rows are selected.
+     * @param columnsForSelection Names of the selected columns of every table.
+     * @param rootJoinColumnNames Columns of the first table that the joined tables are joined on, one per joined table.
+     * @param joinedColumnNames Columns of the joined tables that are equal to the columns of the first table.
+     * @param conditionalColumnName Name of the column of the first table that the query will use as its condition.
+     * @return A formed query.
+     */
+    public String formJoinSelectQuery(List<String> tableNames, List<List<String>> columnsForSelection, List<String> rootJoinColumnNames,
+                                      List<String> joinedColumnNames, String conditionalColumnName){
+        StringBuilder stringBuilder = new StringBuilder("SELECT ");
+
+        // appending the labeled columns of every table
+        for(int i = 0; i < tableNames.size(); i++){
+            String alias = getTableAlias(i);
+
+            for(String columnName : columnsForSelection.get(i)){
+                if(stringBuilder.length() > "SELECT ".length()){
+                    stringBuilder.append(", ");
+                }
+
+                stringBuilder.append(alias).append('.').append(columnName);
+                stringBuilder.append(" AS ").append(getLabelPrefix(i)).append(columnName);
             }
         }
 
+        stringBuilder.append(" FROM ").append(tableNames.get(0)).append(' ').append(getTableAlias(0));
+
+        // appending the joined tables
+        for(int i = 1; i < tableNames.size(); i++){
+            String alias = getTableAlias(i);
+
+            stringBuilder.append(" LEFT JOIN ").append(tableNames.get(i)).append(' ').append(alias);
+            stringBuilder.append(" ON ").append(alias).append('.').append(joinedColumnNames.get(i - 1));
+            stringBuilder.append(" = ").append(getTableAlias(0)).append('.').append(rootJoinColumnNames.get(i - 1));
+        }
+
+        stringBuilder.append(" WHERE ").append(getTableAlias(0)).append('.').append(conditionalColumnName).append(" = ?");
+
         return stringBuilder.toString();
     }
+
+    /**
+     * @param tableIndex Position of a table in a join query.
+     * @return Alias of the table.
+     */
+    public static String getTableAlias(int tableIndex){
+        return "t" + tableIndex;
+    }
+
+    /**
+     * @param tableIndex Position of a table in a join query.
+     * @return Prefix of the labels of the table's columns.
+     */
+    public static String getLabelPrefix(int tableIndex){
+        return getTableAlias(tableIndex) + "_";
+    }
+
+    /**
+     * Appends comma separated placeholders.
+     * @param stringBuilder Builder to which the placeholders are appended.
+     * @param count Number of placeholders.
+     */
+    private void appendPlaceholders(StringBuilder stringBuilder, int count){
+        for(int i = 0; i < count; i++){
+            stringBuilder.append("?");
+
+            if(i < count - 1){
+                stringBuilder.append(",");
+            }
+        }
+    }
 }
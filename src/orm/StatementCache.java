@@ -0,0 +1,117 @@
+package orm;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <p>Least recently used cache of prepared statements that belong to a single connection. When the cache is full the
+ * least recently used statement is closed and removed.</p>
+ * <p>A connection is used by one thread at a time, so the cache itself isn't synchronized. The hit, miss and eviction
+ * counters can be read from any thread.</p>
+ */
+public class StatementCache {
+
+    private final int maxSize;
+    private final Map<StatementKey, PreparedStatement> statements;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * @param maxSize Maximum number of statements that are kept open.
+     */
+    public StatementCache(final int maxSize) {
+        this.maxSize = maxSize;
+
+        // access ordered map, the eldest entry is the least recently used one
+        this.statements = new LinkedHashMap<StatementKey, PreparedStatement>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<StatementKey, PreparedStatement> eldest) {
+                if (size() <= StatementCache.this.maxSize) {
+                    return false;
+                }
+
+                evictions.increment();
+                closeStatement(eldest.getValue());
+
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Gets a cached statement.
+     * @param key Key of the statement.
+     * @return The statement or null if it isn't cached.
+     */
+    public PreparedStatement get(StatementKey key) {
+        PreparedStatement statement = statements.get(key);
+
+        if (statement == null) {
+            misses.increment();
+        } else {
+            hits.increment();
+        }
+
+        return statement;
+    }
+
+    /**
+     * Caches a statement, possibly evicting the least recently used one.
+     * @param key Key of the statement.
+     * @param statement Statement that needs to be cached.
+     */
+    public void put(StatementKey key, PreparedStatement statement) {
+        if (maxSize <= 0) {
+            return;
+        }
+
+        statements.put(key, statement);
+    }
+
+    /**
+     * @return <b>true</b> if statements can be cached at all.
+     */
+    public boolean isEnabled() {
+        return maxSize > 0;
+    }
+
+    /**
+     * Closes and removes all of the cached statements.
+     */
+    public void clear() {
+        for (PreparedStatement statement : statements.values()) {
+            closeStatement(statement);
+        }
+
+        statements.clear();
+    }
+
+    public int size() {
+        return statements.size();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    private void closeStatement(PreparedStatement statement) {
+        try {
+            statement.close();
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+}
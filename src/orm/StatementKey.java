@@ -0,0 +1,122 @@
+package orm;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * <p>Identifies a statement by the entity it works with, the operation it performs and the columns whose values are bound
+ * to its placeholders. Two statements with equal keys always have the same SQL text, which lets the SQL and the prepared
+ * statement be formed once and reused.</p>
+ */
+public class StatementKey {
+
+    /**
+     * Operation that a statement performs.
+     */
+    public enum Operation {
+        INSERT,
+        SELECT,
+        SELECT_JOIN,
+        UPDATE,
+        DELETE
+    }
+
+    private final Class<?> entityClass;
+    private final Operation operation;
+    private final List<String> columnNames;
+    private final int inListSize;
+    private final List<String> tableNames;
+    private final int hashCode;
+
+    /**
+     * @param entityClass Entity class the statement works with.
+     * @param operation Operation the statement performs.
+     * @param columnNames Names of the columns whose values are bound, in order.
+     */
+    public StatementKey(Class<?> entityClass, Operation operation, List<String> columnNames) {
+        this(entityClass, operation, columnNames, 0);
+    }
+
+    /**
+     * @param entityClass Entity class the statement works with.
+     * @param operation Operation the statement performs.
+     * @param columnNames Names of the columns the statement is formed of.
+     * @param inListSize Number of placeholders of the statement's IN list (0 if it doesn't have one).
+     */
+    public StatementKey(Class<?> entityClass, Operation operation, List<String> columnNames, int inListSize) {
+        this(entityClass, operation, columnNames, inListSize, Collections.<String>emptyList());
+    }
+
+    /**
+     * @param entityClass Entity class the statement works with.
+     * @param operation Operation the statement performs.
+     * @param columnNames Names of the columns the statement is formed of.
+     * @param inListSize Number of placeholders of the statement's IN list (0 if it doesn't have one).
+     * @param tableNames Names of the tables the statement is formed of, when they don't follow from the entity class (e.g.
+     * the path of a cascaded DELETE), empty otherwise.
+     */
+    public StatementKey(Class<?> entityClass, Operation operation, List<String> columnNames, int inListSize, List<String> tableNames) {
+        this.entityClass = entityClass;
+        this.operation = operation;
+        this.columnNames = Collections.unmodifiableList(columnNames);
+        this.inListSize = inListSize;
+        this.tableNames = Collections.unmodifiableList(tableNames);
+
+        // keys are looked up on every statement, computing the hash only once
+        int hash = entityClass.hashCode();
+        hash = 31 * hash + operation.hashCode();
+        hash = 31 * hash + columnNames.hashCode();
+        hash = 31 * hash + inListSize;
+        hash = 31 * hash + tableNames.hashCode();
+        this.hashCode = hash;
+    }
+
+    public Class<?> getEntityClass() {
+        return entityClass;
+    }
+
+    public Operation getOperation() {
+        return operation;
+    }
+
+    public List<String> getColumnNames() {
+        return columnNames;
+    }
+
+    public int getInListSize() {
+        return inListSize;
+    }
+
+    public List<String> getTableNames() {
+        return tableNames;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if(this == obj)
+            return true;
+
+        if(obj == null || this.getClass() != obj.getClass())
+            return false;
+
+        StatementKey other = (StatementKey) obj;
+
+        return hashCode == other.hashCode
+                && entityClass == other.entityClass
+                && operation == other.operation
+                && inListSize == other.inListSize
+                && columnNames.equals(other.columnNames)
+                && tableNames.equals(other.tableNames);
+    }
+
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+
+    @Override
+    public String toString() {
+        return entityClass.getSimpleName() + " " + operation + " " + columnNames + (inListSize > 0 ? " IN " + inListSize : "")
+                + (tableNames.isEmpty() ? "" : " " + tableNames);
+    }
+}
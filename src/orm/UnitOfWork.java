@@ -0,0 +1,131 @@
+package orm;
+
+import orm.metadata.EntityMetadata;
+import orm.metadata.ManyToOneMetadata;
+import orm.metadata.OneToManyMetadata;
+
+import java.util.*;
+
+/**
+ * <p>Collects entities that are waiting to be inserted. Entities are grouped by their class, so that every group can be
+ * written with a single batched statement, and groups are ordered by their foreign key dependencies, so that referenced
+ * entities (e.g. PostEntity) are always inserted before the entities referencing them (e.g. CommentEntity).</p>
+ */
+public class UnitOfWork {
+
+    private final EntityHelper entityHelper;
+
+    // pending entities grouped by class, in the order the classes were first registered
+    private final Map<Class<?>, List<Object>> pendingEntities = new LinkedHashMap<>();
+
+    // used to register each entity only once, even if its equals method considers different entities equal
+    private final Set<Object> registeredEntities = Collections.newSetFromMap(new IdentityHashMap<Object, Boolean>());
+
+    public UnitOfWork(EntityHelper entityHelper) {
+        this.entityHelper = entityHelper;
+    }
+
+    /**
+     * <p>Registers an entity for insertion together with the children of all of its OneToMany associations.
+     * Every child gets its ManyToOne field set to reference the registered entity.</p>
+     * @param object Entity that needs to be inserted.
+     */
+    public void registerNew(Object object) {
+        if (!registeredEntities.add(object)) {
+            return;
+        }
+
+        Class<?> clazz = object.getClass();
+        EntityMetadata metadata = entityHelper.getMetadata(clazz);
+
+        List<Object> group = pendingEntities.get(clazz);
+
+        if (group == null) {
+            group = new ArrayList<>();
+            pendingEntities.put(clazz, group);
+        }
+
+        group.add(object);
+
+        // cascading to the children
+        for (OneToManyMetadata oneToMany : metadata.getOneToManyAssociations()) {
+            List children = (List) oneToMany.getAccessor().get(object);
+
+            if (children == null || oneToMany.getElementType() == null) {
+                continue;
+            }
+
+            ManyToOneMetadata manyToOne = entityHelper.getMetadata(oneToMany.getElementType()).findManyToOne(oneToMany.getMappedBy());
+
+            for (Object child : children) {
+                if (manyToOne != null) {
+                    manyToOne.getAccessor().set(child, object);
+                }
+
+                registerNew(child);
+            }
+        }
+    }
+
+    /**
+     * @return <b>true</b> if there are no pending entities.
+     */
+    public boolean isEmpty() {
+        return pendingEntities.isEmpty();
+    }
+
+    /**
+     * <p>Gets the pending entities grouped by class. A group always comes after the groups of the classes it references
+     * through ManyToOne associations. If the references are cyclic the registration order is kept for the classes in the cycle.</p>
+     * @return Groups of pending entities in insertion order.
+     */
+    public Map<Class<?>, List<Object>> getOrderedGroups() {
+        return orderByDependencies(pendingEntities);
+    }
+
+    /**
+     * <p>Orders groups of entities so that a group always comes after the groups of the classes it references through
+     * ManyToOne associations. If the references are cyclic the original order is kept for the classes in the cycle.</p>
+     * @param groups Entities grouped by class.
+     * @return The same groups, referenced classes first.
+     */
+    public Map<Class<?>, List<Object>> orderByDependencies(Map<Class<?>, List<Object>> groups) {
+        Map<Class<?>, List<Object>> orderedGroups = new LinkedHashMap<>();
+        Set<Class<?>> visiting = new HashSet<>();
+
+        for (Class<?> clazz : groups.keySet()) {
+            addGroup(clazz, groups, orderedGroups, visiting);
+        }
+
+        return orderedGroups;
+    }
+
+    /**
+     * Clears all pending entities.
+     */
+    public void clear() {
+        pendingEntities.clear();
+        registeredEntities.clear();
+    }
+
+    /**
+     * Adds a group after the groups of all the classes it depends on (depth first topological sort).
+     */
+    private void addGroup(Class<?> clazz, Map<Class<?>, List<Object>> groups, Map<Class<?>, List<Object>> orderedGroups, Set<Class<?>> visiting) {
+        // already added, or we're in a cycle
+        if (orderedGroups.containsKey(clazz) || !visiting.add(clazz)) {
+            return;
+        }
+
+        for (ManyToOneMetadata manyToOne : entityHelper.getMetadata(clazz).getManyToOneAssociations()) {
+            Class<?> referencedClass = manyToOne.getTargetType();
+
+            // a class referencing itself (or a class that has nothing pending) doesn't need to be ordered
+            if (referencedClass != clazz && groups.containsKey(referencedClass)) {
+                addGroup(referencedClass, groups, orderedGroups, visiting);
+            }
+        }
+
+        orderedGroups.put(clazz, groups.get(clazz));
+    }
+}
@@ -0,0 +1,13 @@
+package orm.access;
+
+/**
+ * <p>Creates new instances of an entity class through its no-argument constructor. Instantiators are created once per class
+ * by a {@link PropertyAccessorFactory}, so hydrating a row doesn't look the constructor up again.</p>
+ */
+public interface EntityInstantiator {
+
+    /**
+     * @return A new instance of the entity class.
+     */
+    Object newInstance();
+}
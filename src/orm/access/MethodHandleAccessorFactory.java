@@ -0,0 +1,150 @@
+package orm.access;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+
+/**
+ * <p>Creates accessors backed by field getter and setter method handles. The handles are resolved once per field
+ * and adapted to erased signatures so that they can be called with invokeExact, which skips the access and argument
+ * checks that Field.get and Field.set repeat on every call.</p>
+ * <p>The handles are held in instance fields of the accessors, not in static final fields, so the JIT can't treat them
+ * as constants and a call still goes through the handle rather than being reduced to a plain field read or write.</p>
+ * <p>For int fields a second pair of handles with the (Object)int and (Object,int)void signatures is kept, so
+ * columns like the ID of BasicEntity can be read and written without boxing.</p>
+ */
+public class MethodHandleAccessorFactory implements PropertyAccessorFactory {
+
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+    private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+    private static final MethodType INT_GETTER_TYPE = MethodType.methodType(int.class, Object.class);
+    private static final MethodType INT_SETTER_TYPE = MethodType.methodType(void.class, Object.class, int.class);
+    private static final MethodType CONSTRUCTOR_TYPE = MethodType.methodType(Object.class);
+
+    private final MethodHandles.Lookup lookup = MethodHandles.lookup();
+
+    @Override
+    public PropertyAccessor createAccessor(Field field) {
+        // private fields can only be unreflected once they are accessible
+        field.setAccessible(true);
+
+        try {
+            MethodHandle getter = lookup.unreflectGetter(field);
+            MethodHandle setter = lookup.unreflectSetter(field);
+
+            MethodHandle intGetter = null;
+            MethodHandle intSetter = null;
+
+            // primitive-specialized handles, only int fields get them
+            if (field.getType() == int.class) {
+                intGetter = getter.asType(INT_GETTER_TYPE);
+                intSetter = setter.asType(INT_SETTER_TYPE);
+            }
+
+            return new MethodHandleAccessor(field, getter.asType(GETTER_TYPE), setter.asType(SETTER_TYPE), intGetter, intSetter);
+
+        } catch (IllegalAccessException e) {
+            // falling back to reflection if the handles couldn't be created
+            e.printStackTrace();
+            return new ReflectionAccessorFactory().createAccessor(field);
+        }
+    }
+
+    @Override
+    public EntityInstantiator createInstantiator(Class<?> clazz) {
+        if (Modifier.isAbstract(clazz.getModifiers())) {
+            return null;
+        }
+
+        try {
+            Constructor<?> constructor = clazz.getDeclaredConstructor();
+            constructor.setAccessible(true);
+
+            final MethodHandle handle = lookup.unreflectConstructor(constructor).asType(CONSTRUCTOR_TYPE);
+
+            return () -> {
+                try {
+                    return (Object) handle.invokeExact();
+                } catch (Throwable throwable) {
+                    throw new IllegalStateException("Couldn't instantiate " + clazz.getSimpleName() + ".", throwable);
+                }
+            };
+        } catch (NoSuchMethodException e) {
+            return null;
+        } catch (IllegalAccessException e) {
+            // falling back to reflection if the handle couldn't be created
+            e.printStackTrace();
+            return new ReflectionAccessorFactory().createInstantiator(clazz);
+        }
+    }
+
+    private static class MethodHandleAccessor implements PropertyAccessor {
+
+        private final Field field;
+        private final MethodHandle getter;
+        private final MethodHandle setter;
+        private final MethodHandle intGetter;
+        private final MethodHandle intSetter;
+
+        MethodHandleAccessor(Field field, MethodHandle getter, MethodHandle setter, MethodHandle intGetter, MethodHandle intSetter) {
+            this.field = field;
+            this.getter = getter;
+            this.setter = setter;
+            this.intGetter = intGetter;
+            this.intSetter = intSetter;
+        }
+
+        @Override
+        public Class<?> getType() {
+            return field.getType();
+        }
+
+        @Override
+        public Object get(Object target) {
+            try {
+                return (Object) getter.invokeExact(target);
+            } catch (Throwable throwable) {
+                throw new IllegalStateException("Couldn't read the field " + field.getName() + ".", throwable);
+            }
+        }
+
+        @Override
+        public void set(Object target, Object value) {
+            try {
+                setter.invokeExact(target, value);
+            } catch (Throwable throwable) {
+                throw new IllegalStateException("Couldn't write the field " + field.getName() + ".", throwable);
+            }
+        }
+
+        @Override
+        public int getInt(Object target) {
+            if (intGetter == null) {
+                return ((Number) get(target)).intValue();
+            }
+
+            try {
+                return (int) intGetter.invokeExact(target);
+            } catch (Throwable throwable) {
+                throw new IllegalStateException("Couldn't read the field " + field.getName() + ".", throwable);
+            }
+        }
+
+        @Override
+        public void setInt(Object target, int value) {
+            if (intSetter == null) {
+                set(target, value);
+                return;
+            }
+
+            try {
+                intSetter.invokeExact(target, value);
+            } catch (Throwable throwable) {
+                throw new IllegalStateException("Couldn't write the field " + field.getName() + ".", throwable);
+            }
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package orm.access;
+
+/**
+ * <p>Reads and writes a single mapped property of an entity. Accessors are created once per field by a
+ * {@link PropertyAccessorFactory} and reused for every entity instance of the class.</p>
+ * <p>Properties of the primitive int type can be read and written through {@link #getInt(Object)} and
+ * {@link #setInt(Object, int)} without boxing the value.</p>
+ */
+public interface PropertyAccessor {
+
+    /**
+     * @return Type of the property.
+     */
+    Class<?> getType();
+
+    /**
+     * Reads the value of the property.
+     * @param target Object that contains the property.
+     * @return Value of the property (boxed if the property is primitive).
+     */
+    Object get(Object target);
+
+    /**
+     * Writes the value of the property.
+     * @param target Object that contains the property.
+     * @param value Value that needs to be written (unboxed if the property is primitive).
+     */
+    void set(Object target, Object value);
+
+    /**
+     * Reads the value of a property whose type is int.
+     * @param target Object that contains the property.
+     * @return Value of the property.
+     */
+    int getInt(Object target);
+
+    /**
+     * Writes the value of a property whose type is int.
+     * @param target Object that contains the property.
+     * @param value Value that needs to be written.
+     */
+    void setInt(Object target, int value);
+}
@@ -0,0 +1,24 @@
+package orm.access;
+
+import java.lang.reflect.Field;
+
+/**
+ * <p>Creates {@link PropertyAccessor}s for mapped fields. Implementations can be swapped when building an
+ * {@link orm.metadata.EntityMetadataRegistry}.</p>
+ */
+public interface PropertyAccessorFactory {
+
+    /**
+     * Creates an accessor for a field. It is called only once per field, while the metadata of its class is built.
+     * @param field Field that needs to be accessed.
+     * @return Accessor of the field.
+     */
+    PropertyAccessor createAccessor(Field field);
+
+    /**
+     * Creates an instantiator for a class. It is called only once per class, while the metadata of the class is built.
+     * @param clazz Class whose instances are created.
+     * @return Instantiator of the class, or null if the class doesn't have a no-argument constructor.
+     */
+    EntityInstantiator createInstantiator(Class<?> clazz);
+}
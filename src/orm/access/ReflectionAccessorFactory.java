@@ -0,0 +1,94 @@
+package orm.access;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+
+/**
+ * <p>Creates accessors that use plain reflection (Field.get and Field.set). Slower than
+ * {@link MethodHandleAccessorFactory}, but works under security managers that disallow method handle lookups.</p>
+ */
+public class ReflectionAccessorFactory implements PropertyAccessorFactory {
+
+    @Override
+    public PropertyAccessor createAccessor(Field field) {
+        // setting the access modifier of the field to public once
+        field.setAccessible(true);
+
+        return new ReflectionAccessor(field);
+    }
+
+    @Override
+    public EntityInstantiator createInstantiator(Class<?> clazz) {
+        if (Modifier.isAbstract(clazz.getModifiers())) {
+            return null;
+        }
+
+        final Constructor<?> constructor;
+
+        try {
+            constructor = clazz.getDeclaredConstructor();
+            constructor.setAccessible(true);
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+
+        return () -> {
+            try {
+                return constructor.newInstance();
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException("Couldn't instantiate " + clazz.getSimpleName() + ".", e);
+            }
+        };
+    }
+
+    private static class ReflectionAccessor implements PropertyAccessor {
+
+        private final Field field;
+
+        ReflectionAccessor(Field field) {
+            this.field = field;
+        }
+
+        @Override
+        public Class<?> getType() {
+            return field.getType();
+        }
+
+        @Override
+        public Object get(Object target) {
+            try {
+                return field.get(target);
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException("Couldn't read the field " + field.getName() + ".", e);
+            }
+        }
+
+        @Override
+        public void set(Object target, Object value) {
+            try {
+                field.set(target, value);
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException("Couldn't write the field " + field.getName() + ".", e);
+            }
+        }
+
+        @Override
+        public int getInt(Object target) {
+            try {
+                return field.getInt(target);
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException("Couldn't read the field " + field.getName() + ".", e);
+            }
+        }
+
+        @Override
+        public void setInt(Object target, int value) {
+            try {
+                field.setInt(target, value);
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException("Couldn't write the field " + field.getName() + ".", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package orm.annotations;
+
+import java.lang.annotation.*;
+
+/**
+ * <p>Marks the Entity as cacheable in the process-wide second-level cache. Loading a cached entity by its ID doesn't touch
+ * the database. Cached entries are invalidated when the entity is updated or deleted through the ORM.</p>
+ * <b>region</b> (optional) - name of the cache region. Entities with the same region share its size bound. If not provided the
+ * table name is used.
+ * <br>
+ * <b>maxBytes</b> (optional) - estimated size in bytes the region can take up before entries are evicted.
+ * <br>
+ * <b>timeToLive</b> (optional) - number of milliseconds an entry stays cached after it has been put into the region, 0 for no expiry.
+ * <br>
+ * <b>eviction</b> (optional) - policy used to pick the evicted entries, W_TINY_LFU if not provided.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+@Inherited
+public @interface Cacheable {
+    String region() default "";
+    long maxBytes() default 16 * 1024 * 1024;
+    long timeToLive() default 0;
+    EvictionPolicy eviction() default EvictionPolicy.W_TINY_LFU;
+}
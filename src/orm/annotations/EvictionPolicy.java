@@ -0,0 +1,14 @@
+package orm.annotations;
+
+/**
+ * <p>Policy that decides which entries are removed from a full second-level cache region.</p>
+ * <b>LRU</b> - the least recently used entry is removed.
+ * <br>
+ * <b>W_TINY_LFU</b> - new entries pass through a small LRU window and are admitted into the main region only if they are used
+ * more frequently than the entry they would replace. Frequencies are estimated by a compact sketch that forgets old history,
+ * which keeps hot rows cached when a scan touches many rows only once.
+ */
+public enum EvictionPolicy {
+    LRU,
+    W_TINY_LFU
+}
@@ -6,10 +6,20 @@ import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
 
 /**
- * <p>Marks the field as a value that is auto-generated by the database engine. The annotated field will be skipped when persisting an entity into
- * the table, but after the entity has been persisted this field will be loaded from the database. </p>
+ * <p>Marks the field as a generated value. With the default IDENTITY strategy the value is generated by the database engine: the annotated
+ * field will be skipped when persisting an entity into the table, but after the entity has been persisted this field will be loaded from the
+ * database. With any other strategy the value is assigned before the entity is inserted.</p>
+ * <b>strategy</b> (optional) - how the value is generated, IDENTITY if not provided.
+ * <br>
+ * <b>generator</b> (optional) - name of the sequence (SEQUENCE, HILO) or of the ID_GENERATORS row (TABLE). If not provided it is derived
+ * from the table name.
+ * <br>
+ * <b>allocationSize</b> (optional) - number of values reserved with a single database call.
  */
 @Retention(RetentionPolicy.RUNTIME)
 @Target(ElementType.FIELD)
 public @interface GeneratedValue {
+    GenerationType strategy() default GenerationType.IDENTITY;
+    String generator() default "";
+    int allocationSize() default 50;
 }
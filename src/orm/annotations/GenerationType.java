@@ -0,0 +1,22 @@
+package orm.annotations;
+
+/**
+ * <p>Strategy that is used to generate the value of a field marked as GeneratedValue.</p>
+ * <b>IDENTITY</b> - the value is generated by the database engine on insertion (auto increment/identity column).
+ * <br>
+ * <b>SEQUENCE</b> - values are reserved in blocks from a database sequence that increments by the allocation size.
+ * <br>
+ * <b>HILO</b> - a database sequence that increments by one provides the "hi" part, the "lo" part is counted in memory.
+ * <br>
+ * <b>TABLE</b> - values are reserved in blocks by incrementing a row of the ID_GENERATORS table.
+ * <br>
+ * <b>UUID</b> - a time-ordered version 7 UUID is generated in memory. The field must be a String or a java.util.UUID.
+ * <p>All strategies but IDENTITY assign the value before the entity is inserted.</p>
+ */
+public enum GenerationType {
+    IDENTITY,
+    SEQUENCE,
+    HILO,
+    TABLE,
+    UUID
+}
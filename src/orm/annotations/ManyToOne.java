@@ -9,4 +9,10 @@ import java.lang.annotation.Target;
 @Target(ElementType.FIELD)
 
 public @interface ManyToOne {
+
+    /**
+     * Number of references to entities of the same class that are loaded with a single query once one of them is read.
+     * 1 loads every reference on its own.
+     */
+    int batchSize() default 1;
 }
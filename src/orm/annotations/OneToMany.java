@@ -9,4 +9,10 @@ import java.lang.annotation.Target;
 @Target(ElementType.FIELD)
 public @interface OneToMany {
     String mappedBy();
+
+    /**
+     * Number of lists of different owners that are loaded with a single query once one of them is accessed.
+     * 1 loads every list on its own.
+     */
+    int batchSize() default 1;
 }
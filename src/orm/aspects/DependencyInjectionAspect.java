@@ -1,103 +1,75 @@
 package orm.aspects;
 
-import org.aspectj.lang.JoinPoint;
-import org.aspectj.lang.annotation.After;
+import org.aspectj.lang.annotation.AfterReturning;
 import org.aspectj.lang.annotation.Aspect;
-import org.aspectj.lang.annotation.Before;
-import org.aspectj.lang.annotation.Pointcut;
-import orm.annotations.ManyToOne;
-import orm.annotations.OneToMany;
-
-import java.lang.annotation.Annotation;
-import java.lang.reflect.Field;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.ParameterizedType;
-import java.lang.reflect.Type;
-
+import orm.access.EntityInstantiator;
+import orm.metadata.EntityMetadata;
+import orm.metadata.EntityMetadataRegistry;
+import orm.metadata.ManyToOneMetadata;
+import orm.metadata.OneToManyMetadata;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * <p>Initializes the association fields of an entity once, right after the entity has been constructed. OneToMany lists
+ * get an empty ArrayList and ManyToOne fields get a new instance of the referenced entity, unless the constructor has
+ * assigned them already.</p>
+ * <p>Fields are found through the cached {@link EntityMetadata} of the class and written through its accessors, so the
+ * only cost of constructing an entity is a metadata lookup and one write per association.</p>
+ */
 @Aspect
 public class DependencyInjectionAspect {
 
-
-    @Pointcut("@annotation(orm.annotations.Entity)")
-    public void atEntity(){}
-
-    @Pointcut("execution(* *(..))")
-    public void atExecution(){
-    }
-
-    @Before("execution(* (@orm.annotations.Entity *).*(..))")
-    public void initializeFields(JoinPoint pointcut){
-       // object that the pointcut is called upon
-       Object targetObject = pointcut.getTarget();
-       // class of the target object
-       Class targetObjectClass;
-
-       try {
-           targetObjectClass = targetObject.getClass();
-       }
-       catch(NullPointerException npe){
-           return;
-       }
-       // field of target object's class
-       Field[] targetClassFields = targetObjectClass.getDeclaredFields();
-
-
-       // looking for fields that are annotated with OneTomany or ManyToOne and initializing their values
-       for(Field field: targetClassFields){
-           Annotation[] annotations = field.getDeclaredAnnotations();
-
-
-           for(Annotation annotation : annotations){
-
-                   field.setAccessible(true);
-
-                   try {
-                       Object fieldValue = field.get(targetObject);
-
-                       if(fieldValue == null){
-
-                           // checking if the type's generic
-                           Type type = field.getGenericType();
-
-                           // oh yes, it is
-                           if(type instanceof ParameterizedType){
-                               ParameterizedType parameterizedType = (ParameterizedType) type;
-
-                               // looking for the wrapping type - can be List, ArrayList, etc.
-                               Type rawType = parameterizedType.getRawType();
-
-                               String className = null;
-
-                               // checking if it's a List
-                               if(rawType.getTypeName().contains("java.util.List")){
-                                   // it is a list, since we can't initialize it as a List, we'll initialize it as an ArrayList
-                                   className = "java.util.ArrayList";
-                               }
-
-
-                               // gets class of ArrayList
-                               Class cls = Class.forName(className);
-
-                               // initializes field with a new ArrayList object
-                               fieldValue = cls.getDeclaredConstructor().newInstance();
-                               field.set(targetObject, fieldValue);
-                           } else {
-                             // not a generic type
-
-                             // getting type's class
-                             Class cls = Class.forName(type.getTypeName());
-                             // initializing the field value
-                               fieldValue = cls.getDeclaredConstructor().newInstance();
-                               field.set(targetObject, fieldValue);
-                           }
-
-                       }
-                   } catch (IllegalAccessException | ClassNotFoundException | NoSuchMethodException | InstantiationException | InvocationTargetException e) {
-                       e.printStackTrace();
-                   }
-               }
-
-
-       }
+    // classes whose instances are being initialized by the current thread, a ManyToOne that references one of them
+    // (e.g. a parent of the same class) would otherwise construct entities endlessly
+    private static final ThreadLocal<Set<Class<?>>> initializing = new ThreadLocal<Set<Class<?>>>() {
+        @Override
+        protected Set<Class<?>> initialValue() {
+            return new HashSet<>();
+        }
+    };
+
+    @AfterReturning(pointcut = "execution((@orm.annotations.Entity *).new(..)) && this(entity)", argNames = "entity")
+    public void initializeFields(Object entity){
+        EntityMetadata metadata = EntityMetadataRegistry.getInstance().getMetadata(entity.getClass());
+
+        for(OneToManyMetadata oneToMany : metadata.getOneToManyAssociations()){
+            // only list fields can be initialized, an ArrayList can't be assigned to any other type
+            if(oneToMany.getField().getType().isAssignableFrom(ArrayList.class) && oneToMany.getAccessor().get(entity) == null){
+                oneToMany.getAccessor().set(entity, new ArrayList<>());
+            }
+        }
+
+        if(metadata.getManyToOneAssociations().isEmpty()){
+            return;
+        }
+
+        Set<Class<?>> classes = initializing.get();
+
+        // constructing a superclass of an entity that is already being initialized
+        if(!classes.add(entity.getClass())){
+            return;
+        }
+
+        try {
+            for(ManyToOneMetadata manyToOne : metadata.getManyToOneAssociations()){
+                Class<?> targetType = manyToOne.getTargetType();
+
+                // referenced entity would reference an entity that is being initialized
+                if(classes.contains(targetType) || manyToOne.getAccessor().get(entity) != null){
+                    continue;
+                }
+
+                EntityInstantiator instantiator = EntityMetadataRegistry.getInstance().getMetadata(targetType).getInstantiator();
+
+                if(instantiator != null){
+                    manyToOne.getAccessor().set(entity, instantiator.newInstance());
+                }
+            }
+        } finally {
+            classes.remove(entity.getClass());
+        }
     }
 }
@@ -0,0 +1,35 @@
+package orm.aspects;
+
+import org.aspectj.lang.JoinPoint;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.annotation.Before;
+import org.aspectj.lang.annotation.DeclareParents;
+import org.aspectj.lang.reflect.FieldSignature;
+import orm.lazy.LazyEntity;
+import orm.lazy.LazyReferences;
+import orm.lazy.PendingReferences;
+
+/**
+ * <p>Loads lazy ManyToOne references. A ManyToOne field of a loaded entity stays null until the field is read for the first
+ * time, right before the read the referenced entity is loaded by the session that loaded the entity and written into the field.</p>
+ * <p>Pending references are kept by the entities themselves: every Entity class implements {@link LazyEntity}, backed by a
+ * {@link PendingReferences} instance of its own.</p>
+ */
+@Aspect
+public class LazyLoadingAspect {
+
+    @DeclareParents(value = "@orm.annotations.Entity *", defaultImpl = PendingReferences.class)
+    public static LazyEntity lazyEntity;
+
+    @Before(value = "get(@orm.annotations.ManyToOne * *) && target(entity)", argNames = "joinPoint,entity")
+    public void loadReference(JoinPoint joinPoint, Object entity) {
+        // has no effect if the field isn't a lazy reference or it has been loaded already
+        LazyReferences.resolve(entity, ((FieldSignature) joinPoint.getSignature()).getField());
+    }
+
+    @Before(value = "set(@orm.annotations.ManyToOne * *) && target(entity)", argNames = "joinPoint,entity")
+    public void dropReference(JoinPoint joinPoint, Object entity) {
+        // the written value replaces the reference that hasn't been loaded yet
+        LazyReferences.remove(entity, ((FieldSignature) joinPoint.getSignature()).getField());
+    }
+}
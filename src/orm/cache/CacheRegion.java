@@ -0,0 +1,244 @@
+package orm.cache;
+
+import orm.annotations.EvictionPolicy;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <p>Named, bounded part of the {@link SecondLevelCache}. A region maps keys to the disassembled state of entities (the
+ * values of their columns) and evicts entries according to its {@link EvictionPolicy} once their estimated size exceeds
+ * the bound. Entries can also expire after a time to live.</p>
+ * <p>The region is thread-safe. Every invalidation increments the region's version, which lets a loader that started reading
+ * from the database before the invalidation skip putting its (possibly stale) state into the region.</p>
+ */
+public class CacheRegion {
+
+    private final String name;
+    private final long maxBytes;
+    private final long timeToLiveNanos;
+    private final EvictionPolicy evictionPolicy;
+
+    private final Map<Object, CacheEntry> entries = new HashMap<>();
+    private final EvictionQueue evictionQueue;
+    private long weight;
+    private long version;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder puts = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * @param name Name of the region.
+     * @param maxBytes Estimated size in bytes the entries can take up.
+     * @param timeToLive Number of milliseconds an entry stays in the region, 0 for no expiry.
+     * @param evictionPolicy Policy that picks the evicted entries.
+     */
+    public CacheRegion(String name, long maxBytes, long timeToLive, EvictionPolicy evictionPolicy) {
+        if (maxBytes < 1) {
+            throw new IllegalArgumentException("Size of a cache region must be positive.");
+        }
+
+        this.name = name;
+        this.maxBytes = maxBytes;
+        this.timeToLiveNanos = timeToLive > 0 ? timeToLive * 1_000_000L : 0;
+        this.evictionPolicy = evictionPolicy;
+        this.evictionQueue = evictionPolicy == EvictionPolicy.LRU ? new LruEvictionQueue(maxBytes) : new TinyLfuEvictionQueue(maxBytes);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public EvictionPolicy getEvictionPolicy() {
+        return evictionPolicy;
+    }
+
+    /**
+     * @param key Key of the entry.
+     * @return Cached state, or null if the key isn't cached or its entry has expired.
+     */
+    public synchronized Object[] get(Object key) {
+        CacheEntry entry = entries.get(key);
+
+        if (entry != null && entry.isExpired(System.nanoTime())) {
+            remove(key);
+            entry = null;
+        }
+
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+
+        hits.increment();
+        evictionQueue.onAccess(key);
+
+        return entry.state;
+    }
+
+    /**
+     * @return Current version of the region, it has to be read before the state that will be put is read from the database.
+     */
+    public synchronized long getVersion() {
+        return version;
+    }
+
+    /**
+     * <p>Puts state that has been read from the database into the region, unless the region has been invalidated since
+     * the state was read.</p>
+     * @param key Key of the entry.
+     * @param state Disassembled state of the entity, it must not be modified afterwards.
+     * @param readVersion Version of the region obtained before the state was read.
+     * @return <b>true</b> if the state has been put.
+     */
+    public synchronized boolean putFromLoad(Object key, Object[] state, long readVersion) {
+        if (readVersion != version) {
+            return false;
+        }
+
+        remove(key);
+
+        long entryWeight = estimateWeight(state);
+        long expiresAt = timeToLiveNanos > 0 ? System.nanoTime() + timeToLiveNanos : 0;
+
+        entries.put(key, new CacheEntry(state, entryWeight, expiresAt));
+        weight += entryWeight;
+        puts.increment();
+
+        List<Object> victims = new ArrayList<>(1);
+        evictionQueue.onInsert(key, entryWeight, victims);
+
+        for (Object victim : victims) {
+            CacheEntry evicted = entries.remove(victim);
+
+            if (evicted != null) {
+                weight -= evicted.weight;
+                evictions.increment();
+            }
+        }
+
+        return entries.containsKey(key);
+    }
+
+    /**
+     * Removes an entry whose row has been changed or deleted.
+     * @param key Key of the entry.
+     */
+    public synchronized void evict(Object key) {
+        version++;
+        remove(key);
+    }
+
+    /**
+     * Removes every entry of the region.
+     */
+    public synchronized void clear() {
+        version++;
+        entries.clear();
+        evictionQueue.clear();
+        weight = 0;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return Estimated size in bytes of the cached entries.
+     */
+    public synchronized long getWeight() {
+        return weight;
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getPutCount() {
+        return puts.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * @return Ratio of the reads that have been answered by the region, 0 if there haven't been any.
+     */
+    public double getHitRatio() {
+        long hitCount = hits.sum();
+        long total = hitCount + misses.sum();
+
+        return total == 0 ? 0 : (double) hitCount / total;
+    }
+
+    private void remove(Object key) {
+        CacheEntry entry = entries.remove(key);
+
+        if (entry != null) {
+            weight -= entry.weight;
+            evictionQueue.onRemove(key);
+        }
+    }
+
+    /**
+     * Estimates the number of bytes an entry takes up on the heap (entry, array and values, not counting the shared key).
+     */
+    static long estimateWeight(Object[] state) {
+        long weight = 64 + 16 + 8L * state.length;
+
+        for (Object value : state) {
+            if (value == null || value instanceof Boolean) {
+                continue;
+            }
+
+            if (value instanceof String) {
+                weight += 40 + 2L * ((String) value).length();
+            } else if (value instanceof UUID || value instanceof BigDecimal) {
+                weight += 40;
+            } else if (value instanceof byte[]) {
+                weight += 16 + ((byte[]) value).length;
+            } else {
+                // boxed numbers, dates
+                weight += 24;
+            }
+        }
+
+        return weight;
+    }
+
+    /**
+     * Cached state of a single entity.
+     */
+    private static final class CacheEntry {
+
+        private final Object[] state;
+        private final long weight;
+        private final long expiresAt;
+
+        private CacheEntry(Object[] state, long weight, long expiresAt) {
+            this.state = state;
+            this.weight = weight;
+            this.expiresAt = expiresAt;
+        }
+
+        private boolean isExpired(long now) {
+            return expiresAt != 0 && now - expiresAt >= 0;
+        }
+    }
+}
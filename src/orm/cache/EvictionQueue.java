@@ -0,0 +1,32 @@
+package orm.cache;
+
+import java.util.List;
+
+/**
+ * <p>Keeps track of the keys of a {@link CacheRegion} and decides which of them are evicted once the region's weight bound
+ * is exceeded. The queue is guarded by the lock of its region.</p>
+ */
+interface EvictionQueue {
+
+    /**
+     * Records a read of a cached key.
+     * @param key Key that has been read.
+     */
+    void onAccess(Object key);
+
+    /**
+     * Records a key that has been put into the region.
+     * @param key Key that has been put.
+     * @param weight Estimated size of the entry in bytes.
+     * @param victims List to which the keys that need to be evicted are added (it can contain the inserted key itself).
+     */
+    void onInsert(Object key, long weight, List<Object> victims);
+
+    /**
+     * Forgets a key that has been removed from the region.
+     * @param key Key that has been removed.
+     */
+    void onRemove(Object key);
+
+    void clear();
+}
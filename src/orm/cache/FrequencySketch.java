@@ -0,0 +1,121 @@
+package orm.cache;
+
+import java.util.Arrays;
+
+/**
+ * <p>Count-min sketch that estimates how often a key has been used, with 4-bit counters packed sixteen per long. Every key
+ * is counted in four counters and its frequency is the smallest of them.</p>
+ * <p>After a sample of increments all the counters are halved, so that keys which were popular a while ago don't keep their
+ * frequency forever.</p>
+ */
+class FrequencySketch {
+
+    private static final long[] SEEDS = {
+            0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L
+    };
+
+    private static final long RESET_MASK = 0x7777777777777777L;
+
+    private final long[] table;
+    private final int tableMask;
+    private final int sampleSize;
+    private int additions;
+
+    /**
+     * @param expectedSize Expected number of keys in the cache.
+     */
+    FrequencySketch(int expectedSize) {
+        int size = Integer.highestOneBit(Math.max(expectedSize, 16) - 1) << 1;
+
+        this.table = new long[size];
+        this.tableMask = size - 1;
+        this.sampleSize = 10 * size;
+    }
+
+    /**
+     * @param key Key whose frequency is estimated.
+     * @return Estimated number of uses of the key, at most 15.
+     */
+    int frequency(Object key) {
+        int hash = spread(key.hashCode());
+        int start = (hash & 3) << 2;
+        int frequency = Integer.MAX_VALUE;
+
+        for (int i = 0; i < 4; i++) {
+            int index = indexOf(hash, i);
+            int count = (int) ((table[index] >>> ((start + i) << 2)) & 0xfL);
+            frequency = Math.min(frequency, count);
+        }
+
+        return frequency;
+    }
+
+    /**
+     * Counts a use of a key.
+     * @param key Key that has been used.
+     */
+    void increment(Object key) {
+        int hash = spread(key.hashCode());
+        int start = (hash & 3) << 2;
+        boolean added = false;
+
+        for (int i = 0; i < 4; i++) {
+            added |= incrementAt(indexOf(hash, i), start + i);
+        }
+
+        if (added && ++additions == sampleSize) {
+            reset();
+        }
+    }
+
+    void clear() {
+        Arrays.fill(table, 0L);
+        additions = 0;
+    }
+
+    /**
+     * Increments a counter unless it has reached its maximum.
+     * @param index Index of the long that holds the counter.
+     * @param counter Index of the counter within the long (0 - 15).
+     * @return <b>true</b> if the counter has been incremented.
+     */
+    private boolean incrementAt(int index, int counter) {
+        int offset = counter << 2;
+        long mask = 0xfL << offset;
+
+        if ((table[index] & mask) != mask) {
+            table[index] += 1L << offset;
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Halves every counter.
+     */
+    private void reset() {
+        for (int i = 0; i < table.length; i++) {
+            table[i] = (table[i] >>> 1) & RESET_MASK;
+        }
+
+        additions >>>= 1;
+    }
+
+    private int indexOf(int hash, int i) {
+        long h = (hash + SEEDS[i]) * SEEDS[i];
+        h += h >>> 32;
+
+        return (int) h & tableMask;
+    }
+
+    /**
+     * Mixes the bits of a hash code, since hash codes of keys (e.g. small integer IDs) are often poorly distributed.
+     */
+    private static int spread(int x) {
+        x = ((x >>> 16) ^ x) * 0x45d9f3b;
+        x = ((x >>> 16) ^ x) * 0x45d9f3b;
+
+        return (x >>> 16) ^ x;
+    }
+}
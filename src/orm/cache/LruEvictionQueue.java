@@ -0,0 +1,58 @@
+package orm.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>Evicts the least recently used keys until the weight of the region fits into its bound.</p>
+ */
+class LruEvictionQueue implements EvictionQueue {
+
+    private final long maxWeight;
+
+    // access ordered map of weights, the eldest entry is the least recently used one
+    private final LinkedHashMap<Object, Long> weights = new LinkedHashMap<>(16, 0.75f, true);
+    private long weight;
+
+    LruEvictionQueue(long maxWeight) {
+        this.maxWeight = maxWeight;
+    }
+
+    @Override
+    public void onAccess(Object key) {
+        weights.get(key);
+    }
+
+    @Override
+    public void onInsert(Object key, long entryWeight, List<Object> victims) {
+        weights.put(key, entryWeight);
+        weight += entryWeight;
+
+        Iterator<Map.Entry<Object, Long>> iterator = weights.entrySet().iterator();
+
+        while (weight > maxWeight && iterator.hasNext()) {
+            Map.Entry<Object, Long> eldest = iterator.next();
+
+            weight -= eldest.getValue();
+            victims.add(eldest.getKey());
+            iterator.remove();
+        }
+    }
+
+    @Override
+    public void onRemove(Object key) {
+        Long entryWeight = weights.remove(key);
+
+        if (entryWeight != null) {
+            weight -= entryWeight;
+        }
+    }
+
+    @Override
+    public void clear() {
+        weights.clear();
+        weight = 0;
+    }
+}
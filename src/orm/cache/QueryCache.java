@@ -0,0 +1,189 @@
+package orm.cache;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <p>Process-wide cache of query results. A result is cached as the list of IDs of the rows the query returned, the
+ * entities themselves are resolved through the persistence context and the {@link SecondLevelCache}.</p>
+ * <p>Every table has an update timestamp taken from a logical clock, which is advanced whenever the ORM writes into the
+ * table. A cached result is stale once any of its tables has been written after the query started, so results never have
+ * to be looked up when a table changes.</p>
+ */
+public class QueryCache {
+
+    /**
+     * Number of results that are kept when the size isn't specified.
+     */
+    public static final int DEFAULT_MAX_SIZE = 1024;
+
+    private static final QueryCache INSTANCE = new QueryCache(DEFAULT_MAX_SIZE);
+
+    private final int maxSize;
+    private final Map<QueryKey, CachedResult> results;
+
+    private final AtomicLong clock = new AtomicLong();
+    private final ConcurrentMap<String, Long> tableTimestamps = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder staleResults = new LongAdder();
+
+    /**
+     * @param maxSize Maximum number of cached results, the least recently used result is removed first.
+     */
+    public QueryCache(final int maxSize) {
+        this.maxSize = maxSize;
+
+        // access ordered map, the eldest entry is the least recently used one
+        this.results = new LinkedHashMap<QueryKey, CachedResult>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<QueryKey, CachedResult> eldest) {
+                return size() > QueryCache.this.maxSize;
+            }
+        };
+    }
+
+    /**
+     * @return The cache shared by all ORM instances.
+     */
+    public static QueryCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * @return Current value of the logical clock, it has to be read before the query whose result will be put is executed.
+     */
+    public long getTimestamp() {
+        return clock.get();
+    }
+
+    /**
+     * Gets the IDs of a cached result.
+     * @param key Key of the query.
+     * @return IDs of the returned rows in the order they were returned, or null if the result isn't cached or is stale.
+     */
+    public List<Object> get(QueryKey key) {
+        CachedResult result;
+
+        synchronized (results) {
+            result = results.get(key);
+        }
+
+        if (result == null) {
+            misses.increment();
+            return null;
+        }
+
+        // a table has been written after the query was executed
+        if (isStale(result)) {
+            synchronized (results) {
+                results.remove(key, result);
+            }
+
+            staleResults.increment();
+            misses.increment();
+            return null;
+        }
+
+        hits.increment();
+
+        return result.ids;
+    }
+
+    /**
+     * Caches the IDs returned by a query.
+     * @param key Key of the query.
+     * @param ids IDs of the returned rows, in order.
+     * @param tableName Table the query read.
+     * @param readTimestamp Timestamp obtained before the query was executed, see {@link #getTimestamp()}.
+     */
+    public void put(QueryKey key, List<Object> ids, String tableName, long readTimestamp) {
+        CachedResult result = new CachedResult(Collections.unmodifiableList(ids), tableName, readTimestamp);
+
+        // the table has already been written while the query was executed
+        if (isStale(result)) {
+            return;
+        }
+
+        synchronized (results) {
+            results.put(key, result);
+        }
+    }
+
+    /**
+     * Marks every cached result that read a table as stale.
+     * @param tableName Table that has been written.
+     */
+    public void invalidate(String tableName) {
+        tableTimestamps.put(tableName, clock.incrementAndGet());
+    }
+
+    /**
+     * Removes every cached result.
+     */
+    public void clear() {
+        synchronized (results) {
+            results.clear();
+        }
+    }
+
+    public int size() {
+        synchronized (results) {
+            return results.size();
+        }
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * @return Number of results that were found but had been invalidated by a write into their table.
+     */
+    public long getStaleCount() {
+        return staleResults.sum();
+    }
+
+    /**
+     * @return Ratio of the lookups that have been answered by the cache, 0 if there haven't been any.
+     */
+    public double getHitRatio() {
+        long hitCount = hits.sum();
+        long total = hitCount + misses.sum();
+
+        return total == 0 ? 0 : (double) hitCount / total;
+    }
+
+    private boolean isStale(CachedResult result) {
+        Long tableTimestamp = tableTimestamps.get(result.tableName);
+
+        return tableTimestamp != null && tableTimestamp > result.timestamp;
+    }
+
+    /**
+     * IDs returned by a query together with the time the query was executed.
+     */
+    private static final class CachedResult {
+
+        private final List<Object> ids;
+        private final String tableName;
+        private final long timestamp;
+
+        private CachedResult(List<Object> ids, String tableName, long timestamp) {
+            this.ids = ids;
+            this.tableName = tableName;
+            this.timestamp = timestamp;
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package orm.cache;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * <p>Identifies the result of a query by its SQL text and the values bound to its placeholders. Statements are formed from
+ * templates with placeholders, so equal queries always have equal SQL text.</p>
+ */
+public class QueryKey {
+
+    private final String sql;
+    private final List<Object> parameters;
+    private final int hashCode;
+
+    /**
+     * @param sql SQL text of the query, with placeholders.
+     * @param parameters Values bound to the placeholders, in order.
+     */
+    public QueryKey(String sql, List<Object> parameters) {
+        this.sql = sql;
+        this.parameters = Collections.unmodifiableList(new ArrayList<>(parameters));
+        this.hashCode = 31 * sql.hashCode() + this.parameters.hashCode();
+    }
+
+    public String getSql() {
+        return sql;
+    }
+
+    public List<Object> getParameters() {
+        return parameters;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if(this == obj)
+            return true;
+
+        if(obj == null || this.getClass() != obj.getClass())
+            return false;
+
+        QueryKey other = (QueryKey) obj;
+
+        return hashCode == other.hashCode
+                && sql.equals(other.sql)
+                && parameters.equals(other.parameters);
+    }
+
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+
+    @Override
+    public String toString() {
+        return sql + " " + parameters;
+    }
+}
@@ -0,0 +1,196 @@
+package orm.cache;
+
+import orm.EntityKey;
+import orm.access.EntityInstantiator;
+import orm.annotations.Cacheable;
+import orm.lazy.AssociationLoader;
+import orm.lazy.LazyAssociations;
+import orm.lazy.LazyReferences;
+import orm.metadata.ColumnMetadata;
+import orm.metadata.EntityMetadata;
+import orm.metadata.EntityMetadataRegistry;
+import orm.metadata.ManyToOneMetadata;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * <p>Process-wide cache of entities that is shared by all the ORM instances. Only classes annotated as {@link Cacheable} are
+ * cached, each in its own {@link CacheRegion}.</p>
+ * <p>Entities are never cached as instances. The cache holds their disassembled state (the values of their columns and the
+ * IDs of their ManyToOne references) and every read assembles a new instance whose associations are loaded lazily, so
+ * entities of different sessions are never shared.</p>
+ */
+public class SecondLevelCache {
+
+    private static final SecondLevelCache INSTANCE = new SecondLevelCache();
+
+    private final ConcurrentMap<String, CacheRegion> regions = new ConcurrentHashMap<>();
+
+    /**
+     * @return The cache shared by all ORM instances.
+     */
+    public static SecondLevelCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * <p>Gets the region of an entity class, creating it the first time it is needed.</p>
+     * @param metadata Metadata of the entity class.
+     * @return Region of the class, or null if the class isn't cacheable.
+     */
+    public CacheRegion getRegion(EntityMetadata metadata) {
+        Cacheable cacheable = metadata.getCacheable();
+
+        if (cacheable == null) {
+            return null;
+        }
+
+        String name = cacheable.region().isEmpty() ? metadata.getTableName() : cacheable.region();
+        CacheRegion region = regions.get(name);
+
+        if (region != null) {
+            return region;
+        }
+
+        return regions.computeIfAbsent(name, n -> new CacheRegion(n, cacheable.maxBytes(), cacheable.timeToLive(), cacheable.eviction()));
+    }
+
+    /**
+     * @param name Name of the region.
+     * @return The region, or null if no entity has used it yet.
+     */
+    public CacheRegion getRegion(String name) {
+        return regions.get(name);
+    }
+
+    public Collection<CacheRegion> getRegions() {
+        return Collections.unmodifiableCollection(regions.values());
+    }
+
+    /**
+     * Reads a cached entity.
+     * @param region Region of the entity class.
+     * @param metadata Metadata of the entity class.
+     * @param key Key of the entity's row.
+     * @param associationLoader Loader of the lazy associations of the session that reads the entity.
+     * @return A new instance assembled from the cached state, or null if the row isn't cached.
+     */
+    public Object get(CacheRegion region, EntityMetadata metadata, EntityKey key, AssociationLoader associationLoader) {
+        Object[] state = region.get(key);
+
+        return state != null ? assemble(metadata, state, associationLoader) : null;
+    }
+
+    /**
+     * Caches an entity that has been read from the database.
+     * @param region Region of the entity class.
+     * @param metadata Metadata of the entity class.
+     * @param key Key of the entity's row.
+     * @param entity Entity that has been read.
+     * @param readVersion Version of the region obtained before the entity was read, see {@link CacheRegion#getVersion()}.
+     */
+    public void putFromLoad(CacheRegion region, EntityMetadata metadata, EntityKey key, Object entity, long readVersion) {
+        region.putFromLoad(key, disassemble(metadata, entity), readVersion);
+    }
+
+    /**
+     * Removes an entity whose row has been changed or deleted. It has no effect if the class isn't cacheable.
+     * @param metadata Metadata of the entity class.
+     * @param key Key of the entity's row.
+     */
+    public void evict(EntityMetadata metadata, EntityKey key) {
+        CacheRegion region = getRegion(metadata);
+
+        if (region != null) {
+            region.evict(key);
+        }
+    }
+
+    /**
+     * Removes the entries of the region of an entity class, e.g. after its rows have been deleted by a set-based statement.
+     * It has no effect if the class isn't cacheable.
+     * @param metadata Metadata of the entity class.
+     */
+    public void evictAll(EntityMetadata metadata) {
+        CacheRegion region = getRegion(metadata);
+
+        if (region != null) {
+            region.clear();
+        }
+    }
+
+    /**
+     * Removes the entries of every region.
+     */
+    public void evictAll() {
+        for (CacheRegion region : regions.values()) {
+            region.clear();
+        }
+    }
+
+    /**
+     * Copies the values of the entity's columns into an array, in column order, followed by the IDs of its ManyToOne references.
+     */
+    private Object[] disassemble(EntityMetadata metadata, Object entity) {
+        List<ColumnMetadata> columns = metadata.getColumns();
+        List<ManyToOneMetadata> manyToOneAssociations = metadata.getManyToOneAssociations();
+        Object[] state = new Object[columns.size() + manyToOneAssociations.size()];
+
+        for (int i = 0; i < columns.size(); i++) {
+            state[i] = columns.get(i).getAccessor().get(entity);
+        }
+
+        for (int i = 0; i < manyToOneAssociations.size(); i++) {
+            state[columns.size() + i] = getReferencedId(manyToOneAssociations.get(i), entity);
+        }
+
+        return state;
+    }
+
+    /**
+     * @return ID of the entity referenced by a ManyToOne field, without loading the reference if it is still pending.
+     */
+    private Object getReferencedId(ManyToOneMetadata manyToOne, Object entity) {
+        Object referenced = manyToOne.getAccessor().get(entity);
+
+        if (referenced == null) {
+            return LazyReferences.getPendingId(entity, manyToOne.getField());
+        }
+
+        ColumnMetadata idColumn = EntityMetadataRegistry.getInstance().getMetadata(referenced.getClass()).getIdColumn();
+
+        return idColumn != null ? idColumn.getAccessor().get(referenced) : null;
+    }
+
+    /**
+     * Creates a new entity out of a disassembled state.
+     */
+    private Object assemble(EntityMetadata metadata, Object[] state, AssociationLoader associationLoader) {
+        EntityInstantiator instantiator = metadata.getInstantiator();
+        Object entity = instantiator.newInstance();
+        List<ColumnMetadata> columns = metadata.getColumns();
+
+        for (int i = 0; i < columns.size(); i++) {
+            ColumnMetadata column = columns.get(i);
+            Object value = state[i];
+
+            if (column.getType() == int.class) {
+                column.getAccessor().setInt(entity, (Integer) value);
+            } else if (value != null || !column.getType().isPrimitive()) {
+                column.getAccessor().set(entity, value);
+            }
+        }
+
+        if (associationLoader != null) {
+            Object[] foreignKeys = Arrays.copyOfRange(state, columns.size(), state.length);
+            LazyAssociations.initialize(metadata, entity, foreignKeys, associationLoader);
+        }
+
+        return entity;
+    }
+}
@@ -0,0 +1,150 @@
+package orm.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>Window TinyLFU eviction. New keys enter a small LRU window (1% of the bound). Keys leaving the window compete for a
+ * place in the main space with the key the main space would evict, and the one that is used more frequently according to
+ * the {@link FrequencySketch} stays. The main space is split into a probation segment and a protected segment (80% of the
+ * main space) for keys that have been read again after their admission.</p>
+ * <p>Keys that are used once, e.g. by a scan over a table, pass through the window without pushing hot keys out.</p>
+ */
+class TinyLfuEvictionQueue implements EvictionQueue {
+
+    // rough size of an entry, used only to size the frequency sketch
+    private static final int EXPECTED_ENTRY_WEIGHT = 256;
+
+    private final long windowMaxWeight;
+    private final long mainMaxWeight;
+    private final long protectedMaxWeight;
+
+    // access ordered maps of weights, the eldest entry of each segment is its least recently used one
+    private final LinkedHashMap<Object, Long> window = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<Object, Long> probation = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<Object, Long> protectedSegment = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long windowWeight;
+    private long probationWeight;
+    private long protectedWeight;
+
+    private final FrequencySketch sketch;
+
+    TinyLfuEvictionQueue(long maxWeight) {
+        this.windowMaxWeight = Math.max(1, maxWeight / 100);
+        this.mainMaxWeight = maxWeight - windowMaxWeight;
+        this.protectedMaxWeight = mainMaxWeight * 4 / 5;
+        this.sketch = new FrequencySketch((int) Math.min(1 << 20, maxWeight / EXPECTED_ENTRY_WEIGHT));
+    }
+
+    @Override
+    public void onAccess(Object key) {
+        sketch.increment(key);
+
+        if (window.get(key) != null || protectedSegment.get(key) != null) {
+            return;
+        }
+
+        Long weight = probation.remove(key);
+
+        // read again after its admission, promoting it to the protected segment
+        if (weight != null) {
+            probationWeight -= weight;
+            protectedSegment.put(key, weight);
+            protectedWeight += weight;
+
+            demoteProtected();
+        }
+    }
+
+    @Override
+    public void onInsert(Object key, long weight, List<Object> victims) {
+        sketch.increment(key);
+
+        window.put(key, weight);
+        windowWeight += weight;
+
+        Iterator<Map.Entry<Object, Long>> iterator = window.entrySet().iterator();
+
+        while (windowWeight > windowMaxWeight && iterator.hasNext()) {
+            Map.Entry<Object, Long> candidate = iterator.next();
+
+            windowWeight -= candidate.getValue();
+            iterator.remove();
+
+            admit(candidate.getKey(), candidate.getValue(), victims);
+        }
+    }
+
+    @Override
+    public void onRemove(Object key) {
+        Long weight;
+
+        if ((weight = window.remove(key)) != null) {
+            windowWeight -= weight;
+        } else if ((weight = probation.remove(key)) != null) {
+            probationWeight -= weight;
+        } else if ((weight = protectedSegment.remove(key)) != null) {
+            protectedWeight -= weight;
+        }
+    }
+
+    @Override
+    public void clear() {
+        window.clear();
+        probation.clear();
+        protectedSegment.clear();
+        windowWeight = 0;
+        probationWeight = 0;
+        protectedWeight = 0;
+        sketch.clear();
+    }
+
+    /**
+     * Moves a key that left the window into the probation segment if it is used more frequently than the keys it would
+     * push out of the main space, otherwise the key itself is evicted.
+     */
+    private void admit(Object candidate, long weight, List<Object> victims) {
+        if (weight > mainMaxWeight) {
+            victims.add(candidate);
+            return;
+        }
+
+        int candidateFrequency = sketch.frequency(candidate);
+
+        while (probationWeight + protectedWeight + weight > mainMaxWeight) {
+            LinkedHashMap<Object, Long> segment = probation.isEmpty() ? protectedSegment : probation;
+            Map.Entry<Object, Long> victim = segment.entrySet().iterator().next();
+
+            // ties go to the key that is already cached
+            if (candidateFrequency <= sketch.frequency(victim.getKey())) {
+                victims.add(candidate);
+                return;
+            }
+
+            onRemove(victim.getKey());
+            victims.add(victim.getKey());
+        }
+
+        probation.put(candidate, weight);
+        probationWeight += weight;
+    }
+
+    /**
+     * Moves the least recently used keys of the protected segment back to probation while the segment is over its bound.
+     */
+    private void demoteProtected() {
+        Iterator<Map.Entry<Object, Long>> iterator = protectedSegment.entrySet().iterator();
+
+        while (protectedWeight > protectedMaxWeight && iterator.hasNext()) {
+            Map.Entry<Object, Long> eldest = iterator.next();
+
+            protectedWeight -= eldest.getValue();
+            probation.put(eldest.getKey(), eldest.getValue());
+            probationWeight += eldest.getValue();
+            iterator.remove();
+        }
+    }
+}
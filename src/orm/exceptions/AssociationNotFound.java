@@ -0,0 +1,7 @@
+package orm.exceptions;
+
+public class AssociationNotFound extends Exception {
+    public AssociationNotFound(String message){
+        super(message);
+    }
+}
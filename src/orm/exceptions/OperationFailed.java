@@ -0,0 +1,7 @@
+package orm.exceptions;
+
+public class OperationFailed extends Exception{
+    public OperationFailed(String message){
+        super(message);
+    }
+}
@@ -0,0 +1,32 @@
+package orm.id;
+
+import javax.sql.DataSource;
+
+/**
+ * <p>Hi/lo allocator. The "hi" value is read from a database sequence that increments by one, the "lo" values
+ * (0 to allocationSize - 1) are counted in memory, and an ID is hi * allocationSize + lo.</p>
+ */
+public class HiLoIdAllocator extends PooledIdAllocator {
+
+    private final DataSource dataSource;
+    private final String query;
+
+    /**
+     * @param dataSource DataSource from which a connection is obtained for each reservation.
+     * @param sequenceName Name of the sequence that provides the hi values.
+     * @param allocationSize Number of lo values per hi value.
+     */
+    public HiLoIdAllocator(DataSource dataSource, String sequenceName, int allocationSize) {
+        super(allocationSize);
+
+        this.dataSource = dataSource;
+        this.query = "SELECT NEXT VALUE FOR " + sequenceName;
+    }
+
+    @Override
+    protected Long reserveBlock(int size) {
+        Long hi = SequenceIdAllocator.nextSequenceValue(dataSource, query);
+
+        return hi != null ? hi * size : null;
+    }
+}
@@ -0,0 +1,14 @@
+package orm.id;
+
+/**
+ * <p>Generates values of fields marked as GeneratedValue before the entity is inserted. Implementations are thread-safe
+ * and shared by all the entities of a class.</p>
+ */
+public interface IdGenerator {
+
+    /**
+     * @return Next value (a Long for numeric strategies, a java.util.UUID for the UUID strategy), or null if no value could
+     * be generated.
+     */
+    Object next();
+}
@@ -0,0 +1,75 @@
+package orm.id;
+
+import orm.annotations.GeneratedValue;
+import orm.metadata.ColumnMetadata;
+import orm.metadata.EntityMetadata;
+
+import javax.sql.DataSource;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * <p>Creates and holds the {@link IdGenerator}s of pre-assigned columns, one generator per column.</p>
+ */
+public class IdGenerators {
+
+    private final DataSource dataSource;
+    private final ConcurrentMap<ColumnMetadata, IdGenerator> generators = new ConcurrentHashMap<>();
+
+    /**
+     * @param dataSource DataSource used by the database backed strategies (null if blocks should be reserved in memory).
+     */
+    public IdGenerators(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    /**
+     * Gets the generator of a column, creating it the first time it is needed.
+     * @param metadata Metadata of the entity that contains the column.
+     * @param column Column whose values are pre-assigned.
+     * @return Generator of the column.
+     */
+    public IdGenerator getGenerator(EntityMetadata metadata, ColumnMetadata column) {
+        IdGenerator generator = generators.get(column);
+
+        if (generator == null) {
+            generator = generators.computeIfAbsent(column, c -> createGenerator(metadata, c.getGeneratedValue()));
+        }
+
+        return generator;
+    }
+
+    private IdGenerator createGenerator(EntityMetadata metadata, GeneratedValue generatedValue) {
+        String generatorName = generatedValue.generator();
+        int allocationSize = generatedValue.allocationSize();
+
+        switch (generatedValue.strategy()) {
+            case UUID:
+                return new UuidV7Generator();
+
+            case SEQUENCE:
+                if (dataSource == null) {
+                    return new LocalIdAllocator(allocationSize);
+                }
+
+                return new SequenceIdAllocator(dataSource, generatorName.isEmpty() ? metadata.getTableName() + "_SEQ" : generatorName, allocationSize);
+
+            case HILO:
+                if (dataSource == null) {
+                    return new LocalIdAllocator(allocationSize);
+                }
+
+                return new HiLoIdAllocator(dataSource, generatorName.isEmpty() ? metadata.getTableName() + "_HILO_SEQ" : generatorName, allocationSize);
+
+            case TABLE:
+                if (dataSource == null) {
+                    return new LocalIdAllocator(allocationSize);
+                }
+
+                return new TableIdAllocator(dataSource, generatorName.isEmpty() ? metadata.getTableName() : generatorName, allocationSize);
+
+            default:
+                throw new IllegalArgumentException("Values of the " + generatedValue.strategy() + " strategy are generated by the database.");
+        }
+    }
+}
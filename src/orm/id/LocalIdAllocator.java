@@ -0,0 +1,21 @@
+package orm.id;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>Reserves blocks of IDs in memory. Used when the ORM isn't connected to a database, IDs are unique only inside the
+ * running process.</p>
+ */
+public class LocalIdAllocator extends PooledIdAllocator {
+
+    private final AtomicLong counter = new AtomicLong(1);
+
+    public LocalIdAllocator(int allocationSize) {
+        super(allocationSize);
+    }
+
+    @Override
+    protected Long reserveBlock(int size) {
+        return counter.getAndAdd(size);
+    }
+}
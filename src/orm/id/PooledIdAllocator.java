@@ -0,0 +1,67 @@
+package orm.id;
+
+/**
+ * <p>Hands out numeric IDs from blocks that are reserved with a single call to {@link #reserveBlock(int)}. IDs inside a block
+ * are counted in memory, so only one in allocationSize IDs costs a round-trip to the database.</p>
+ * <p>The allocator is thread-safe, every ID is handed out exactly once.</p>
+ */
+public abstract class PooledIdAllocator implements IdGenerator {
+
+    private final int allocationSize;
+
+    // next ID that will be handed out, and the first ID that isn't in the current block anymore
+    private long nextId;
+    private long blockLimit;
+
+    /**
+     * @param allocationSize Number of IDs reserved at once.
+     */
+    protected PooledIdAllocator(int allocationSize) {
+        if (allocationSize < 1) {
+            throw new IllegalArgumentException("Allocation size must be positive.");
+        }
+
+        this.allocationSize = allocationSize;
+    }
+
+    @Override
+    public Object next() {
+        long id = nextLong();
+
+        return id != 0 ? id : null;
+    }
+
+    /**
+     * @return Next ID, reserving a new block first if the current one is used up, or 0 if no block could be reserved.
+     */
+    public synchronized long nextLong() {
+        if (nextId >= blockLimit) {
+            Long blockStart = reserveBlock(allocationSize);
+
+            if (blockStart == null) {
+                return 0;
+            }
+
+            nextId = blockStart;
+            blockLimit = blockStart + allocationSize;
+
+            // zero means "not assigned" for numeric IDs, it is never handed out
+            if (nextId == 0) {
+                nextId++;
+            }
+        }
+
+        return nextId++;
+    }
+
+    public int getAllocationSize() {
+        return allocationSize;
+    }
+
+    /**
+     * Reserves a block of IDs. Nobody else may be given an ID from the range [start, start + size).
+     * @param size Number of IDs in the block.
+     * @return First ID of the block, or null if the block couldn't be reserved.
+     */
+    protected abstract Long reserveBlock(int size);
+}
@@ -0,0 +1,64 @@
+package orm.id;
+
+import orm.exceptions.OperationFailed;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * <p>Reserves blocks of IDs from a database sequence. The sequence must increment by the allocation size
+ * (e.g. "CREATE SEQUENCE POST_SEQ START WITH 1 INCREMENT BY 50"), each value it returns is the start of a block.</p>
+ */
+public class SequenceIdAllocator extends PooledIdAllocator {
+
+    private final DataSource dataSource;
+    private final String query;
+
+    /**
+     * @param dataSource DataSource from which a connection is obtained for each reservation.
+     * @param sequenceName Name of the sequence.
+     * @param allocationSize Increment of the sequence.
+     */
+    public SequenceIdAllocator(DataSource dataSource, String sequenceName, int allocationSize) {
+        super(allocationSize);
+
+        this.dataSource = dataSource;
+        this.query = "SELECT NEXT VALUE FOR " + sequenceName;
+    }
+
+    @Override
+    protected Long reserveBlock(int size) {
+        return nextSequenceValue(dataSource, query);
+    }
+
+    /**
+     * Reads the next value of a sequence using a connection of its own, so that reservations are never a part of
+     * (and never rolled back with) the transaction of the entities.
+     * @param dataSource DataSource from which the connection is obtained.
+     * @param query Query that returns the next value of the sequence.
+     * @return Next value of the sequence, or null if it couldn't be read.
+     */
+    static Long nextSequenceValue(DataSource dataSource, String query) {
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(query)) {
+
+            if (resultSet.next()) {
+                return resultSet.getLong(1);
+            }
+
+            try {
+                throw new OperationFailed("Sequence didn't return a value: " + query);
+            } catch (OperationFailed operationFailed) {
+                operationFailed.printStackTrace();
+                return null;
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package orm.id;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+
+/**
+ * <p>Reserves blocks of IDs by incrementing a row of the ID_GENERATORS table, for databases without sequences.</p>
+ * <p>The table must exist: "CREATE TABLE ID_GENERATORS (NAME VARCHAR(255) PRIMARY KEY, NEXT_VALUE BIGINT NOT NULL)".
+ * The row of a generator is created the first time a block is reserved. If another process creates the row at the same
+ * time, the insert fails on the primary key and the reservation is retried with an update of that row.</p>
+ */
+public class TableIdAllocator extends PooledIdAllocator {
+
+    public static final String TABLE_NAME = "ID_GENERATORS";
+
+    private static final String UPDATE_QUERY = "UPDATE " + TABLE_NAME + " SET NEXT_VALUE = NEXT_VALUE + ? WHERE NAME = ?";
+    private static final String SELECT_QUERY = "SELECT NEXT_VALUE FROM " + TABLE_NAME + " WHERE NAME = ?";
+    private static final String INSERT_QUERY = "INSERT INTO " + TABLE_NAME + " (NAME, NEXT_VALUE) VALUES (?, ?)";
+
+    private final DataSource dataSource;
+    private final String generatorName;
+
+    /**
+     * @param dataSource DataSource from which a connection is obtained for each reservation.
+     * @param generatorName Name of the ID_GENERATORS row.
+     * @param allocationSize Number of IDs reserved at once.
+     */
+    public TableIdAllocator(DataSource dataSource, String generatorName, int allocationSize) {
+        super(allocationSize);
+
+        this.dataSource = dataSource;
+        this.generatorName = generatorName;
+    }
+
+    @Override
+    protected Long reserveBlock(int size) {
+        // a connection of its own, the reservation is committed no matter what happens to the entities
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+
+            for (int attempt = 1; ; attempt++) {
+                try {
+                    long blockStart = reserveBlock(connection, size);
+                    connection.commit();
+
+                    return blockStart;
+                } catch (SQLException e) {
+                    connection.rollback();
+
+                    // the row has been created by someone else in the meantime, it's there to be updated now
+                    if (attempt == 1 && isDuplicateKey(e)) {
+                        continue;
+                    }
+
+                    throw e;
+                }
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * @param e Exception thrown by a statement.
+     * @return <b>true</b> if the statement has violated a unique constraint (SQL state class 23, integrity constraint
+     * violation).
+     */
+    private static boolean isDuplicateKey(SQLException e) {
+        return e instanceof SQLIntegrityConstraintViolationException || (e.getSQLState() != null && e.getSQLState().startsWith("23"));
+    }
+
+    private long reserveBlock(Connection connection, int size) throws SQLException {
+        // the update locks the row, so concurrent reservations get different blocks
+        try (PreparedStatement update = connection.prepareStatement(UPDATE_QUERY)) {
+            update.setLong(1, size);
+            update.setString(2, generatorName);
+
+            if (update.executeUpdate() == 0) {
+                // first reservation, the block [1, size + 1) is ours
+                try (PreparedStatement insert = connection.prepareStatement(INSERT_QUERY)) {
+                    insert.setString(1, generatorName);
+                    insert.setLong(2, size + 1);
+                    insert.executeUpdate();
+                }
+
+                return 1;
+            }
+        }
+
+        try (PreparedStatement select = connection.prepareStatement(SELECT_QUERY)) {
+            select.setString(1, generatorName);
+
+            try (ResultSet resultSet = select.executeQuery()) {
+                resultSet.next();
+
+                // the row now holds the end of our block
+                return resultSet.getLong(1) - size;
+            }
+        }
+    }
+}
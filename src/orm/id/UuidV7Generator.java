@@ -0,0 +1,35 @@
+package orm.id;
+
+import java.security.SecureRandom;
+import java.util.UUID;
+
+/**
+ * <p>Generates version 7 UUIDs (RFC 9562): the first 48 bits are the Unix time in milliseconds, the rest is random.
+ * The UUIDs are therefore ordered by creation time, which keeps inserts into a primary key index mostly sequential.</p>
+ */
+public class UuidV7Generator implements IdGenerator {
+
+    private final SecureRandom random = new SecureRandom();
+
+    @Override
+    public Object next() {
+        long timestamp = System.currentTimeMillis();
+
+        byte[] randomBytes = new byte[10];
+        random.nextBytes(randomBytes);
+
+        // 48 bits of time, 4 bits of version (7), 12 random bits
+        long mostSignificantBits = (timestamp << 16) | 0x7000L | ((randomBytes[0] & 0x0FL) << 8) | (randomBytes[1] & 0xFFL);
+
+        // 2 bits of variant (10), 62 random bits
+        long leastSignificantBits = 0;
+
+        for (int i = 2; i < 10; i++) {
+            leastSignificantBits = (leastSignificantBits << 8) | (randomBytes[i] & 0xFFL);
+        }
+
+        leastSignificantBits = (leastSignificantBits & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+
+        return new UUID(mostSignificantBits, leastSignificantBits);
+    }
+}
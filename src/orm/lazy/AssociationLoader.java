@@ -0,0 +1,41 @@
+package orm.lazy;
+
+import orm.metadata.ManyToOneMetadata;
+import orm.metadata.OneToManyMetadata;
+
+import java.util.List;
+
+/**
+ * <p>Loads the associated entities of lazy associations. It is implemented by the ORM session that loaded the entities,
+ * so that the associated entities are resolved through the session's persistence context.</p>
+ */
+public interface AssociationLoader {
+
+    /**
+     * Loads the entity referenced by a ManyToOne association.
+     * @param manyToOne Association whose entity is loaded.
+     * @param id Value of the association's join column.
+     * @return The referenced entity, or null if it doesn't exist.
+     */
+    Object loadReference(ManyToOneMetadata manyToOne, Object id);
+
+    /**
+     * Loads the children of a OneToMany association.
+     * @param oneToMany Association whose children are loaded.
+     * @param owner Entity that owns the association.
+     * @return The children, an empty list if there aren't any.
+     */
+    List<Object> loadCollection(OneToManyMetadata oneToMany, Object owner);
+
+    /**
+     * Called for every lazy reference the loader will be asked to load, so that the loader can load several of them at once.
+     * @param reference Reference that has been registered.
+     */
+    void addPendingReference(LazyReference reference);
+
+    /**
+     * Called for every lazy list the loader will be asked to load, so that the loader can load several of them at once.
+     * @param list List that has been set into its owner.
+     */
+    void addPendingCollection(LazyList list);
+}
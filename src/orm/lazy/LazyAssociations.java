@@ -0,0 +1,53 @@
+package orm.lazy;
+
+import orm.metadata.EntityMetadata;
+import orm.metadata.ManyToOneMetadata;
+import orm.metadata.OneToManyMetadata;
+
+import java.util.List;
+
+/**
+ * <p>Sets the associations of a loaded entity up to be loaded lazily: ManyToOne fields get a pending {@link LazyReference}
+ * and OneToMany fields get a {@link LazyList}.</p>
+ */
+public final class LazyAssociations {
+
+    private LazyAssociations() {
+    }
+
+    /**
+     * @param metadata Metadata of the entity's class.
+     * @param entity Entity that has been loaded.
+     * @param foreignKeys Values of the join columns, one per ManyToOne association (null if the entity doesn't reference anything).
+     * @param loader Loader of the session that loaded the entity.
+     */
+    public static void initialize(EntityMetadata metadata, Object entity, Object[] foreignKeys, AssociationLoader loader) {
+        List<ManyToOneMetadata> manyToOneAssociations = metadata.getManyToOneAssociations();
+
+        for (int i = 0; i < foreignKeys.length; i++) {
+            ManyToOneMetadata manyToOne = manyToOneAssociations.get(i);
+
+            // the row decides what the entity references, not the default the constructor has assigned
+            if (manyToOne.getJoinColumnName() != null) {
+                manyToOne.getAccessor().set(entity, null);
+            }
+
+            if (foreignKeys[i] != null) {
+                LazyReference reference = new LazyReference(manyToOne, foreignKeys[i], loader);
+
+                LazyReferences.register(entity, reference);
+                loader.addPendingReference(reference);
+            }
+        }
+
+        for (OneToManyMetadata oneToMany : metadata.getOneToManyAssociations()) {
+            // the field has to be able to hold a LazyList (e.g. a List, not an ArrayList)
+            if (oneToMany.getElementType() != null && oneToMany.getField().getType().isAssignableFrom(LazyList.class)) {
+                LazyList list = new LazyList(oneToMany, entity, loader);
+
+                oneToMany.getAccessor().set(entity, list);
+                loader.addPendingCollection(list);
+            }
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package orm.lazy;
+
+import java.lang.reflect.Field;
+
+/**
+ * <p>Holds the pending {@link LazyReference}s of an entity. The interface is woven into every Entity class by the
+ * {@link orm.aspects.LazyLoadingAspect} (backed by {@link PendingReferences}), so the pending references of an entity are
+ * kept in the entity itself, and looking them up doesn't touch any state that is shared with other entities or sessions.</p>
+ * <p>The methods are used by the ORM through {@link LazyReferences}, they aren't meant to be called by applications.</p>
+ */
+public interface LazyEntity {
+
+    /**
+     * @param field A ManyToOne field of the entity.
+     * @return Pending reference of the field, or null if the field isn't lazy (or has been loaded already).
+     */
+    LazyReference getPendingReference(Field field);
+
+    /**
+     * Sets the pending reference of a field, replacing the previous one.
+     * @param reference Pending reference of a ManyToOne field of the entity.
+     */
+    void putPendingReference(LazyReference reference);
+
+    /**
+     * Drops the pending reference of a field.
+     * @param field A ManyToOne field of the entity.
+     */
+    void removePendingReference(Field field);
+
+    /**
+     * Drops a pending reference, unless it has been replaced or dropped in the meantime.
+     * @param reference Pending reference of a ManyToOne field of the entity.
+     * @return <b>true</b> if the reference was still pending and has been dropped.
+     */
+    boolean removePendingReference(LazyReference reference);
+}
@@ -0,0 +1,111 @@
+package orm.lazy;
+
+import orm.metadata.OneToManyMetadata;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <p>List of the children of a OneToMany association of a loaded entity. The children are loaded by the first call of any
+ * of the list's methods, until then the list only knows its owner.</p>
+ * <p>Once loaded, the list behaves like an ArrayList. Like the entities themselves, it isn't thread-safe.</p>
+ */
+public class LazyList extends AbstractList<Object> {
+
+    private final OneToManyMetadata oneToMany;
+    private final Object owner;
+    private AssociationLoader loader;
+    private List<Object> elements;
+
+    /**
+     * @param oneToMany Association whose children are held by the list.
+     * @param owner Entity that owns the association.
+     * @param loader Loader of the session that loaded the owner.
+     */
+    public LazyList(OneToManyMetadata oneToMany, Object owner, AssociationLoader loader) {
+        this.oneToMany = oneToMany;
+        this.owner = owner;
+        this.loader = loader;
+    }
+
+    public OneToManyMetadata getOneToMany() {
+        return oneToMany;
+    }
+
+    public Object getOwner() {
+        return owner;
+    }
+
+    /**
+     * @return <b>true</b> if the children have been loaded.
+     */
+    public boolean isInitialized() {
+        return elements != null;
+    }
+
+    /**
+     * Loads the children unless they have been loaded already.
+     */
+    public void initialize() {
+        if (elements != null) {
+            return;
+        }
+
+        elements = new ArrayList<>(loader.loadCollection(oneToMany, owner));
+
+        // the session isn't needed anymore
+        loader = null;
+    }
+
+    /**
+     * Initializes the list with children that have been loaded together with the children of other lists. It has no
+     * effect if the list has been initialized already.
+     * @param children Children of the owner.
+     */
+    public void initialize(List<Object> children) {
+        if (elements != null) {
+            return;
+        }
+
+        elements = new ArrayList<>(children);
+        loader = null;
+    }
+
+    @Override
+    public Object get(int index) {
+        initialize();
+        return elements.get(index);
+    }
+
+    @Override
+    public int size() {
+        initialize();
+        return elements.size();
+    }
+
+    @Override
+    public Object set(int index, Object element) {
+        initialize();
+        return elements.set(index, element);
+    }
+
+    @Override
+    public void add(int index, Object element) {
+        initialize();
+        elements.add(index, element);
+        modCount++;
+    }
+
+    @Override
+    public Object remove(int index) {
+        initialize();
+        modCount++;
+        return elements.remove(index);
+    }
+
+    @Override
+    public String toString() {
+        return isInitialized() ? elements.toString() : "[uninitialized " + oneToMany.getField().getName() + "]";
+    }
+}
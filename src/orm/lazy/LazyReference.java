@@ -0,0 +1,47 @@
+package orm.lazy;
+
+import orm.metadata.ManyToOneMetadata;
+
+/**
+ * <p>Pending value of a ManyToOne field of a loaded entity. It holds the value of the join column, the referenced entity
+ * is loaded only when the field is read for the first time.</p>
+ * <p>Like {@link LazyList}, the reference holds the loader of its session until it's loaded, so it can be loaded however
+ * long the entity is kept.</p>
+ */
+public class LazyReference {
+
+    private final ManyToOneMetadata manyToOne;
+    private final Object id;
+    private final AssociationLoader loader;
+
+    /**
+     * @param manyToOne Association of the field.
+     * @param id Value of the join column.
+     * @param loader Loader of the session that loaded the entity.
+     */
+    public LazyReference(ManyToOneMetadata manyToOne, Object id, AssociationLoader loader) {
+        this.manyToOne = manyToOne;
+        this.id = id;
+        this.loader = loader;
+    }
+
+    public ManyToOneMetadata getManyToOne() {
+        return manyToOne;
+    }
+
+    public Object getId() {
+        return id;
+    }
+
+    public AssociationLoader getLoader() {
+        return loader;
+    }
+
+    /**
+     * Loads the referenced entity.
+     * @return The referenced entity, or null if there is no row with its ID.
+     */
+    public Object load() {
+        return loader.loadReference(manyToOne, id);
+    }
+}
@@ -0,0 +1,102 @@
+package orm.lazy;
+
+import java.lang.reflect.Field;
+
+/**
+ * <p>Access to the pending {@link LazyReference}s of loaded entities. Entity classes don't implement interfaces and can't be
+ * subclassed at runtime, so a lazy ManyToOne field is left null and its pending reference is kept by the entity itself,
+ * through the {@link LazyEntity} interface that is woven into every Entity class. The {@link orm.aspects.LazyLoadingAspect}
+ * loads the reference right before the field is read.</p>
+ * <p>Instances that don't implement {@link LazyEntity} (their class hasn't been woven) never have pending references.</p>
+ */
+public final class LazyReferences {
+
+    private LazyReferences() {
+    }
+
+    /**
+     * Registers a pending reference of an entity's ManyToOne field.
+     * @param entity Entity whose field is lazy.
+     * @param reference Pending reference of the field.
+     * @return <b>true</b> if the reference has been registered, <b>false</b> if the entity's class hasn't been woven.
+     */
+    public static boolean register(Object entity, LazyReference reference) {
+        if (!(entity instanceof LazyEntity)) {
+            return false;
+        }
+
+        ((LazyEntity) entity).putPendingReference(reference);
+
+        return true;
+    }
+
+    /**
+     * @param entity An entity.
+     * @param field A ManyToOne field of the entity.
+     * @return Pending reference of the field, or null if the field isn't lazy (or has been loaded already).
+     */
+    public static LazyReference get(Object entity, Field field) {
+        return entity instanceof LazyEntity ? ((LazyEntity) entity).getPendingReference(field) : null;
+    }
+
+    /**
+     * @return <b>true</b> if the field has a pending reference.
+     */
+    public static boolean isPending(Object entity, Field field) {
+        return get(entity, field) != null;
+    }
+
+    /**
+     * @param entity An entity.
+     * @param field A ManyToOne field of the entity.
+     * @return Value of the join column of a pending reference, or null if the field isn't lazy.
+     */
+    public static Object getPendingId(Object entity, Field field) {
+        LazyReference reference = get(entity, field);
+
+        return reference != null ? reference.getId() : null;
+    }
+
+    /**
+     * Drops the pending reference of a field, e.g. because a value has been written into the field.
+     * @param entity An entity.
+     * @param field A ManyToOne field of the entity.
+     */
+    public static void remove(Object entity, Field field) {
+        if (entity instanceof LazyEntity) {
+            ((LazyEntity) entity).removePendingReference(field);
+        }
+    }
+
+    /**
+     * <p>Loads the pending reference of a field and writes the loaded entity into the field. No lock is held while the
+     * entity is loaded.</p>
+     * @param entity An entity.
+     * @param field A ManyToOne field of the entity.
+     * @return The referenced entity, or null if the field isn't lazy or the entity couldn't be loaded.
+     */
+    public static Object resolve(Object entity, Field field) {
+        LazyReference reference = get(entity, field);
+
+        if (reference == null) {
+            return null;
+        }
+
+        Object value = reference.load();
+
+        // the reference stays pending if the entity couldn't be loaded
+        if (value == null) {
+            return null;
+        }
+
+        // the field could have been written or resolved by another thread while the reference was loading
+        if (!((LazyEntity) entity).removePendingReference(reference)) {
+            Object current = reference.getManyToOne().getAccessor().get(entity);
+            return current != null ? current : value;
+        }
+
+        reference.getManyToOne().getAccessor().set(entity, value);
+
+        return value;
+    }
+}
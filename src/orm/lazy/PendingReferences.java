@@ -0,0 +1,78 @@
+package orm.lazy;
+
+import java.lang.reflect.Field;
+
+/**
+ * <p>Implementation of {@link LazyEntity} that is mixed into every Entity class. An entity has only a few ManyToOne fields,
+ * so its pending references are kept in a small array that is replaced on every write. Reading a field of an entity
+ * (which happens on every read of a ManyToOne field) is a volatile read and a short scan, without any locking; writes
+ * lock only the entity's own references.</p>
+ */
+public class PendingReferences implements LazyEntity {
+
+    private static final LazyReference[] NONE = new LazyReference[0];
+
+    private volatile LazyReference[] references = NONE;
+
+    @Override
+    public LazyReference getPendingReference(Field field) {
+        for (LazyReference reference : references) {
+            if (reference.getManyToOne().getField().equals(field)) {
+                return reference;
+            }
+        }
+
+        return null;
+    }
+
+    @Override
+    public synchronized void putPendingReference(LazyReference reference) {
+        LazyReference[] current = references;
+        Field field = reference.getManyToOne().getField();
+
+        for (int i = 0; i < current.length; i++) {
+            if (current[i].getManyToOne().getField().equals(field)) {
+                LazyReference[] replaced = current.clone();
+                replaced[i] = reference;
+                references = replaced;
+                return;
+            }
+        }
+
+        LazyReference[] added = new LazyReference[current.length + 1];
+        System.arraycopy(current, 0, added, 0, current.length);
+        added[current.length] = reference;
+        references = added;
+    }
+
+    @Override
+    public void removePendingReference(Field field) {
+        // fast path, writing a field that isn't lazy (e.g. of a new entity)
+        if (references.length == 0) {
+            return;
+        }
+
+        LazyReference reference = getPendingReference(field);
+
+        if (reference != null) {
+            removePendingReference(reference);
+        }
+    }
+
+    @Override
+    public synchronized boolean removePendingReference(LazyReference reference) {
+        LazyReference[] current = references;
+
+        for (int i = 0; i < current.length; i++) {
+            if (current[i] == reference) {
+                LazyReference[] removed = new LazyReference[current.length - 1];
+                System.arraycopy(current, 0, removed, 0, i);
+                System.arraycopy(current, i + 1, removed, i, current.length - i - 1);
+                references = removed.length == 0 ? NONE : removed;
+                return true;
+            }
+        }
+
+        return false;
+    }
+}
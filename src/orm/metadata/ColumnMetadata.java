@@ -0,0 +1,84 @@
+package orm.metadata;
+
+import orm.access.PropertyAccessor;
+import orm.annotations.GeneratedValue;
+import orm.annotations.GenerationType;
+
+import java.lang.reflect.Field;
+
+/**
+ * <p>Immutable description of a single field that is mapped to a table column.</p>
+ * <b>columnName</b> - name of the column to which the field is mapped.
+ * <br>
+ * <b>id</b> - whether the field is the identifying column (primary key).
+ * <br>
+ * <b>generatedValue</b> - GeneratedValue annotation of the field, null if the value isn't generated.
+ * <br>
+ * <b>notNull</b> - whether the field is not allowed to contain a null value.
+ */
+public class ColumnMetadata {
+
+    private final Field field;
+    private final PropertyAccessor accessor;
+    private final String columnName;
+    private final boolean id;
+    private final GeneratedValue generatedValue;
+    private final boolean notNull;
+
+    public ColumnMetadata(Field field, PropertyAccessor accessor, String columnName, boolean id, GeneratedValue generatedValue, boolean notNull) {
+        this.field = field;
+        this.accessor = accessor;
+        this.columnName = columnName;
+        this.id = id;
+        this.generatedValue = generatedValue;
+        this.notNull = notNull;
+    }
+
+    public Field getField() {
+        return field;
+    }
+
+    /**
+     * @return Accessor that reads and writes the field without reflection lookups.
+     */
+    public PropertyAccessor getAccessor() {
+        return accessor;
+    }
+
+    public String getColumnName() {
+        return columnName;
+    }
+
+    public Class<?> getType() {
+        return field.getType();
+    }
+
+    public boolean isId() {
+        return id;
+    }
+
+    /**
+     * @return GeneratedValue annotation of the field, or null if the value isn't generated.
+     */
+    public GeneratedValue getGeneratedValue() {
+        return generatedValue;
+    }
+
+    /**
+     * @return <b>true</b> if the value is generated by the database on insertion, and therefore skipped when inserting.
+     */
+    public boolean isGenerated() {
+        return generatedValue != null && generatedValue.strategy() == GenerationType.IDENTITY;
+    }
+
+    /**
+     * @return <b>true</b> if the value is generated by the ORM before the entity is inserted.
+     */
+    public boolean isPreAssigned() {
+        return generatedValue != null && generatedValue.strategy() != GenerationType.IDENTITY;
+    }
+
+    public boolean isNotNull() {
+        return notNull;
+    }
+}
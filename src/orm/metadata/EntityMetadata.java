@@ -0,0 +1,199 @@
+package orm.metadata;
+
+import orm.access.EntityInstantiator;
+import orm.annotations.Cacheable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * <p>Immutable mapping model of an entity class. It is built once per class by the {@link EntityMetadataRegistry} so that
+ * persisting, loading, updating and deleting entities doesn't need to scan annotations again.</p>
+ * <p>Columns are ordered the same way they are declared, starting with the columns of the top-most MappedSuperclass.</p>
+ */
+public class EntityMetadata {
+
+    private final Class<?> entityClass;
+    private final boolean entity;
+    private final String tableName;
+    private final EntityInstantiator instantiator;
+    private final Cacheable cacheable;
+    private final ColumnMetadata idColumn;
+    private final List<ColumnMetadata> columns;
+    private final List<String> columnNames;
+    private final List<String> selectColumnNames;
+    private final List<ColumnMetadata> insertableColumns;
+    private final List<String> insertableColumnNames;
+    private final List<ColumnMetadata> generatedColumns;
+    private final List<String> generatedColumnNames;
+    private final List<ColumnMetadata> preAssignedColumns;
+    private final List<OneToManyMetadata> oneToManyAssociations;
+    private final List<ManyToOneMetadata> manyToOneAssociations;
+
+    public EntityMetadata(Class<?> entityClass, boolean entity, String tableName, EntityInstantiator instantiator, Cacheable cacheable,
+                          List<ColumnMetadata> columns, List<OneToManyMetadata> oneToManyAssociations, List<ManyToOneMetadata> manyToOneAssociations) {
+        this.entityClass = entityClass;
+        this.entity = entity;
+        this.tableName = tableName;
+        this.instantiator = instantiator;
+        this.cacheable = cacheable;
+
+        ColumnMetadata idColumn = null;
+        List<String> columnNames = new ArrayList<>();
+        List<ColumnMetadata> insertableColumns = new ArrayList<>();
+        List<String> insertableColumnNames = new ArrayList<>();
+        List<ColumnMetadata> generatedColumns = new ArrayList<>();
+        List<String> generatedColumnNames = new ArrayList<>();
+        List<ColumnMetadata> preAssignedColumns = new ArrayList<>();
+
+        // splitting the columns into the ones we insert and the ones the database generates for us
+        for (ColumnMetadata column : columns) {
+            columnNames.add(column.getColumnName());
+
+            if (column.isId()) {
+                idColumn = column;
+            }
+
+            if (column.isPreAssigned()) {
+                preAssignedColumns.add(column);
+            }
+
+            if (column.isGenerated()) {
+                generatedColumns.add(column);
+                generatedColumnNames.add(column.getColumnName());
+            } else {
+                insertableColumns.add(column);
+                insertableColumnNames.add(column.getColumnName());
+            }
+        }
+
+        // join columns are selected as well, they are the IDs of the lazily loaded references
+        List<String> selectColumnNames = new ArrayList<>(columnNames);
+
+        for (ManyToOneMetadata manyToOne : manyToOneAssociations) {
+            if (manyToOne.getJoinColumnName() != null) {
+                selectColumnNames.add(manyToOne.getJoinColumnName());
+            }
+        }
+
+        this.idColumn = idColumn;
+        this.columns = Collections.unmodifiableList(new ArrayList<>(columns));
+        this.columnNames = Collections.unmodifiableList(columnNames);
+        this.selectColumnNames = Collections.unmodifiableList(selectColumnNames);
+        this.insertableColumns = Collections.unmodifiableList(insertableColumns);
+        this.insertableColumnNames = Collections.unmodifiableList(insertableColumnNames);
+        this.generatedColumns = Collections.unmodifiableList(generatedColumns);
+        this.generatedColumnNames = Collections.unmodifiableList(generatedColumnNames);
+        this.preAssignedColumns = Collections.unmodifiableList(preAssignedColumns);
+        this.oneToManyAssociations = Collections.unmodifiableList(new ArrayList<>(oneToManyAssociations));
+        this.manyToOneAssociations = Collections.unmodifiableList(new ArrayList<>(manyToOneAssociations));
+    }
+
+    public Class<?> getEntityClass() {
+        return entityClass;
+    }
+
+    /**
+     * @return <b>true</b> if the class is annotated as an Entity, <b>false</b> if it isn't.
+     */
+    public boolean isEntity() {
+        return entity;
+    }
+
+    public String getTableName() {
+        return tableName;
+    }
+
+    /**
+     * @return Instantiator of the class, or null if the class can't be instantiated (no no-argument constructor).
+     */
+    public EntityInstantiator getInstantiator() {
+        return instantiator;
+    }
+
+    /**
+     * @return Cacheable annotation of the class, or null if the class isn't cached in the second-level cache.
+     */
+    public Cacheable getCacheable() {
+        return cacheable;
+    }
+
+    /**
+     * @return Column that is marked as ID, or null if the class doesn't have one.
+     */
+    public ColumnMetadata getIdColumn() {
+        return idColumn;
+    }
+
+    /**
+     * @return All mapped columns, including the generated ones.
+     */
+    public List<ColumnMetadata> getColumns() {
+        return columns;
+    }
+
+    /**
+     * @return Names of all the mapped columns, in column order.
+     */
+    public List<String> getColumnNames() {
+        return columnNames;
+    }
+
+    /**
+     * @return Names of the columns that are selected when the entity is loaded: all the mapped columns followed by the join
+     * columns of the ManyToOne associations.
+     */
+    public List<String> getSelectColumnNames() {
+        return selectColumnNames;
+    }
+
+    /**
+     * @return Columns that are not generated values, in the order they are inserted.
+     */
+    public List<ColumnMetadata> getInsertableColumns() {
+        return insertableColumns;
+    }
+
+    public List<String> getInsertableColumnNames() {
+        return insertableColumnNames;
+    }
+
+    public List<ColumnMetadata> getGeneratedColumns() {
+        return generatedColumns;
+    }
+
+    public List<String> getGeneratedColumnNames() {
+        return generatedColumnNames;
+    }
+
+    /**
+     * @return Generated columns whose values are assigned by the ORM before insertion (they are also insertable columns).
+     */
+    public List<ColumnMetadata> getPreAssignedColumns() {
+        return preAssignedColumns;
+    }
+
+    public List<OneToManyMetadata> getOneToManyAssociations() {
+        return oneToManyAssociations;
+    }
+
+    public List<ManyToOneMetadata> getManyToOneAssociations() {
+        return manyToOneAssociations;
+    }
+
+    /**
+     * Finds the ManyToOne association that is declared by a field with the given name.
+     * @param fieldName Name of the field (typically the mappedBy value of the opposite OneToMany).
+     * @return The association or null if there is no such field.
+     */
+    public ManyToOneMetadata findManyToOne(String fieldName) {
+        for (ManyToOneMetadata manyToOne : manyToOneAssociations) {
+            if (manyToOne.getField().getName().equals(fieldName)) {
+                return manyToOne;
+            }
+        }
+
+        return null;
+    }
+}
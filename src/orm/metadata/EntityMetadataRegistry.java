@@ -0,0 +1,170 @@
+package orm.metadata;
+
+import orm.ClassHelper;
+import orm.access.MethodHandleAccessorFactory;
+import orm.access.PropertyAccessorFactory;
+import orm.annotations.*;
+import orm.exceptions.ColumnNotFound;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * <p>Process-wide registry of {@link EntityMetadata}. Annotations of a class are scanned only the first time the class
+ * is requested, every subsequent lookup is a single concurrent map read.</p>
+ */
+public class EntityMetadataRegistry {
+
+    private static final EntityMetadataRegistry INSTANCE = new EntityMetadataRegistry();
+
+    private final ConcurrentMap<Class<?>, EntityMetadata> metadataByClass = new ConcurrentHashMap<>();
+    private final ClassHelper classHelper = new ClassHelper();
+    private final PropertyAccessorFactory accessorFactory;
+
+    /**
+     * Creates a registry whose accessors are backed by method handles.
+     */
+    public EntityMetadataRegistry() {
+        this(new MethodHandleAccessorFactory());
+    }
+
+    /**
+     * @param accessorFactory Factory that creates the accessors of mapped fields.
+     */
+    public EntityMetadataRegistry(PropertyAccessorFactory accessorFactory) {
+        this.accessorFactory = accessorFactory;
+    }
+
+    /**
+     * @return The registry shared by all ORM instances.
+     */
+    public static EntityMetadataRegistry getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * <p>Gets the metadata of a class, building it if the class hasn't been seen before.</p>
+     * @param clazz Class whose metadata is needed.
+     * @return Metadata of the class.
+     */
+    public EntityMetadata getMetadata(Class<?> clazz) {
+        EntityMetadata metadata = metadataByClass.get(clazz);
+
+        // fast path, the class has already been scanned
+        if (metadata != null) {
+            return metadata;
+        }
+
+        return metadataByClass.computeIfAbsent(clazz, this::buildMetadata);
+    }
+
+    /**
+     * <p>Scans the class and all of its mapped superclasses and builds an immutable metadata model out of them.</p>
+     * @param clazz Class that needs to be scanned.
+     * @return Metadata of the class.
+     */
+    private EntityMetadata buildMetadata(Class<?> clazz) {
+        // superclasses come first so that inherited columns (like ID) are the first columns
+        List<Class<?>> allClasses = new ArrayList<>(classHelper.getSuperClasses(clazz));
+        allClasses.add(clazz);
+
+        List<ColumnMetadata> columns = new ArrayList<>();
+        List<OneToManyMetadata> oneToManyAssociations = new ArrayList<>();
+        List<ManyToOneMetadata> manyToOneAssociations = new ArrayList<>();
+
+        for (Class<?> cls : allClasses) {
+            for (Field field : cls.getDeclaredFields()) {
+                Column column = field.getAnnotation(Column.class);
+                GeneratedValue generatedValue = field.getAnnotation(GeneratedValue.class);
+
+                // field with GeneratedValue wasn't annotated with a Column -> big NO NO
+                if (generatedValue != null && column == null) {
+                    try {
+                        throw new ColumnNotFound("Column name for a GeneratedValue could not be found. <<" + clazz.getSimpleName() + ">>");
+                    } catch (ColumnNotFound columnNotFound) {
+                        columnNotFound.printStackTrace();
+                    }
+                }
+
+                if (column != null) {
+                    columns.add(new ColumnMetadata(field, accessorFactory.createAccessor(field), column.name(), field.isAnnotationPresent(ID.class),
+                            generatedValue, field.isAnnotationPresent(NotNull.class)));
+                }
+
+                OneToMany oneToMany = field.getAnnotation(OneToMany.class);
+
+                if (oneToMany != null) {
+                    oneToManyAssociations.add(new OneToManyMetadata(field, accessorFactory.createAccessor(field), findElementType(field), oneToMany.mappedBy(),
+                            Math.max(1, oneToMany.batchSize())));
+                }
+
+                ManyToOne manyToOne = field.getAnnotation(ManyToOne.class);
+
+                if (manyToOne != null) {
+                    JoinColumn joinColumn = field.getAnnotation(JoinColumn.class);
+
+                    manyToOneAssociations.add(new ManyToOneMetadata(field, accessorFactory.createAccessor(field), field.getType(),
+                            joinColumn != null ? joinColumn.name() : null, Math.max(1, manyToOne.batchSize())));
+                }
+            }
+        }
+
+        return new EntityMetadata(clazz, clazz.isAnnotationPresent(Entity.class), findTableName(clazz),
+                accessorFactory.createInstantiator(clazz), clazz.getAnnotation(Cacheable.class), columns,
+                oneToManyAssociations, manyToOneAssociations);
+    }
+
+    /**
+     * <p>Retrieves a table name for a given class. If a Table annotation is present, then table name will be the same as of the annotation's value.
+     * If Table annotation isn't present, then value of Entity annotation is looked up. If it is empty as well, then the simplified class name is taken
+     * as the name of the table.</p>
+     * @param clazz A class which represents an Entity, whose table name needs to be found.
+     * @return Name of the database table.
+     */
+    private String findTableName(Class<?> clazz) {
+        Table table = clazz.getAnnotation(Table.class);
+
+        if (table != null) {
+            // has schema name
+            if (table.schema().isEmpty()) {
+                return table.name();
+            }
+
+            return table.schema() + "." + table.name();
+        }
+
+        Entity entity = clazz.getAnnotation(Entity.class);
+
+        // has name value
+        if (entity != null && !entity.name().isEmpty()) {
+            return entity.name();
+        }
+
+        // doesn't have an annotated name value, using the entity's class name
+        return clazz.getSimpleName();
+    }
+
+    /**
+     * Gets the parameterized type T of a List&lt;T&gt; field.
+     * @param field Field annotated with OneToMany.
+     * @return Class of the list's elements or null if the list isn't parameterized.
+     */
+    private Class<?> findElementType(Field field) {
+        Type genericType = field.getGenericType();
+
+        if (genericType instanceof ParameterizedType) {
+            Type type = ((ParameterizedType) genericType).getActualTypeArguments()[0];
+
+            if (type instanceof Class) {
+                return (Class<?>) type;
+            }
+        }
+
+        return null;
+    }
+}
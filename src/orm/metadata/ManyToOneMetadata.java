@@ -0,0 +1,53 @@
+package orm.metadata;
+
+import orm.access.PropertyAccessor;
+
+import java.lang.reflect.Field;
+
+/**
+ * <p>Immutable description of a field annotated with ManyToOne.</p>
+ * <b>targetType</b> - class of the referenced entity.
+ * <br>
+ * <b>joinColumnName</b> - name of the foreign key column taken from JoinColumn (null if JoinColumn isn't present).
+ * <br>
+ * <b>batchSize</b> - number of lazy references that are loaded together.
+ */
+public class ManyToOneMetadata {
+
+    private final Field field;
+    private final PropertyAccessor accessor;
+    private final Class<?> targetType;
+    private final String joinColumnName;
+    private final int batchSize;
+
+    public ManyToOneMetadata(Field field, PropertyAccessor accessor, Class<?> targetType, String joinColumnName, int batchSize) {
+        this.field = field;
+        this.accessor = accessor;
+        this.targetType = targetType;
+        this.joinColumnName = joinColumnName;
+        this.batchSize = batchSize;
+    }
+
+    public Field getField() {
+        return field;
+    }
+
+    /**
+     * @return Accessor that reads and writes the field without reflection lookups.
+     */
+    public PropertyAccessor getAccessor() {
+        return accessor;
+    }
+
+    public Class<?> getTargetType() {
+        return targetType;
+    }
+
+    public String getJoinColumnName() {
+        return joinColumnName;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+}
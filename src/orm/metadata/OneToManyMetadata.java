@@ -0,0 +1,53 @@
+package orm.metadata;
+
+import orm.access.PropertyAccessor;
+
+import java.lang.reflect.Field;
+
+/**
+ * <p>Immutable description of a field annotated with OneToMany.</p>
+ * <b>elementType</b> - type T of the List&lt;T&gt; that holds the child entities.
+ * <br>
+ * <b>mappedBy</b> - name of the ManyToOne field in the child entity that references the owner.
+ * <br>
+ * <b>batchSize</b> - number of lazy lists of different owners that are loaded together.
+ */
+public class OneToManyMetadata {
+
+    private final Field field;
+    private final PropertyAccessor accessor;
+    private final Class<?> elementType;
+    private final String mappedBy;
+    private final int batchSize;
+
+    public OneToManyMetadata(Field field, PropertyAccessor accessor, Class<?> elementType, String mappedBy, int batchSize) {
+        this.field = field;
+        this.accessor = accessor;
+        this.elementType = elementType;
+        this.mappedBy = mappedBy;
+        this.batchSize = batchSize;
+    }
+
+    public Field getField() {
+        return field;
+    }
+
+    /**
+     * @return Accessor that reads and writes the field without reflection lookups.
+     */
+    public PropertyAccessor getAccessor() {
+        return accessor;
+    }
+
+    public Class<?> getElementType() {
+        return elementType;
+    }
+
+    public String getMappedBy() {
+        return mappedBy;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+}
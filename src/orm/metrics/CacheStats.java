@@ -0,0 +1,68 @@
+package orm.metrics;
+
+import orm.cache.CacheRegion;
+import orm.cache.QueryCache;
+import orm.cache.SecondLevelCache;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Reads the statistics of the shared query cache and second-level cache.
+ */
+public class CacheStats implements CacheStatsMXBean {
+
+    private final QueryCache queryCache;
+    private final SecondLevelCache secondLevelCache;
+
+    public CacheStats() {
+        this(QueryCache.getInstance(), SecondLevelCache.getInstance());
+    }
+
+    public CacheStats(QueryCache queryCache, SecondLevelCache secondLevelCache) {
+        this.queryCache = queryCache;
+        this.secondLevelCache = secondLevelCache;
+    }
+
+    @Override
+    public long getQueryCacheHitCount() {
+        return queryCache.getHitCount();
+    }
+
+    @Override
+    public long getQueryCacheMissCount() {
+        return queryCache.getMissCount();
+    }
+
+    @Override
+    public double getQueryCacheHitRatio() {
+        return queryCache.getHitRatio();
+    }
+
+    @Override
+    public int getQueryCacheSize() {
+        return queryCache.size();
+    }
+
+    @Override
+    public Map<String, Double> getRegionHitRatios() {
+        Map<String, Double> hitRatios = new LinkedHashMap<>();
+
+        for (CacheRegion region : secondLevelCache.getRegions()) {
+            hitRatios.put(region.getName(), region.getHitRatio());
+        }
+
+        return hitRatios;
+    }
+
+    @Override
+    public Map<String, Integer> getRegionSizes() {
+        Map<String, Integer> sizes = new LinkedHashMap<>();
+
+        for (CacheRegion region : secondLevelCache.getRegions()) {
+            sizes.put(region.getName(), region.size());
+        }
+
+        return sizes;
+    }
+}
@@ -0,0 +1,28 @@
+package orm.metrics;
+
+import java.util.Map;
+
+/**
+ * Management interface of the query cache and the regions of the second-level cache. Values are read from the caches
+ * whenever they are requested.
+ */
+public interface CacheStatsMXBean {
+
+    long getQueryCacheHitCount();
+
+    long getQueryCacheMissCount();
+
+    double getQueryCacheHitRatio();
+
+    int getQueryCacheSize();
+
+    /**
+     * @return Hit ratio of every second-level cache region by the name of the region.
+     */
+    Map<String, Double> getRegionHitRatios();
+
+    /**
+     * @return Number of entries of every second-level cache region by the name of the region.
+     */
+    Map<String, Integer> getRegionSizes();
+}
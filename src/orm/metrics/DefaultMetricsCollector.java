@@ -0,0 +1,129 @@
+package orm.metrics;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * <p>Collector that aggregates the measurements in memory: a latency histogram per entity class and operation, and a
+ * latency histogram with row counts and batch sizes per statement type.</p>
+ * <p>If the collector has a {@link JmxExporter}, every statistics object is registered as an MXBean when it's created.</p>
+ */
+public class DefaultMetricsCollector implements MetricsCollector {
+
+    private static final OrmOperation[] OPERATIONS = OrmOperation.values();
+
+    private final ConcurrentMap<Class<?>, OperationStats[]> operationStats = new ConcurrentHashMap<>();
+    private final StatementStats[] statementStats;
+    private final JmxExporter exporter;
+
+    public DefaultMetricsCollector() {
+        this(null);
+    }
+
+    /**
+     * @param exporter Exporter that registers the statistics as MXBeans (null if they aren't exported).
+     */
+    public DefaultMetricsCollector(JmxExporter exporter) {
+        this.exporter = exporter;
+
+        StatementType[] types = StatementType.values();
+        this.statementStats = new StatementStats[types.length];
+
+        for (int i = 0; i < types.length; i++) {
+            statementStats[i] = new StatementStats(types[i]);
+
+            if (exporter != null) {
+                exporter.register(statementStats[i]);
+            }
+        }
+
+        if (exporter != null) {
+            exporter.register(new CacheStats());
+        }
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return true;
+    }
+
+    @Override
+    public void operationCompleted(Class<?> entityClass, OrmOperation operation, long nanos, boolean failed) {
+        getOperationStats(entityClass, operation).record(nanos, failed);
+    }
+
+    @Override
+    public void statementExecuted(String sql, StatementType type, long nanos, int rows, boolean failed) {
+        statementStats[type.ordinal()].record(nanos, rows, failed);
+    }
+
+    @Override
+    public void batchExecuted(String sql, StatementType type, long nanos, int batchSize, boolean failed) {
+        statementStats[type.ordinal()].recordBatch(nanos, batchSize, failed);
+    }
+
+    /**
+     * @return Statistics of an operation on an entity class, created on first use.
+     */
+    public OperationStats getOperationStats(Class<?> entityClass, OrmOperation operation) {
+        OperationStats[] stats = operationStats.get(entityClass);
+
+        if (stats == null) {
+            stats = operationStats.computeIfAbsent(entityClass, this::createOperationStats);
+        }
+
+        return stats[operation.ordinal()];
+    }
+
+    /**
+     * @return Statistics of all the operations that have been measured so far.
+     */
+    public List<OperationStats> getOperationStats() {
+        List<OperationStats> all = new ArrayList<>();
+
+        for (OperationStats[] stats : operationStats.values()) {
+            for (OperationStats operation : stats) {
+                if (operation.getCount() > 0) {
+                    all.add(operation);
+                }
+            }
+        }
+
+        return all;
+    }
+
+    public StatementStats getStatementStats(StatementType type) {
+        return statementStats[type.ordinal()];
+    }
+
+    public Collection<StatementStats> getStatementStats() {
+        List<StatementStats> all = new ArrayList<>();
+
+        for (StatementStats stats : statementStats) {
+            all.add(stats);
+        }
+
+        return all;
+    }
+
+    public JmxExporter getExporter() {
+        return exporter;
+    }
+
+    private OperationStats[] createOperationStats(Class<?> entityClass) {
+        OperationStats[] stats = new OperationStats[OPERATIONS.length];
+
+        for (int i = 0; i < OPERATIONS.length; i++) {
+            stats[i] = new OperationStats(entityClass, OPERATIONS[i]);
+
+            if (exporter != null) {
+                exporter.register(stats[i]);
+            }
+        }
+
+        return stats;
+    }
+}
@@ -0,0 +1,81 @@
+package orm.metrics;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * <p>Registers the statistics of a {@link DefaultMetricsCollector} as MXBeans, so that they can be watched with JConsole,
+ * VisualVM or any JMX client. The beans are registered under the <b>orm</b> domain:</p>
+ * <p>orm:type=Operation,entity=&lt;simple class name&gt;,operation=&lt;operation&gt;<br>
+ * orm:type=Statement,kind=&lt;statement type&gt;<br>
+ * orm:type=Caches</p>
+ */
+public class JmxExporter {
+
+    public static final String DOMAIN = "orm";
+
+    private final MBeanServer server;
+    private final Set<ObjectName> registeredNames = ConcurrentHashMap.newKeySet();
+
+    public JmxExporter() {
+        this(ManagementFactory.getPlatformMBeanServer());
+    }
+
+    public JmxExporter(MBeanServer server) {
+        this.server = server;
+    }
+
+    public void register(OperationStats stats) {
+        register(stats, "type=Operation,entity=" + ObjectName.quote(stats.getEntityClass().getSimpleName())
+                + ",operation=" + stats.getOperation().name());
+    }
+
+    public void register(StatementStats stats) {
+        register(stats, "type=Statement,kind=" + stats.getType().name());
+    }
+
+    public void register(CacheStats stats) {
+        register(stats, "type=Caches");
+    }
+
+    /**
+     * Unregisters all the beans that have been registered by the exporter.
+     */
+    public void unregisterAll() {
+        for (ObjectName name : registeredNames) {
+            try {
+                if (server.isRegistered(name)) {
+                    server.unregisterMBean(name);
+                }
+            } catch (JMException e) {
+                e.printStackTrace();
+            }
+        }
+
+        registeredNames.clear();
+    }
+
+    /**
+     * Registers a bean, replacing a bean that was registered under the same name before (e.g. by a previous collector).
+     * @param bean The MXBean.
+     * @param properties Key properties of the bean's name.
+     */
+    private void register(Object bean, String properties) {
+        try {
+            ObjectName name = new ObjectName(DOMAIN + ":" + properties);
+
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+
+            server.registerMBean(bean, name);
+            registeredNames.add(name);
+        } catch (JMException e) {
+            e.printStackTrace();
+        }
+    }
+}
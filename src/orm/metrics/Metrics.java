@@ -0,0 +1,65 @@
+package orm.metrics;
+
+/**
+ * <p>Holds the {@link MetricsCollector} the ORM reports to. By default the {@link NoopMetricsCollector} is installed and
+ * the instrumented paths cost a single volatile read.</p>
+ * <p>Example:<br>
+ * <b>Metrics.enable();</b> - collects the statistics and exports them over JMX<br>
+ * <b>Metrics.setCollector(myCollector);</b> - reports to a custom collector (e.g. a tracing bridge)<br>
+ * <b>Metrics.disable();</b> - stops measuring</p>
+ */
+public final class Metrics {
+
+    private static volatile MetricsCollector collector = NoopMetricsCollector.INSTANCE;
+
+    private Metrics() {
+    }
+
+    public static MetricsCollector getCollector() {
+        return collector;
+    }
+
+    /**
+     * @param collector Collector the ORM reports to, null installs the {@link NoopMetricsCollector}.
+     */
+    public static void setCollector(MetricsCollector collector) {
+        MetricsCollector previous = Metrics.collector;
+        Metrics.collector = collector != null ? collector : NoopMetricsCollector.INSTANCE;
+
+        if (previous != collector && previous instanceof DefaultMetricsCollector) {
+            JmxExporter exporter = ((DefaultMetricsCollector) previous).getExporter();
+
+            if (exporter != null) {
+                exporter.unregisterAll();
+            }
+        }
+    }
+
+    /**
+     * @return <b>true</b> if the installed collector wants the ORM to measure its operations.
+     */
+    public static boolean isEnabled() {
+        return collector.isEnabled();
+    }
+
+    /**
+     * Installs a {@link DefaultMetricsCollector} that exports its statistics to the platform MBean server.
+     * @return The installed collector.
+     */
+    public static DefaultMetricsCollector enable() {
+        // the beans of the previous collector are unregistered first, the new ones are registered under the same names
+        disable();
+
+        DefaultMetricsCollector defaultCollector = new DefaultMetricsCollector(new JmxExporter());
+        setCollector(defaultCollector);
+
+        return defaultCollector;
+    }
+
+    /**
+     * Installs the {@link NoopMetricsCollector}, the beans of a previously enabled collector are unregistered.
+     */
+    public static void disable() {
+        setCollector(null);
+    }
+}
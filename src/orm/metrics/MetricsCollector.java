@@ -0,0 +1,45 @@
+package orm.metrics;
+
+/**
+ * <p>Instrumentation SPI of the ORM. The ORM reports every operation and every executed statement to the collector that is
+ * installed through {@link Metrics#setCollector(MetricsCollector)}. An implementation can aggregate the measurements (see
+ * {@link DefaultMetricsCollector}) or forward them to a tracing or monitoring system.</p>
+ * <p>Callbacks are invoked on the threads that run the operations, so they need to be thread-safe and fast. If
+ * {@link #isEnabled()} returns <b>false</b>, nothing is measured and none of the callbacks are invoked.</p>
+ */
+public interface MetricsCollector {
+
+    /**
+     * @return <b>true</b> if the ORM should measure its operations and statements.
+     */
+    boolean isEnabled();
+
+    /**
+     * Called after an operation of the ORM has completed.
+     * @param entityClass Class of the entities the operation worked with.
+     * @param operation The operation.
+     * @param nanos Duration of the operation in nanoseconds.
+     * @param failed <b>true</b> if the operation has thrown an exception.
+     */
+    void operationCompleted(Class<?> entityClass, OrmOperation operation, long nanos, boolean failed);
+
+    /**
+     * Called after a statement has been executed. The duration of a query includes reading its rows.
+     * @param sql Text of the statement.
+     * @param type Type of the statement.
+     * @param nanos Duration of the statement in nanoseconds.
+     * @param rows Number of rows the statement has read or affected (0 if it failed).
+     * @param failed <b>true</b> if the statement couldn't be executed.
+     */
+    void statementExecuted(String sql, StatementType type, long nanos, int rows, boolean failed);
+
+    /**
+     * Called after a JDBC batch has been executed.
+     * @param sql Text of the batched statement.
+     * @param type Type of the statement.
+     * @param nanos Duration of the batch in nanoseconds.
+     * @param batchSize Number of rows in the batch.
+     * @param failed <b>true</b> if the batch couldn't be executed.
+     */
+    void batchExecuted(String sql, StatementType type, long nanos, int batchSize, boolean failed);
+}
@@ -0,0 +1,29 @@
+package orm.metrics;
+
+/**
+ * Collector that is installed by default. It is disabled, so the ORM doesn't measure anything.
+ */
+public final class NoopMetricsCollector implements MetricsCollector {
+
+    public static final NoopMetricsCollector INSTANCE = new NoopMetricsCollector();
+
+    private NoopMetricsCollector() {
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return false;
+    }
+
+    @Override
+    public void operationCompleted(Class<?> entityClass, OrmOperation operation, long nanos, boolean failed) {
+    }
+
+    @Override
+    public void statementExecuted(String sql, StatementType type, long nanos, int rows, boolean failed) {
+    }
+
+    @Override
+    public void batchExecuted(String sql, StatementType type, long nanos, int batchSize, boolean failed) {
+    }
+}
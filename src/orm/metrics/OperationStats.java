@@ -0,0 +1,73 @@
+package orm.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency histogram and error count of one operation on one entity class.
+ */
+public class OperationStats implements OperationStatsMXBean {
+
+    private final Class<?> entityClass;
+    private final OrmOperation operation;
+    private final Histogram latency = new Histogram();
+    private final LongAdder errors = new LongAdder();
+
+    public OperationStats(Class<?> entityClass, OrmOperation operation) {
+        this.entityClass = entityClass;
+        this.operation = operation;
+    }
+
+    /**
+     * @param nanos Duration of the operation in nanoseconds.
+     * @param failed <b>true</b> if the operation has thrown an exception.
+     */
+    public void record(long nanos, boolean failed) {
+        latency.record(nanos);
+
+        if (failed) {
+            errors.increment();
+        }
+    }
+
+    public Class<?> getEntityClass() {
+        return entityClass;
+    }
+
+    public OrmOperation getOperation() {
+        return operation;
+    }
+
+    public Histogram getLatency() {
+        return latency;
+    }
+
+    @Override
+    public long getCount() {
+        return latency.getCount();
+    }
+
+    @Override
+    public long getErrorCount() {
+        return errors.sum();
+    }
+
+    @Override
+    public double getMeanMillis() {
+        return latency.getMean() / 1_000_000;
+    }
+
+    @Override
+    public double getP50Millis() {
+        return latency.getValueAtPercentile(50) / 1_000_000.0;
+    }
+
+    @Override
+    public double getP99Millis() {
+        return latency.getValueAtPercentile(99) / 1_000_000.0;
+    }
+
+    @Override
+    public double getMaxMillis() {
+        return latency.getMax() / 1_000_000.0;
+    }
+}
@@ -0,0 +1,19 @@
+package orm.metrics;
+
+/**
+ * Management interface of the statistics of one operation on one entity class. Latencies are in milliseconds.
+ */
+public interface OperationStatsMXBean {
+
+    long getCount();
+
+    long getErrorCount();
+
+    double getMeanMillis();
+
+    double getP50Millis();
+
+    double getP99Millis();
+
+    double getMaxMillis();
+}
@@ -0,0 +1,12 @@
+package orm.metrics;
+
+/**
+ * Operation of the ORM whose latency is measured per entity class.
+ */
+public enum OrmOperation {
+    PERSIST,
+    LOAD,
+    FIND,
+    UPDATE,
+    DELETE
+}
@@ -0,0 +1,76 @@
+package orm.metrics;
+
+/**
+ * <p>Aggregated executions of one normalized SQL statement. Values are written only by the aggregator thread of
+ * {@link StatementStatistics} and can be read by any thread.</p>
+ */
+public class SqlStatistics {
+
+    private final String sql;
+
+    private volatile long count;
+    private volatile long errorCount;
+    private volatile long rowCount;
+    private volatile long totalNanos;
+    private volatile long maxNanos;
+
+    SqlStatistics(String sql) {
+        this.sql = sql;
+    }
+
+    /**
+     * Adds an execution, called by a single thread only.
+     */
+    void record(long nanos, int rows, boolean failed) {
+        count++;
+        rowCount += rows;
+        totalNanos += nanos;
+
+        if (nanos > maxNanos) {
+            maxNanos = nanos;
+        }
+
+        if (failed) {
+            errorCount++;
+        }
+    }
+
+    /**
+     * @return Text of the statement with its literals replaced by placeholders and its IN lists collapsed.
+     */
+    public String getSql() {
+        return sql;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getErrorCount() {
+        return errorCount;
+    }
+
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    public long getTotalNanos() {
+        return totalNanos;
+    }
+
+    public long getMaxNanos() {
+        return maxNanos;
+    }
+
+    public double getMeanMillis() {
+        long n = count;
+
+        return n == 0 ? 0 : (double) totalNanos / n / 1_000_000;
+    }
+
+    @Override
+    public String toString() {
+        return sql + " [count=" + count + ", errors=" + errorCount + ", rows=" + rowCount + ", total=" + totalNanos / 1_000_000
+                + "ms, max=" + maxNanos / 1_000_000 + "ms]";
+    }
+}
@@ -0,0 +1,264 @@
+package orm.metrics;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+
+/**
+ * <p>Process-wide statistics of the executed SQL statements, aggregated per normalized statement (literals are replaced by
+ * placeholders and IN lists are collapsed, so the padded IN lists of batch fetching count as one statement).</p>
+ * <p>Recording an execution only appends an event to a lock-free queue, the events are aggregated by a daemon thread. If
+ * the queue is full (the aggregator can't keep up), events are dropped and counted instead of blocking the caller.</p>
+ * <p>Statements that take at least the slow-query threshold are written to the <b>orm.sql.slow</b> logger at WARNING
+ * level. The threshold is read from the <b>orm.slowQueryMillis</b> system property (1000 ms by default, a negative value
+ * disables the log) and can be changed at runtime.</p>
+ */
+public class StatementStatistics {
+
+    /**
+     * Slow-query threshold in milliseconds when it isn't specified by the system property.
+     */
+    public static final long DEFAULT_SLOW_QUERY_MILLIS = 1000;
+
+    /**
+     * Number of events that can wait for the aggregator before new ones are dropped.
+     */
+    public static final int DEFAULT_QUEUE_CAPACITY = 65536;
+
+    /**
+     * Number of normalized statements that are kept, executions of other statements are only counted as dropped.
+     */
+    public static final int MAX_STATEMENTS = 4096;
+
+    private static final Logger SLOW_QUERY_LOGGER = Logger.getLogger("orm.sql.slow");
+
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("(?<![\\w.])-?\\d+(?:\\.\\d+)?(?![\\w.])");
+    private static final Pattern IN_LIST = Pattern.compile("(?i)\\bIN\\s*\\(\\s*\\?(?:\\s*,\\s*\\?)*\\s*\\)");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private static final StatementStatistics INSTANCE = new StatementStatistics(
+            Long.getLong("orm.slowQueryMillis", DEFAULT_SLOW_QUERY_MILLIS), DEFAULT_QUEUE_CAPACITY);
+
+    private final int queueCapacity;
+    private final Queue<Event> events = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queuedEvents = new AtomicInteger();
+    private final LongAdder droppedEvents = new LongAdder();
+
+    private final ConcurrentMap<String, SqlStatistics> statistics = new ConcurrentHashMap<>();
+    // raw statements are normalized only once, used by the aggregator only
+    private final Map<String, String> normalizedStatements = new HashMap<>();
+
+    private volatile long slowQueryNanos;
+    private volatile Thread aggregator;
+
+    /**
+     * @param slowQueryMillis Threshold of the slow-query log in milliseconds (negative if it's disabled).
+     * @param queueCapacity Number of events that can wait for the aggregator.
+     */
+    public StatementStatistics(long slowQueryMillis, int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+        setSlowQueryMillis(slowQueryMillis);
+    }
+
+    /**
+     * @return The statistics shared by all database connectors.
+     */
+    public static StatementStatistics getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * @return Threshold of the slow-query log in milliseconds, negative if the log is disabled.
+     */
+    public long getSlowQueryMillis() {
+        return slowQueryNanos < 0 ? -1 : TimeUnit.NANOSECONDS.toMillis(slowQueryNanos);
+    }
+
+    /**
+     * @param slowQueryMillis Threshold of the slow-query log in milliseconds, a negative value disables the log.
+     */
+    public void setSlowQueryMillis(long slowQueryMillis) {
+        this.slowQueryNanos = slowQueryMillis < 0 ? -1 : TimeUnit.MILLISECONDS.toNanos(slowQueryMillis);
+    }
+
+    /**
+     * <p>Records an execution of a statement. The call doesn't block, the execution is aggregated later by the aggregator
+     * thread, which is started by the first call.</p>
+     * @param sql Text of the executed statement.
+     * @param parameters Parameters of the statement, converted to text only if the statement is slow (null if there are none).
+     * @param nanos Duration of the execution in nanoseconds.
+     * @param rows Number of rows the statement has read or affected.
+     * @param failed <b>true</b> if the statement couldn't be executed.
+     */
+    public void record(String sql, Object parameters, long nanos, int rows, boolean failed) {
+        if (queuedEvents.incrementAndGet() > queueCapacity) {
+            queuedEvents.decrementAndGet();
+            droppedEvents.increment();
+            return;
+        }
+
+        long threshold = slowQueryNanos;
+        String slowParameters = threshold >= 0 && nanos >= threshold ? String.valueOf(parameters) : null;
+
+        events.offer(new Event(sql, slowParameters, nanos, rows, failed));
+
+        if (aggregator == null) {
+            startAggregator();
+        }
+    }
+
+    /**
+     * Aggregates every event that has been recorded so far, on the calling thread.
+     */
+    public void drain() {
+        synchronized (normalizedStatements) {
+            Event event;
+
+            while ((event = events.poll()) != null) {
+                queuedEvents.decrementAndGet();
+                aggregate(event);
+            }
+        }
+    }
+
+    /**
+     * @return Statistics of the normalized statements, the ones with the highest total time first. Executions that are still
+     * waiting for the aggregator aren't included (see {@link #drain()}).
+     */
+    public List<SqlStatistics> getStatistics() {
+        List<SqlStatistics> all = new ArrayList<>(statistics.values());
+        all.sort(Comparator.comparingLong(SqlStatistics::getTotalNanos).reversed());
+
+        return Collections.unmodifiableList(all);
+    }
+
+    /**
+     * @param sql Normalized text of a statement.
+     * @return Statistics of the statement, or null if it hasn't been executed.
+     */
+    public SqlStatistics getStatistics(String sql) {
+        return statistics.get(sql);
+    }
+
+    /**
+     * @return Number of executions that weren't aggregated because the queue was full or too many statements were tracked.
+     */
+    public long getDroppedCount() {
+        return droppedEvents.sum();
+    }
+
+    /**
+     * Removes all the aggregated statistics.
+     */
+    public void clear() {
+        drain();
+        statistics.clear();
+    }
+
+    /**
+     * Replaces the literals of a statement with placeholders, collapses its IN lists and whitespace.
+     * @param sql Text of a statement.
+     * @return The normalized text.
+     */
+    public static String normalize(String sql) {
+        String normalized = STRING_LITERAL.matcher(sql).replaceAll("?");
+        normalized = NUMBER_LITERAL.matcher(normalized).replaceAll("?");
+        normalized = IN_LIST.matcher(normalized).replaceAll("IN (...)");
+
+        return WHITESPACE.matcher(normalized).replaceAll(" ").trim();
+    }
+
+    private synchronized void startAggregator() {
+        if (aggregator != null) {
+            return;
+        }
+
+        Thread thread = new Thread(this::aggregateEvents, "orm-statement-statistics");
+        thread.setDaemon(true);
+        thread.start();
+
+        aggregator = thread;
+    }
+
+    private void aggregateEvents() {
+        while (!Thread.currentThread().isInterrupted()) {
+            drain();
+
+            // nothing to aggregate, waiting a bit instead of making the producers signal the aggregator
+            if (events.isEmpty()) {
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(10));
+            }
+        }
+    }
+
+    private void aggregate(Event event) {
+        String sql = normalizedStatements.get(event.sql);
+
+        if (sql == null) {
+            sql = normalize(event.sql);
+
+            if (normalizedStatements.size() < MAX_STATEMENTS * 4) {
+                normalizedStatements.put(event.sql, sql);
+            }
+        }
+
+        SqlStatistics sqlStatistics = statistics.get(sql);
+
+        if (sqlStatistics == null) {
+            // statements built out of unbounded literals would grow the map forever
+            if (statistics.size() >= MAX_STATEMENTS) {
+                droppedEvents.increment();
+                logSlowQuery(event);
+                return;
+            }
+
+            sqlStatistics = new SqlStatistics(sql);
+            statistics.put(sql, sqlStatistics);
+        }
+
+        sqlStatistics.record(event.nanos, event.rows, event.failed);
+        logSlowQuery(event);
+    }
+
+    private void logSlowQuery(Event event) {
+        if (event.slowParameters != null && SLOW_QUERY_LOGGER.isLoggable(Level.WARNING)) {
+            SLOW_QUERY_LOGGER.warning("Slow statement (" + TimeUnit.NANOSECONDS.toMillis(event.nanos) + " ms, " + event.rows + " rows"
+                    + (event.failed ? ", failed" : "") + "): " + event.sql + " " + event.slowParameters);
+        }
+    }
+
+    /**
+     * Execution of a statement that is waiting for the aggregator.
+     */
+    private static final class Event {
+
+        private final String sql;
+        private final String slowParameters;
+        private final long nanos;
+        private final int rows;
+        private final boolean failed;
+
+        private Event(String sql, String slowParameters, long nanos, int rows, boolean failed) {
+            this.sql = sql;
+            this.slowParameters = slowParameters;
+            this.nanos = nanos;
+            this.rows = rows;
+            this.failed = failed;
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package orm.metrics;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency histogram, row counts and batch sizes of one type of statements.
+ */
+public class StatementStats implements StatementStatsMXBean {
+
+    private final StatementType type;
+    private final Histogram latency = new Histogram();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder rows = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder batchedRows = new LongAdder();
+    private final LongAccumulator maxBatchSize = new LongAccumulator(Math::max, 0);
+
+    public StatementStats(StatementType type) {
+        this.type = type;
+    }
+
+    /**
+     * @param nanos Duration of the statement in nanoseconds.
+     * @param rows Number of rows the statement has read or affected.
+     * @param failed <b>true</b> if the statement couldn't be executed.
+     */
+    public void record(long nanos, int rows, boolean failed) {
+        latency.record(nanos);
+        this.rows.add(rows);
+
+        if (failed) {
+            errors.increment();
+        }
+    }
+
+    /**
+     * @param nanos Duration of the batch in nanoseconds.
+     * @param batchSize Number of rows in the batch.
+     * @param failed <b>true</b> if the batch couldn't be executed.
+     */
+    public void recordBatch(long nanos, int batchSize, boolean failed) {
+        record(nanos, failed ? 0 : batchSize, failed);
+        batches.increment();
+        batchedRows.add(batchSize);
+        maxBatchSize.accumulate(batchSize);
+    }
+
+    public StatementType getType() {
+        return type;
+    }
+
+    public Histogram getLatency() {
+        return latency;
+    }
+
+    @Override
+    public long getCount() {
+        return latency.getCount();
+    }
+
+    @Override
+    public long getErrorCount() {
+        return errors.sum();
+    }
+
+    @Override
+    public long getRowCount() {
+        return rows.sum();
+    }
+
+    @Override
+    public double getMeanMillis() {
+        return latency.getMean() / 1_000_000;
+    }
+
+    @Override
+    public double getP50Millis() {
+        return latency.getValueAtPercentile(50) / 1_000_000.0;
+    }
+
+    @Override
+    public double getP99Millis() {
+        return latency.getValueAtPercentile(99) / 1_000_000.0;
+    }
+
+    @Override
+    public double getMaxMillis() {
+        return latency.getMax() / 1_000_000.0;
+    }
+
+    @Override
+    public long getBatchCount() {
+        return batches.sum();
+    }
+
+    @Override
+    public double getMeanBatchSize() {
+        long count = batches.sum();
+
+        return count == 0 ? 0 : (double) batchedRows.sum() / count;
+    }
+
+    @Override
+    public long getMaxBatchSize() {
+        return maxBatchSize.get();
+    }
+}
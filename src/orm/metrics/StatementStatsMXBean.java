@@ -0,0 +1,27 @@
+package orm.metrics;
+
+/**
+ * Management interface of the statistics of one type of statements. Latencies are in milliseconds.
+ */
+public interface StatementStatsMXBean {
+
+    long getCount();
+
+    long getErrorCount();
+
+    long getRowCount();
+
+    double getMeanMillis();
+
+    double getP50Millis();
+
+    double getP99Millis();
+
+    double getMaxMillis();
+
+    long getBatchCount();
+
+    double getMeanBatchSize();
+
+    long getMaxBatchSize();
+}
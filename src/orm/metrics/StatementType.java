@@ -0,0 +1,34 @@
+package orm.metrics;
+
+/**
+ * Kind of an executed SQL statement, determined by its first keyword.
+ */
+public enum StatementType {
+    SELECT,
+    INSERT,
+    UPDATE,
+    DELETE,
+    OTHER;
+
+    /**
+     * @param sql Text of a statement.
+     * @return Type of the statement, OTHER if it doesn't start with any of the known keywords.
+     */
+    public static StatementType of(String sql) {
+        int start = 0;
+
+        while (start < sql.length() && Character.isWhitespace(sql.charAt(start))) {
+            start++;
+        }
+
+        for (StatementType type : values()) {
+            String keyword = type.name();
+
+            if (type != OTHER && sql.regionMatches(true, start, keyword, 0, keyword.length())) {
+                return type;
+            }
+        }
+
+        return OTHER;
+    }
+}
@@ -0,0 +1,388 @@
+package orm.pool;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <p>Bounded pool of JDBC connections.</p>
+ * <ul>
+ *     <li>The number of borrowed connections is bounded by a fair semaphore, so waiting borrowers are served in order.
+ *     Every borrow and every return goes through the semaphore, whose state is shared by all the threads of the pool.</li>
+ *     <li>Once it holds a permit, a thread first tries to reclaim the connection it returned last (thread-local affinity),
+ *     which takes a single compare-and-set instead of a scan over the connections of the pool.</li>
+ *     <li>Connections that haven't been used for a while are validated on borrow, connections older than maxLifetime are
+ *     closed when they are returned, and connections that stay idle for too long are closed by a housekeeping task. The
+ *     tasks of all the pools run on a single daemon thread, so creating a pool doesn't start a thread of its own.</li>
+ * </ul>
+ * <p>Borrow latency, timeouts and saturation are recorded and can be read through the getters of the pool.</p>
+ */
+public class ConnectionPool {
+
+    private final DataSource dataSource;
+    private final ConnectionPoolConfig config;
+
+    private final List<PooledConnection> connections = new CopyOnWriteArrayList<>();
+    private final ThreadLocal<PooledConnection> lastUsedConnection = new ThreadLocal<>();
+    // shared by every pool, the housekeeping tasks are short and infrequent
+    private static final ScheduledExecutorService HOUSEKEEPER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "orm-connection-pool-housekeeper");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Semaphore permits;
+    private final ScheduledFuture<?> housekeeping;
+
+    private volatile boolean closed;
+
+    private final LongAdder borrowCount = new LongAdder();
+    private final LongAdder borrowNanos = new LongAdder();
+    private final AtomicLong maxBorrowNanos = new AtomicLong();
+    private final LongAdder waitCount = new LongAdder();
+    private final LongAdder timeoutCount = new LongAdder();
+    private final LongAdder createdCount = new LongAdder();
+    private final LongAdder closedCount = new LongAdder();
+
+    public ConnectionPool(DataSource dataSource) {
+        this(dataSource, new ConnectionPoolConfig());
+    }
+
+    public ConnectionPool(DataSource dataSource, ConnectionPoolConfig config) {
+        this.dataSource = dataSource;
+        this.config = config;
+        this.permits = new Semaphore(config.getMaxSize(), true);
+
+        this.housekeeping = config.getHousekeepingPeriod() > 0
+                ? HOUSEKEEPER.scheduleWithFixedDelay(this::evictIdleConnections, config.getHousekeepingPeriod(),
+                        config.getHousekeepingPeriod(), TimeUnit.MILLISECONDS)
+                : null;
+    }
+
+    public DataSource getDataSource() {
+        return dataSource;
+    }
+
+    public ConnectionPoolConfig getConfig() {
+        return config;
+    }
+
+    /**
+     * Borrows a connection, waiting up to connectionTimeout milliseconds if all of them are in use.
+     * @return A connection that belongs to the caller until it is returned with {@link #release(PooledConnection)}.
+     * @throws SQLException if no connection became free in time or a new connection couldn't be opened.
+     */
+    public PooledConnection borrow() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed.");
+        }
+
+        long start = System.nanoTime();
+
+        try {
+            // the semaphore is fair, a borrower has to wait if anybody else is already waiting
+            if (permits.availablePermits() == 0 || permits.hasQueuedThreads()) {
+                waitCount.increment();
+            }
+
+            if (!permits.tryAcquire(config.getConnectionTimeout(), TimeUnit.MILLISECONDS)) {
+                timeoutCount.increment();
+                throw new SQLTransientConnectionException("Couldn't borrow a connection in " + config.getConnectionTimeout() + "ms, "
+                        + getActiveCount() + " of " + config.getMaxSize() + " connections are in use.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a connection.", e);
+        }
+
+        try {
+            PooledConnection pooledConnection = claimConnection();
+
+            recordBorrow(System.nanoTime() - start);
+
+            return pooledConnection;
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns a borrowed connection to the pool.
+     * @param pooledConnection Connection that has been borrowed with {@link #borrow()}.
+     */
+    public void release(PooledConnection pooledConnection) {
+        try {
+            Connection connection = pooledConnection.getConnection();
+
+            // a borrower could have left a transaction open
+            if (!connection.getAutoCommit()) {
+                connection.rollback();
+                connection.setAutoCommit(true);
+            }
+
+            if (closed || isExpired(pooledConnection, System.currentTimeMillis())) {
+                remove(pooledConnection);
+            } else {
+                pooledConnection.touch();
+                pooledConnection.unclaim();
+                lastUsedConnection.set(pooledConnection);
+            }
+        } catch (SQLException e) {
+            // broken connection, it can't be used anymore
+            e.printStackTrace();
+            remove(pooledConnection);
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * Closes all of the connections. Connections that are in use are closed once they are returned.
+     */
+    public void close() {
+        closed = true;
+
+        if (housekeeping != null) {
+            housekeeping.cancel(false);
+        }
+
+        for (PooledConnection pooledConnection : connections) {
+            if (pooledConnection.retireIfIdle()) {
+                connections.remove(pooledConnection);
+                closeConnection(pooledConnection);
+            }
+        }
+    }
+
+    /**
+     * @return Number of connections that are currently borrowed.
+     */
+    public int getActiveCount() {
+        return config.getMaxSize() - permits.availablePermits();
+    }
+
+    /**
+     * @return Number of open connections, idle and in use.
+     */
+    public int getTotalCount() {
+        return connections.size();
+    }
+
+    /**
+     * @return Number of open connections that aren't borrowed.
+     */
+    public int getIdleCount() {
+        int idle = 0;
+
+        for (PooledConnection pooledConnection : connections) {
+            if (pooledConnection.isIdle()) {
+                idle++;
+            }
+        }
+
+        return idle;
+    }
+
+    /**
+     * @return Number of threads waiting for a connection.
+     */
+    public int getWaitingThreadCount() {
+        return permits.getQueueLength();
+    }
+
+    /**
+     * @return Share of the connections that are in use, between 0 and 1. A pool at 1 makes new borrowers wait.
+     */
+    public double getSaturation() {
+        return (double) getActiveCount() / config.getMaxSize();
+    }
+
+    public long getBorrowCount() {
+        return borrowCount.sum();
+    }
+
+    /**
+     * @return Average time a borrow took (including waiting) in nanoseconds.
+     */
+    public double getAverageBorrowNanos() {
+        long count = borrowCount.sum();
+
+        return count == 0 ? 0 : (double) borrowNanos.sum() / count;
+    }
+
+    /**
+     * @return Longest time a borrow took (including waiting) in nanoseconds.
+     */
+    public long getMaxBorrowNanos() {
+        return maxBorrowNanos.get();
+    }
+
+    /**
+     * @return Number of borrows that had to wait because all of the connections were in use.
+     */
+    public long getWaitCount() {
+        return waitCount.sum();
+    }
+
+    /**
+     * @return Number of borrows that gave up waiting.
+     */
+    public long getTimeoutCount() {
+        return timeoutCount.sum();
+    }
+
+    public long getCreatedCount() {
+        return createdCount.sum();
+    }
+
+    public long getClosedCount() {
+        return closedCount.sum();
+    }
+
+    public long getStatementCacheHits() {
+        long hits = 0;
+
+        for (PooledConnection pooledConnection : connections) {
+            hits += pooledConnection.getStatementCache().getHits();
+        }
+
+        return hits;
+    }
+
+    public long getStatementCacheMisses() {
+        long misses = 0;
+
+        for (PooledConnection pooledConnection : connections) {
+            misses += pooledConnection.getStatementCache().getMisses();
+        }
+
+        return misses;
+    }
+
+    public long getStatementCacheEvictions() {
+        long evictions = 0;
+
+        for (PooledConnection pooledConnection : connections) {
+            evictions += pooledConnection.getStatementCache().getEvictions();
+        }
+
+        return evictions;
+    }
+
+    /**
+     * Claims a connection once a permit is held: the thread's last connection, any idle connection, or a new one.
+     * Holding a permit guarantees that there are fewer than maxSize connections in use, so a new connection
+     * never exceeds the limit.
+     */
+    private PooledConnection claimConnection() throws SQLException {
+        long now = System.currentTimeMillis();
+
+        // thread-local affinity
+        PooledConnection pooledConnection = lastUsedConnection.get();
+
+        if (pooledConnection != null && pooledConnection.claim()) {
+            if (isUsable(pooledConnection, now)) {
+                return pooledConnection;
+            }
+
+            remove(pooledConnection);
+        }
+
+        // any other idle connection
+        for (PooledConnection candidate : connections) {
+            if (candidate.claim()) {
+                if (isUsable(candidate, now)) {
+                    lastUsedConnection.set(candidate);
+                    return candidate;
+                }
+
+                remove(candidate);
+            }
+        }
+
+        // all of the connections are in use, opening a new one
+        pooledConnection = new PooledConnection(dataSource.getConnection(), config.getStatementCacheSize());
+        pooledConnection.claim();
+
+        connections.add(pooledConnection);
+        createdCount.increment();
+        lastUsedConnection.set(pooledConnection);
+
+        return pooledConnection;
+    }
+
+    /**
+     * Checks a claimed connection before handing it out. Connections used within the validation interval are trusted,
+     * the rest are validated with Connection.isValid.
+     */
+    private boolean isUsable(PooledConnection pooledConnection, long now) {
+        if (isExpired(pooledConnection, now)) {
+            return false;
+        }
+
+        if (now - pooledConnection.getLastUsedAt() < config.getValidationInterval()) {
+            return true;
+        }
+
+        try {
+            int timeoutSeconds = (int) Math.max(1, config.getValidationTimeout() / 1000);
+
+            return pooledConnection.getConnection().isValid(timeoutSeconds);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private boolean isExpired(PooledConnection pooledConnection, long now) {
+        return config.getMaxLifetime() > 0 && now - pooledConnection.getCreatedAt() > config.getMaxLifetime();
+    }
+
+    /**
+     * Closes connections that have been idle for longer than idleTimeout or that have outlived maxLifetime.
+     */
+    private void evictIdleConnections() {
+        long now = System.currentTimeMillis();
+
+        // an exception would cancel the task, and the pool's connections would never be evicted again
+        try {
+            for (PooledConnection pooledConnection : connections) {
+                boolean idleTooLong = config.getIdleTimeout() > 0 && now - pooledConnection.getLastUsedAt() > config.getIdleTimeout();
+
+                if ((idleTooLong || isExpired(pooledConnection, now)) && pooledConnection.retireIfIdle()) {
+                    connections.remove(pooledConnection);
+                    closeConnection(pooledConnection);
+                }
+            }
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void remove(PooledConnection pooledConnection) {
+        pooledConnection.markRemoved();
+        connections.remove(pooledConnection);
+        closeConnection(pooledConnection);
+    }
+
+    private void closeConnection(PooledConnection pooledConnection) {
+        pooledConnection.closeQuietly();
+        closedCount.increment();
+    }
+
+    private void recordBorrow(long nanos) {
+        borrowCount.increment();
+        borrowNanos.add(nanos);
+
+        long max = maxBorrowNanos.get();
+
+        while (nanos > max && !maxBorrowNanos.compareAndSet(max, nanos)) {
+            max = maxBorrowNanos.get();
+        }
+    }
+}
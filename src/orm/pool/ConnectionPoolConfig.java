@@ -0,0 +1,97 @@
+package orm.pool;
+
+/**
+ * <p>Settings of a {@link ConnectionPool}. All durations are in milliseconds.</p>
+ * <b>maxSize</b> - maximum number of connections, idle and in use.
+ * <br>
+ * <b>connectionTimeout</b> - how long a borrower waits for a free connection before giving up.
+ * <br>
+ * <b>maxLifetime</b> - connections older than this are closed once they are returned (0 means no limit).
+ * <br>
+ * <b>idleTimeout</b> - connections idle for longer than this are closed by the housekeeper (0 means never).
+ * <br>
+ * <b>validationTimeout</b> - how long Connection.isValid may take when a connection is validated on borrow.
+ * <br>
+ * <b>validationInterval</b> - connections used more recently than this aren't validated on borrow.
+ * <br>
+ * <b>statementCacheSize</b> - number of prepared statements cached per connection (0 disables caching).
+ */
+public class ConnectionPoolConfig {
+
+    private int maxSize = 10;
+    private long connectionTimeout = 30_000;
+    private long maxLifetime = 30 * 60_000;
+    private long idleTimeout = 10 * 60_000;
+    private long validationTimeout = 5_000;
+    private long validationInterval = 500;
+    private long housekeepingPeriod = 30_000;
+    private int statementCacheSize = 64;
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public void setMaxSize(int maxSize) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("Pool size must be positive.");
+        }
+
+        this.maxSize = maxSize;
+    }
+
+    public long getConnectionTimeout() {
+        return connectionTimeout;
+    }
+
+    public void setConnectionTimeout(long connectionTimeout) {
+        this.connectionTimeout = connectionTimeout;
+    }
+
+    public long getMaxLifetime() {
+        return maxLifetime;
+    }
+
+    public void setMaxLifetime(long maxLifetime) {
+        this.maxLifetime = maxLifetime;
+    }
+
+    public long getIdleTimeout() {
+        return idleTimeout;
+    }
+
+    public void setIdleTimeout(long idleTimeout) {
+        this.idleTimeout = idleTimeout;
+    }
+
+    public long getValidationTimeout() {
+        return validationTimeout;
+    }
+
+    public void setValidationTimeout(long validationTimeout) {
+        this.validationTimeout = validationTimeout;
+    }
+
+    public long getValidationInterval() {
+        return validationInterval;
+    }
+
+    public void setValidationInterval(long validationInterval) {
+        this.validationInterval = validationInterval;
+    }
+
+    public long getHousekeepingPeriod() {
+        return housekeepingPeriod;
+    }
+
+    public void setHousekeepingPeriod(long housekeepingPeriod) {
+        this.housekeepingPeriod = housekeepingPeriod;
+    }
+
+    public int getStatementCacheSize() {
+        return statementCacheSize;
+    }
+
+    public void setStatementCacheSize(int statementCacheSize) {
+        this.statementCacheSize = statementCacheSize;
+    }
+}
@@ -0,0 +1,103 @@
+package orm.pool;
+
+import orm.StatementCache;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <p>A physical connection owned by a {@link ConnectionPool}, together with the cache of its prepared statements.
+ * The connection is used by one borrower at a time, which is guaranteed by a compare-and-set on its state.</p>
+ */
+public class PooledConnection {
+
+    static final int IDLE = 0;
+    static final int IN_USE = 1;
+    static final int REMOVED = -1;
+
+    private final Connection connection;
+    private final StatementCache statementCache;
+    private final long createdAt;
+    private final AtomicInteger state = new AtomicInteger(IDLE);
+
+    private volatile long lastUsedAt;
+
+    PooledConnection(Connection connection, int statementCacheSize) {
+        this.connection = connection;
+        this.statementCache = new StatementCache(statementCacheSize);
+        this.createdAt = System.currentTimeMillis();
+        this.lastUsedAt = createdAt;
+    }
+
+    public Connection getConnection() {
+        return connection;
+    }
+
+    /**
+     * @return Cache of the prepared statements of this connection.
+     */
+    public StatementCache getStatementCache() {
+        return statementCache;
+    }
+
+    long getCreatedAt() {
+        return createdAt;
+    }
+
+    long getLastUsedAt() {
+        return lastUsedAt;
+    }
+
+    void touch() {
+        lastUsedAt = System.currentTimeMillis();
+    }
+
+    /**
+     * Tries to take the connection for a borrower.
+     * @return <b>true</b> if the connection was idle and now belongs to the caller.
+     */
+    boolean claim() {
+        return state.compareAndSet(IDLE, IN_USE);
+    }
+
+    /**
+     * Marks a connection that is in use as idle again.
+     */
+    void unclaim() {
+        state.set(IDLE);
+    }
+
+    /**
+     * Tries to take an idle connection out of the pool for good.
+     * @return <b>true</b> if the connection was idle and has been marked as removed.
+     */
+    boolean retireIfIdle() {
+        return state.compareAndSet(IDLE, REMOVED);
+    }
+
+    void markRemoved() {
+        state.set(REMOVED);
+    }
+
+    boolean isIdle() {
+        return state.get() == IDLE;
+    }
+
+    boolean isInUse() {
+        return state.get() == IN_USE;
+    }
+
+    /**
+     * Closes the cached statements and the physical connection.
+     */
+    void closeQuietly() {
+        statementCache.clear();
+
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package orm;
+
+import model.PostEntity;
+import orm.exceptions.OperationFailed;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Asynchronous operations of the factory and how they report failures.
+ */
+public class AsyncTest extends DatabaseTestCase {
+
+    public void testPersistLoadAndDelete() throws Exception {
+        PostEntity post = factory.persistAsync(newPost("async")).get(10, TimeUnit.SECONDS);
+        assertTrue(post.getId() > 0, "The post should have a generated ID");
+        assertEquals("async", queryValue("SELECT title FROM PostEntity WHERE ID = " + post.getId()));
+
+        PostEntity loaded = factory.loadAsync(PostEntity.class, post.getId()).get(10, TimeUnit.SECONDS);
+        assertEquals("async", loaded.getTitle());
+
+        factory.deleteAsync(loaded).get(10, TimeUnit.SECONDS);
+        assertEquals(0, count("PostEntity"));
+    }
+
+    public void testFailedPersistCompletesExceptionally() throws Exception {
+        StringBuilder title = new StringBuilder();
+        for (int i = 0; i < 300; i++) {
+            title.append('x');
+        }
+
+        assertFailed(factory.persistAsync(newPost(title.toString())));
+        assertEquals(0, count("PostEntity"));
+    }
+
+    public void testFailedDeleteCompletesExceptionally() throws Exception {
+        PostEntity post = factory.persistAsync(newPost("pinned")).get(10, TimeUnit.SECONDS);
+
+        // a row the ORM doesn't know about references the post, so its delete is rolled back
+        execute("CREATE TABLE PIN (FK_POST_ID INT REFERENCES PostEntity(ID))",
+                "INSERT INTO PIN VALUES (" + post.getId() + ")");
+
+        assertFailed(factory.deleteAsync(post));
+        assertEquals(1, count("PostEntity"));
+    }
+
+    private static void assertFailed(CompletableFuture<?> future) throws Exception {
+        try {
+            future.get(10, TimeUnit.SECONDS);
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof OperationFailed, "Expected OperationFailed but was " + e.getCause());
+            return;
+        }
+
+        throw new AssertionError("Expected the future to complete exceptionally");
+    }
+
+    private static PostEntity newPost(String title) {
+        PostEntity post = new PostEntity();
+        post.setTitle(title);
+        return post;
+    }
+}
@@ -0,0 +1,113 @@
+package orm;
+
+import model.PostEntity;
+import orm.cache.QueryCache;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Invalidation of the query cache and the second-level cache by writes.
+ */
+public class CacheInvalidationTest extends DatabaseTestCase {
+
+    private final QueryCache queryCache = QueryCache.getInstance();
+
+    public void testFlushInvalidatesCachedResults() throws Exception {
+        try (ORM orm = factory.openSession()) {
+            orm.persistAll(Collections.singletonList(newPost("first")));
+
+            assertEquals(1, findPosts(orm).size());
+
+            long hits = queryCache.getHitCount();
+            assertEquals(1, findPosts(orm).size());
+            assertEquals(hits + 1, queryCache.getHitCount());
+
+            orm.persistAll(Collections.singletonList(newPost("second")));
+
+            assertEquals(2, findPosts(orm).size());
+        }
+    }
+
+    public void testFailedFlushKeepsCachedResults() throws Exception {
+        try (ORM orm = factory.openSession()) {
+            orm.persistAll(Collections.singletonList(newPost("first")));
+            assertEquals(1, findPosts(orm).size());
+
+            // longer than the column, the batch fails and the transaction is rolled back
+            StringBuilder title = new StringBuilder();
+            for (int i = 0; i < 300; i++) {
+                title.append('x');
+            }
+            orm.persistAll(Collections.singletonList(newPost(title.toString())));
+
+            long hits = queryCache.getHitCount();
+            assertEquals(1, findPosts(orm).size());
+            assertEquals(hits + 1, queryCache.getHitCount());
+        }
+    }
+
+    public void testUpdateInvalidatesCachedEntityAndResults() throws Exception {
+        PostEntity post = newPost("before");
+
+        try (ORM orm = factory.openSession()) {
+            orm.persist(post);
+        }
+
+        // reads the entity into the second-level cache and the result into the query cache
+        try (ORM orm = factory.openSession()) {
+            assertEquals("before", ((PostEntity) orm.load(PostEntity.class, post.getId())).getTitle());
+            assertEquals(1, findPostsTitled(orm, "before").size());
+        }
+
+        try (ORM orm = factory.openSession()) {
+            PostEntity loaded = (PostEntity) orm.load(PostEntity.class, post.getId());
+            loaded.setTitle("after");
+            orm.update(loaded);
+        }
+
+        try (ORM orm = factory.openSession()) {
+            assertEquals("after", ((PostEntity) orm.load(PostEntity.class, post.getId())).getTitle());
+            assertEquals(0, findPostsTitled(orm, "before").size());
+            assertEquals(1, findPostsTitled(orm, "after").size());
+        }
+    }
+
+    public void testDeleteInvalidatesCachedEntityAndResults() throws Exception {
+        PostEntity post = newPost("deleted");
+        PostEntity kept = newPost("kept");
+
+        try (ORM orm = factory.openSession()) {
+            orm.persistAll(Arrays.asList(post, kept));
+        }
+
+        try (ORM orm = factory.openSession()) {
+            assertNotNull(orm.load(PostEntity.class, post.getId()));
+            assertEquals(2, findPosts(orm).size());
+        }
+
+        try (ORM orm = factory.openSession()) {
+            assertTrue(orm.delete(orm.load(PostEntity.class, post.getId())), "The post should be deleted");
+        }
+
+        try (ORM orm = factory.openSession()) {
+            assertNull(orm.load(PostEntity.class, post.getId()));
+            assertEquals(1, findPosts(orm).size());
+        }
+    }
+
+    private static List<Object> findPostsTitled(ORM orm, String title) {
+        return orm.find(PostEntity.class, Collections.<String, Object>singletonMap("title", title));
+    }
+
+    private static List<Object> findPosts(ORM orm) {
+        return orm.find(PostEntity.class, Collections.<String, Object>emptyMap());
+    }
+
+    private static PostEntity newPost(String title) {
+        PostEntity post = new PostEntity();
+        post.setTitle(title);
+        return post;
+    }
+}
@@ -0,0 +1,66 @@
+package orm;
+
+import orm.pool.ConnectionPool;
+import orm.pool.ConnectionPoolConfig;
+import orm.pool.PooledConnection;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Housekeeping of connection pools.
+ */
+public class ConnectionPoolTest extends DatabaseTestCase {
+
+    public void testPoolsShareHousekeepingThread() {
+        List<ConnectionPool> pools = new ArrayList<>();
+
+        try {
+            for (int i = 0; i < 8; i++) {
+                pools.add(new ConnectionPool(dataSource, new ConnectionPoolConfig()));
+            }
+
+            assertTrue(countHousekeepingThreads() <= 1, "Pools should share a single housekeeping thread");
+        } finally {
+            for (ConnectionPool pool : pools) {
+                pool.close();
+            }
+        }
+    }
+
+    public void testIdleConnectionsAreClosed() throws Exception {
+        ConnectionPoolConfig config = new ConnectionPoolConfig();
+        config.setIdleTimeout(50);
+        config.setHousekeepingPeriod(20);
+
+        ConnectionPool pool = new ConnectionPool(dataSource, config);
+
+        try {
+            PooledConnection connection = pool.borrow();
+            pool.release(connection);
+            assertEquals(1, pool.getTotalCount());
+
+            long deadline = System.currentTimeMillis() + 5000;
+
+            while (pool.getTotalCount() > 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+            }
+
+            assertEquals(0, pool.getTotalCount());
+        } finally {
+            pool.close();
+        }
+    }
+
+    private static int countHousekeepingThreads() {
+        int count = 0;
+
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.getName().equals("orm-connection-pool-housekeeper")) {
+                count++;
+            }
+        }
+
+        return count;
+    }
+}
@@ -0,0 +1,28 @@
+package orm;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Statements executed by the connector directly, on cached prepared statements.
+ */
+public class DatabaseConnectorTest extends DatabaseTestCase {
+
+    private static final String INSERT = "INSERT INTO PostEntity (title) VALUES (?)";
+
+    public void testFailedBatchDoesNotLeaveRowsInCachedStatement() throws Exception {
+        DatabaseConnector connector = new DatabaseConnector(factory.getConnectionPool());
+        StatementKey key = new StatementKey(Object.class, StatementKey.Operation.INSERT, Collections.singletonList("title"));
+
+        // the second row can't be bound, the first one has already been added to the batch by then
+        List<List<Object>> failing = Arrays.asList(Collections.<Object>singletonList("added"), Arrays.<Object>asList("unbound", "extra"));
+        assertNull(connector.executeBatch(key, INSERT, failing, Collections.<String>emptyList(), 10));
+
+        List<List<Object>> rows = Collections.singletonList(Collections.<Object>singletonList("inserted"));
+        assertNotNull(connector.executeBatch(key, INSERT, rows, Collections.<String>emptyList(), 10));
+
+        assertEquals(1, count("PostEntity"));
+        assertEquals("inserted", queryValue("SELECT title FROM PostEntity"));
+    }
+}
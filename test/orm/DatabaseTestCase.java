@@ -0,0 +1,108 @@
+package orm;
+
+import orm.cache.QueryCache;
+import orm.cache.SecondLevelCache;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Objects;
+
+/**
+ * <p>Base of the tests that run against a database. Every test gets freshly created tables and empty shared caches, and
+ * the ORM sessions it opens are closed after it.</p>
+ */
+public abstract class DatabaseTestCase {
+
+    private static final String DEFAULT_URL = "jdbc:h2:mem:orm-test;DB_CLOSE_DELAY=-1";
+
+    private static final String[] SCHEMA = {
+            "DROP ALL OBJECTS",
+            "CREATE TABLE PostEntity (ID INT AUTO_INCREMENT PRIMARY KEY, title VARCHAR(255))",
+            "CREATE TABLE CommentEntity (ID INT AUTO_INCREMENT PRIMARY KEY, content VARCHAR(255), FK_POST_ID INT REFERENCES PostEntity(ID))",
+            "CREATE TABLE OWNER (ID INT AUTO_INCREMENT PRIMARY KEY, NAME VARCHAR(255))",
+            "CREATE TABLE CHILD_A (ID INT AUTO_INCREMENT PRIMARY KEY, NAME VARCHAR(255), FK_OWNER_ID INT REFERENCES OWNER(ID))",
+            "CREATE TABLE CHILD_B (ID INT AUTO_INCREMENT PRIMARY KEY, NAME VARCHAR(255), FK_OWNER_ID INT REFERENCES OWNER(ID))"
+    };
+
+    protected final DataSource dataSource = new DriverManagerDataSource(System.getProperty("orm.url", DEFAULT_URL),
+            System.getProperty("orm.user", "sa"), System.getProperty("orm.password", ""));
+
+    protected ORMFactory factory;
+
+    public void setUp() throws SQLException {
+        execute(SCHEMA);
+
+        SecondLevelCache.getInstance().evictAll();
+        QueryCache.getInstance().clear();
+
+        factory = new ORMFactory(dataSource);
+    }
+
+    public void tearDown() {
+        factory.close();
+    }
+
+    /**
+     * Executes statements on a connection of its own, outside of the ORM.
+     */
+    protected void execute(String... statements) throws SQLException {
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            for (String sql : statements) {
+                statement.execute(sql);
+            }
+        }
+    }
+
+    /**
+     * @return The first column of the first row of a query, executed outside of the ORM.
+     */
+    protected Object queryValue(String sql) throws SQLException {
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(sql)) {
+            return resultSet.next() ? resultSet.getObject(1) : null;
+        }
+    }
+
+    protected long count(String tableName) throws SQLException {
+        return ((Number) queryValue("SELECT COUNT(*) FROM " + tableName)).longValue();
+    }
+
+    protected static void assertEquals(Object expected, Object actual) {
+        if (!Objects.equals(expected, actual)) {
+            throw new AssertionError("Expected <" + expected + "> but was <" + actual + ">");
+        }
+    }
+
+    protected static void assertEquals(long expected, long actual) {
+        if (expected != actual) {
+            throw new AssertionError("Expected <" + expected + "> but was <" + actual + ">");
+        }
+    }
+
+    protected static void assertTrue(boolean condition, String message) {
+        if (!condition) {
+            throw new AssertionError(message);
+        }
+    }
+
+    protected static void assertNull(Object actual) {
+        if (actual != null) {
+            throw new AssertionError("Expected null but was <" + actual + ">");
+        }
+    }
+
+    protected static void assertNotNull(Object actual) {
+        if (actual == null) {
+            throw new AssertionError("Expected a value but was null");
+        }
+    }
+
+    protected static void assertSame(Object expected, Object actual) {
+        if (expected != actual) {
+            throw new AssertionError("Expected the same instance as <" + expected + "> but was <" + actual + ">");
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package orm;
+
+import model.CommentEntity;
+import model.PostEntity;
+import orm.model.ChildA;
+import orm.model.ChildB;
+import orm.model.Owner;
+
+import java.util.Arrays;
+
+/**
+ * Deletes of entities and the cascaded deletes of their OneToMany children.
+ */
+public class DeleteTest extends DatabaseTestCase {
+
+    public void testDeleteCascadesToChildren() throws Exception {
+        PostEntity post = newPost("deleted", 3);
+        PostEntity kept = newPost("kept", 2);
+
+        try (ORM orm = factory.openSession()) {
+            orm.persistAll(Arrays.asList(post, kept));
+        }
+
+        try (ORM orm = factory.openSession()) {
+            orm.delete(orm.load(PostEntity.class, post.getId()));
+        }
+
+        assertEquals(1, count("PostEntity"));
+        assertEquals(2, count("CommentEntity"));
+        assertEquals(kept.getId(), ((Number) queryValue("SELECT ID FROM PostEntity")).intValue());
+    }
+
+    public void testDeleteCascadesToSiblingTablesWithTheSameForeignKeyName() throws Exception {
+        Owner owner = newOwner("deleted", 2, 1);
+        Owner kept = newOwner("kept", 1, 3);
+
+        try (ORM orm = factory.openSession()) {
+            orm.persistAll(Arrays.asList(owner, kept));
+        }
+
+        assertEquals(3, count("CHILD_A"));
+        assertEquals(4, count("CHILD_B"));
+
+        try (ORM orm = factory.openSession()) {
+            orm.delete(orm.load(Owner.class, owner.getId()));
+        }
+
+        assertEquals(1, count("OWNER"));
+        assertEquals(1, count("CHILD_A"));
+        assertEquals(3, count("CHILD_B"));
+    }
+
+    public void testCommittedDeleteDetachesEntity() throws Exception {
+        PostEntity post = newPost("deleted", 0);
+
+        try (ORM orm = factory.openSession()) {
+            orm.persistAll(Arrays.asList(post));
+
+            orm.delete(orm.load(PostEntity.class, post.getId()));
+
+            assertNull(orm.load(PostEntity.class, post.getId()));
+        }
+    }
+
+    public void testFailedDeleteKeepsEntityManaged() throws Exception {
+        PostEntity post = newPost("pinned", 0);
+
+        try (ORM orm = factory.openSession()) {
+            orm.persistAll(Arrays.asList(post));
+            Object loaded = orm.load(PostEntity.class, post.getId());
+
+            // a row the ORM doesn't know about references the post, so its delete is rolled back
+            execute("CREATE TABLE PIN (FK_POST_ID INT REFERENCES PostEntity(ID))",
+                    "INSERT INTO PIN VALUES (" + post.getId() + ")");
+
+            orm.delete(loaded);
+
+            assertEquals(1, count("PostEntity"));
+            assertSame(loaded, orm.load(PostEntity.class, post.getId()));
+        }
+    }
+
+    private PostEntity newPost(String title, int comments) {
+        PostEntity post = new PostEntity();
+        post.setTitle(title);
+
+        for (int i = 0; i < comments; i++) {
+            CommentEntity comment = new CommentEntity();
+            comment.setContent(title + " " + i);
+            post.getComments().add(comment);
+        }
+
+        return post;
+    }
+
+    private Owner newOwner(String name, int childrenA, int childrenB) {
+        Owner owner = new Owner();
+        owner.setName(name);
+
+        for (int i = 0; i < childrenA; i++) {
+            ChildA child = new ChildA();
+            child.setName(name + " a" + i);
+            owner.getChildrenA().add(child);
+        }
+
+        for (int i = 0; i < childrenB; i++) {
+            ChildB child = new ChildB();
+            child.setName(name + " b" + i);
+            owner.getChildrenB().add(child);
+        }
+
+        return owner;
+    }
+}
@@ -0,0 +1,79 @@
+package orm;
+
+import orm.id.SequenceIdAllocator;
+import orm.id.TableIdAllocator;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Reservations of ID blocks from sequences and from the ID_GENERATORS table.
+ */
+public class IdAllocatorTest extends DatabaseTestCase {
+
+    @Override
+    public void setUp() throws SQLException {
+        super.setUp();
+
+        execute("CREATE TABLE " + TableIdAllocator.TABLE_NAME + " (NAME VARCHAR(255) PRIMARY KEY, NEXT_VALUE BIGINT NOT NULL)");
+    }
+
+    public void testMissingSequenceYieldsNoId() {
+        assertNull(new SequenceIdAllocator(dataSource, "MISSING_SEQ", 10).next());
+    }
+
+    public void testTableAllocatorsReserveConsecutiveBlocks() {
+        TableIdAllocator first = new TableIdAllocator(dataSource, "POST", 10);
+        TableIdAllocator second = new TableIdAllocator(dataSource, "POST", 10);
+
+        assertEquals(1L, first.next());
+        assertEquals(11L, second.next());
+        assertEquals(2L, first.next());
+    }
+
+    public void testFirstReservationRacingAnotherProcessIsRetried() {
+        TableIdAllocator other = new TableIdAllocator(dataSource, "POST", 10);
+
+        // the other process creates the row between the update and the insert of the first reservation
+        DataSource racing = (DataSource) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{DataSource.class},
+                (proxy, method, args) -> {
+                    Object result = invoke(method, dataSource, args);
+
+                    if (!method.getName().equals("getConnection")) {
+                        return result;
+                    }
+
+                    Connection connection = (Connection) result;
+
+                    return Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class},
+                            (connectionProxy, connectionMethod, connectionArgs) -> {
+                                if (connectionMethod.getName().equals("prepareStatement") && ((String) connectionArgs[0]).startsWith("INSERT")) {
+                                    other.next();
+                                }
+
+                                return invoke(connectionMethod, connection, connectionArgs);
+                            });
+                });
+
+        assertEquals(11L, new TableIdAllocator(racing, "POST", 10).next());
+        assertEquals(2L, other.next());
+    }
+
+    public void testMissingTableYieldsNoId() throws Exception {
+        execute("DROP TABLE " + TableIdAllocator.TABLE_NAME);
+
+        assertNull(new TableIdAllocator(dataSource, "POST", 10).next());
+    }
+
+    private static Object invoke(Method method, Object target, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
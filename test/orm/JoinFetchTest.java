@@ -0,0 +1,63 @@
+package orm;
+
+import model.CommentEntity;
+import model.PostEntity;
+import orm.cache.SecondLevelCache;
+
+import java.sql.SQLException;
+
+/**
+ * Associations fetched together with an entity through a FetchPlan.
+ */
+public class JoinFetchTest extends DatabaseTestCase {
+
+    private PostEntity post;
+
+    @Override
+    public void setUp() throws SQLException {
+        super.setUp();
+
+        post = new PostEntity();
+        post.setTitle("post");
+
+        for (int i = 0; i < 2; i++) {
+            CommentEntity comment = new CommentEntity();
+            comment.setContent("comment " + i);
+            post.getComments().add(comment);
+        }
+
+        try (ORM orm = factory.openSession()) {
+            orm.persist(post);
+        }
+
+        // the loads below read the rows, not the state cached by the persist
+        SecondLevelCache.getInstance().evictAll();
+    }
+
+    public void testFetchPlanLoadsChildrenWithEntity() throws Exception {
+        try (ORM orm = factory.openSession()) {
+            PostEntity loaded = (PostEntity) orm.load(PostEntity.class, new FetchPlan("comments"), post.getId());
+
+            // rows removed after the load can't show up in a list that has been fetched with the post
+            execute("DELETE FROM CommentEntity");
+
+            assertEquals(2, loaded.getComments().size());
+
+            for (CommentEntity comment : loaded.getComments()) {
+                assertSame(loaded, comment.getPost());
+            }
+        }
+    }
+
+    public void testFetchPlanLoadsReferenceWithEntity() throws Exception {
+        int commentId = post.getComments().get(0).getId();
+
+        try (ORM orm = factory.openSession()) {
+            CommentEntity loaded = (CommentEntity) orm.load(CommentEntity.class, new FetchPlan("post"), commentId);
+
+            execute("UPDATE PostEntity SET title = 'renamed'");
+
+            assertEquals("post", loaded.getPost().getTitle());
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package orm;
+
+import model.CommentEntity;
+import model.PostEntity;
+import orm.lazy.LazyList;
+import orm.lazy.LazyReferences;
+
+import java.lang.reflect.Field;
+import java.sql.SQLException;
+import java.util.Collections;
+
+/**
+ * Lazy ManyToOne associations, whose pending references are kept by the loaded entities.
+ */
+public class LazyLoadingTest extends DatabaseTestCase {
+
+    private PostEntity post;
+    private CommentEntity comment;
+    private Field postField;
+
+    @Override
+    public void setUp() throws SQLException {
+        super.setUp();
+
+        post = new PostEntity();
+        post.setTitle("post");
+
+        try (ORM orm = factory.openSession()) {
+            orm.persist(post);
+
+            comment = new CommentEntity();
+            comment.setContent("comment");
+            comment.setPost(post);
+            orm.persistAll(Collections.singletonList(comment));
+        }
+
+        try {
+            postField = CommentEntity.class.getDeclaredField("post");
+        } catch (NoSuchFieldException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    public void testNewEntityHasEmptyListsAndNewReferences() {
+        PostEntity newPost = new PostEntity();
+        CommentEntity newComment = new CommentEntity();
+
+        assertNotNull(newPost.getComments());
+        assertTrue(newPost.getComments().isEmpty(), "The comments of a new post should be empty");
+
+        // the referenced entity is a new instance as well, it isn't persisted with the comment
+        assertNotNull(newComment.getPost());
+        assertEquals(0, newComment.getPost().getId());
+    }
+
+    public void testLoadedEntityReferencesItsRow() throws Exception {
+        try (ORM orm = factory.openSession()) {
+            CommentEntity loaded = (CommentEntity) orm.load(CommentEntity.class, comment.getId());
+
+            // the instance assigned by the constructor is replaced by the pending reference
+            assertTrue(LazyReferences.isPending(loaded, postField), "The post should be pending");
+            assertEquals(post.getId(), loaded.getPost().getId());
+        }
+    }
+
+    public void testReferenceIsLoadedOnFirstRead() throws Exception {
+        try (ORM orm = factory.openSession()) {
+            CommentEntity loaded = (CommentEntity) orm.load(CommentEntity.class, comment.getId());
+
+            assertTrue(LazyReferences.isPending(loaded, postField), "The post should be pending");
+            assertEquals(post.getId(), LazyReferences.getPendingId(loaded, postField));
+
+            PostEntity loadedPost = loaded.getPost();
+
+            assertEquals("post", loadedPost.getTitle());
+            assertSame(loadedPost, orm.load(PostEntity.class, post.getId()));
+            assertTrue(!LazyReferences.isPending(loaded, postField), "The post shouldn't be pending after it's been read");
+        }
+    }
+
+    public void testChildrenAreLoadedOnFirstAccess() throws Exception {
+        try (ORM orm = factory.openSession()) {
+            PostEntity loaded = (PostEntity) orm.load(PostEntity.class, post.getId());
+            LazyList comments = (LazyList) (Object) loaded.getComments();
+
+            assertTrue(!comments.isInitialized(), "The comments shouldn't be loaded with the post");
+            assertEquals(1, comments.size());
+            assertTrue(comments.isInitialized(), "The comments should be loaded by the first access");
+            assertSame(loaded, ((CommentEntity) comments.get(0)).getPost());
+        }
+    }
+
+    public void testReferenceIsLoadedAfterItsSessionIsUnreachable() throws Exception {
+        CommentEntity loaded = loadComment();
+
+        // nothing but the pending reference refers to the session anymore
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+
+        PostEntity loadedPost = loaded.getPost();
+
+        assertNotNull(loadedPost);
+        assertEquals("post", loadedPost.getTitle());
+    }
+
+    public void testScrolledRowsAreNotPendingForBatchLoading() throws Exception {
+        String[] inserts = new String[500];
+
+        for (int i = 0; i < inserts.length; i++) {
+            inserts[i] = "INSERT INTO CommentEntity (content, FK_POST_ID) VALUES ('scrolled', " + post.getId() + ")";
+        }
+
+        execute(inserts);
+
+        try (ORM orm = factory.openSession(); EntityCursor cursor = orm.scroll(CommentEntity.class, 50)) {
+            int rows = 0;
+            CommentEntity last = null;
+
+            while (cursor.hasNext()) {
+                last = (CommentEntity) cursor.next();
+                rows++;
+            }
+
+            assertEquals(501, rows);
+            assertEquals(0, orm.getPendingAssociationCount());
+
+            // the references of the rows are still loaded, one at a time
+            assertEquals("post", last.getPost().getTitle());
+        }
+    }
+
+    public void testWriteDropsPendingReference() throws Exception {
+        try (ORM orm = factory.openSession()) {
+            CommentEntity loaded = (CommentEntity) orm.load(CommentEntity.class, comment.getId());
+            loaded.setPost(null);
+
+            assertTrue(!LazyReferences.isPending(loaded, postField), "The post shouldn't be pending after it's been written");
+            assertNull(loaded.getPost());
+        }
+    }
+
+    public void testReferencesAreKeptPerEntity() throws Exception {
+        CommentEntity first;
+        CommentEntity second;
+
+        try (ORM orm = factory.openSession()) {
+            first = (CommentEntity) orm.load(CommentEntity.class, comment.getId());
+        }
+
+        try (ORM orm = factory.openSession()) {
+            second = (CommentEntity) orm.load(CommentEntity.class, comment.getId());
+            assertEquals("post", second.getPost().getTitle());
+        }
+
+        assertTrue(first != second, "Sessions should load their own instances");
+        assertTrue(LazyReferences.isPending(first, postField), "Reading the post of one instance shouldn't load another's");
+    }
+
+    private CommentEntity loadComment() {
+        try (ORM orm = factory.openSession()) {
+            return (CommentEntity) orm.load(CommentEntity.class, comment.getId());
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package orm;
+
+import model.PostEntity;
+
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Loading entities by ID and by the values of their columns.
+ */
+public class LoadTest extends DatabaseTestCase {
+
+    private PostEntity post;
+
+    @Override
+    public void setUp() throws SQLException {
+        super.setUp();
+
+        execute("INSERT INTO PostEntity (title) VALUES ('wanted')",
+                "INSERT INTO PostEntity (title) VALUES ('other')",
+                "INSERT INTO PostEntity (title) VALUES ('wanted')");
+
+        post = new PostEntity();
+        post.setId(((Number) queryValue("SELECT MIN(ID) FROM PostEntity")).intValue());
+    }
+
+    public void testLoadReadsColumns() {
+        try (ORM orm = factory.openSession()) {
+            PostEntity loaded = (PostEntity) orm.load(PostEntity.class, post.getId());
+
+            assertEquals(post.getId(), loaded.getId());
+            assertEquals("wanted", loaded.getTitle());
+        }
+    }
+
+    public void testLoadReturnsSameInstanceWithinSession() {
+        try (ORM orm = factory.openSession()) {
+            Object loaded = orm.load(PostEntity.class, post.getId());
+
+            assertSame(loaded, orm.load(PostEntity.class, post.getId()));
+            assertSame(loaded, orm.find(PostEntity.class, Collections.<String, Object>singletonMap("ID", post.getId())).get(0));
+        }
+
+        try (ORM first = factory.openSession(); ORM second = factory.openSession()) {
+            assertTrue(first.load(PostEntity.class, post.getId()) != second.load(PostEntity.class, post.getId()),
+                    "Sessions should load instances of their own");
+        }
+    }
+
+    public void testLoadOfMissingRowReturnsNull() {
+        try (ORM orm = factory.openSession()) {
+            assertNull(orm.load(PostEntity.class, 1000));
+        }
+    }
+
+    public void testFindReturnsMatchingRows() {
+        try (ORM orm = factory.openSession()) {
+            List<Object> found = orm.find(PostEntity.class, Collections.<String, Object>singletonMap("title", "wanted"));
+
+            assertEquals(2, found.size());
+
+            for (Object entity : found) {
+                assertEquals("wanted", ((PostEntity) entity).getTitle());
+            }
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package orm;
+
+import model.CommentEntity;
+import model.PostEntity;
+
+import java.util.Arrays;
+
+/**
+ * Inserts of entities and the children of their OneToMany associations.
+ */
+public class PersistTest extends DatabaseTestCase {
+
+    public void testPersistInsertsEntityWithChildren() throws Exception {
+        PostEntity post = newPost("post", 3);
+
+        try (ORM orm = factory.openSession()) {
+            assertTrue(orm.persist(post), "The post should be persisted");
+        }
+
+        assertTrue(post.getId() > 0, "The post should have a generated ID");
+        assertEquals("post", queryValue("SELECT title FROM PostEntity WHERE ID = " + post.getId()));
+        assertEquals(3L, ((Number) queryValue("SELECT COUNT(*) FROM CommentEntity WHERE FK_POST_ID = " + post.getId())).longValue());
+
+        for (CommentEntity comment : post.getComments()) {
+            assertTrue(comment.getId() > 0, "The comment should have a generated ID");
+            assertEquals(comment.getContent(), queryValue("SELECT content FROM CommentEntity WHERE ID = " + comment.getId()));
+            assertSame(post, comment.getPost());
+        }
+    }
+
+    public void testPersistAllInsertsEveryEntity() throws Exception {
+        PostEntity first = newPost("first", 2);
+        PostEntity second = newPost("second", 1);
+
+        try (ORM orm = factory.openSession()) {
+            orm.persistAll(Arrays.asList(first, second));
+        }
+
+        assertEquals(2, count("PostEntity"));
+        assertEquals(3, count("CommentEntity"));
+        assertEquals("first", queryValue("SELECT title FROM PostEntity WHERE ID = " + first.getId()));
+        assertEquals("second", queryValue("SELECT title FROM PostEntity WHERE ID = " + second.getId()));
+    }
+
+    public void testFailedPersistAllLeavesNoPersistedEntities() throws Exception {
+        PostEntity post = newPost("post", 1);
+
+        // longer than the column, the insert of the comment fails after the post has been inserted
+        char[] content = new char[300];
+        Arrays.fill(content, 'x');
+        post.getComments().get(0).setContent(new String(content));
+
+        try (ORM orm = factory.openSession()) {
+            assertTrue(!orm.persistAll(Arrays.asList(post)), "The transaction should be rolled back");
+            assertEquals(0, post.getId());
+            assertEquals(0, post.getComments().get(0).getId());
+
+            // the rolled back row isn't in the persistence context either
+            assertNull(orm.load(PostEntity.class, 1));
+        }
+
+        assertEquals(0, count("PostEntity"));
+        assertEquals(0, count("CommentEntity"));
+    }
+
+    public void testPersistWritesJoinColumnOfReference() throws Exception {
+        PostEntity post = newPost("post", 0);
+        CommentEntity comment = new CommentEntity();
+        comment.setContent("comment");
+        comment.setPost(post);
+
+        try (ORM orm = factory.openSession()) {
+            assertTrue(orm.persist(post), "The post should be persisted");
+            assertTrue(orm.persist(comment), "The comment should be persisted");
+        }
+
+        assertEquals(post.getId(), foreignKey(comment));
+    }
+
+    public void testReferenceThatWasntPersistedIsWrittenByUpdate() throws Exception {
+        PostEntity post = newPost("post", 0);
+        CommentEntity comment = new CommentEntity();
+        comment.setContent("comment");
+        comment.setPost(post);
+
+        try (ORM orm = factory.openSession()) {
+            // the post has no ID yet, so the join column is inserted as NULL and stays dirty
+            assertTrue(orm.persist(comment), "The comment should be persisted");
+            assertNull(queryValue("SELECT FK_POST_ID FROM CommentEntity WHERE ID = " + comment.getId()));
+
+            assertTrue(orm.persist(post), "The post should be persisted");
+            orm.update(comment);
+        }
+
+        assertEquals(post.getId(), foreignKey(comment));
+    }
+
+    private int foreignKey(CommentEntity comment) throws Exception {
+        return ((Number) queryValue("SELECT FK_POST_ID FROM CommentEntity WHERE ID = " + comment.getId())).intValue();
+    }
+
+    private static PostEntity newPost(String title, int comments) {
+        PostEntity post = new PostEntity();
+        post.setTitle(title);
+
+        for (int i = 0; i < comments; i++) {
+            CommentEntity comment = new CommentEntity();
+            comment.setContent(title + " " + i);
+            post.getComments().add(comment);
+        }
+
+        return post;
+    }
+}
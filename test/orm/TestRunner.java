@@ -0,0 +1,72 @@
+package orm;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+/**
+ * <p>Runs the tests of the ORM. Every public, no-argument method whose name starts with <b>test</b> is run on a new
+ * instance of its class, between {@link DatabaseTestCase#setUp()} and {@link DatabaseTestCase#tearDown()}.</p>
+ * <p>The tests are run by <b>mvn test</b>, which puts the H2 driver on the classpath and starts the runner with the AspectJ
+ * weaver as a java agent (the aspects are declared by src/META-INF/aop.xml). By default an in-memory database is used,
+ * another one can be passed with <b>-Dorm.url</b>.</p>
+ */
+public class TestRunner {
+
+    private static final Class<?>[] TEST_CLASSES = {
+            PersistTest.class,
+            LoadTest.class,
+            UpdateTest.class,
+            DeleteTest.class,
+            LazyLoadingTest.class,
+            JoinFetchTest.class,
+            CacheInvalidationTest.class,
+            DatabaseConnectorTest.class,
+            AsyncTest.class,
+            ConnectionPoolTest.class,
+            IdAllocatorTest.class
+    };
+
+    public static void main(String[] args) throws Exception {
+        int passed = 0;
+        int failed = 0;
+
+        for (Class<?> testClass : TEST_CLASSES) {
+            for (Method method : testClass.getMethods()) {
+                if (!method.getName().startsWith("test") || method.getParameterCount() != 0 || Modifier.isStatic(method.getModifiers())) {
+                    continue;
+                }
+
+                String name = testClass.getSimpleName() + "." + method.getName();
+                DatabaseTestCase test = (DatabaseTestCase) testClass.getConstructor().newInstance();
+
+                try {
+                    test.setUp();
+
+                    try {
+                        method.invoke(test);
+                    } finally {
+                        test.tearDown();
+                    }
+
+                    passed++;
+                    System.out.println("PASSED " + name);
+                } catch (InvocationTargetException e) {
+                    failed++;
+                    System.out.println("FAILED " + name);
+                    e.getCause().printStackTrace(System.out);
+                } catch (Exception | AssertionError e) {
+                    failed++;
+                    System.out.println("FAILED " + name);
+                    e.printStackTrace(System.out);
+                }
+            }
+        }
+
+        System.out.println(passed + " passed, " + failed + " failed");
+
+        if (failed > 0) {
+            System.exit(1);
+        }
+    }
+}
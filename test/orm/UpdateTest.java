@@ -0,0 +1,100 @@
+package orm;
+
+import model.CommentEntity;
+import model.PostEntity;
+
+import java.sql.SQLException;
+import java.util.Collections;
+
+/**
+ * Updates of managed (dirty checked) and detached entities.
+ */
+public class UpdateTest extends DatabaseTestCase {
+
+    private PostEntity first;
+    private PostEntity second;
+    private CommentEntity comment;
+
+    @Override
+    public void setUp() throws SQLException {
+        super.setUp();
+
+        first = newPost("first");
+        second = newPost("second");
+
+        try (ORM orm = factory.openSession()) {
+            orm.persist(first);
+            orm.persist(second);
+
+            // the flush writes the join columns of the persisted entities
+            comment = new CommentEntity();
+            comment.setContent("comment");
+            comment.setPost(first);
+            orm.persistAll(Collections.singletonList(comment));
+        }
+
+        assertEquals(first.getId(), foreignKey());
+    }
+
+    public void testModifiedColumnIsWritten() throws Exception {
+        try (ORM orm = factory.openSession()) {
+            PostEntity post = (PostEntity) orm.load(PostEntity.class, first.getId());
+            post.setTitle("renamed");
+            orm.update(post);
+        }
+
+        assertEquals("renamed", queryValue("SELECT title FROM PostEntity WHERE ID = " + first.getId()));
+    }
+
+    public void testChangedReferenceIsWritten() throws Exception {
+        try (ORM orm = factory.openSession()) {
+            CommentEntity loaded = (CommentEntity) orm.load(CommentEntity.class, comment.getId());
+            loaded.setPost((PostEntity) orm.load(PostEntity.class, second.getId()));
+            orm.update(loaded);
+        }
+
+        assertEquals(second.getId(), foreignKey());
+    }
+
+    public void testRemovedReferenceIsWritten() throws Exception {
+        try (ORM orm = factory.openSession()) {
+            CommentEntity loaded = (CommentEntity) orm.load(CommentEntity.class, comment.getId());
+            loaded.setPost(null);
+            orm.update(loaded);
+        }
+
+        assertNull(queryValue("SELECT FK_POST_ID FROM CommentEntity WHERE ID = " + comment.getId()));
+    }
+
+    public void testReferenceThatHasntBeenLoadedIsKept() throws Exception {
+        try (ORM orm = factory.openSession()) {
+            CommentEntity loaded = (CommentEntity) orm.load(CommentEntity.class, comment.getId());
+            loaded.setContent("edited");
+            orm.update(loaded);
+        }
+
+        assertEquals("edited", queryValue("SELECT content FROM CommentEntity WHERE ID = " + comment.getId()));
+        assertEquals(first.getId(), foreignKey());
+    }
+
+    public void testDetachedEntityWritesItsReference() throws Exception {
+        comment.setPost(second);
+
+        try (ORM orm = factory.openSession()) {
+            orm.update(comment);
+        }
+
+        assertEquals(second.getId(), foreignKey());
+    }
+
+    private int foreignKey() throws SQLException {
+        return ((Number) queryValue("SELECT FK_POST_ID FROM CommentEntity WHERE ID = " + comment.getId())).intValue();
+    }
+
+    private PostEntity newPost(String title) {
+        PostEntity post = new PostEntity();
+        post.setTitle(title);
+
+        return post;
+    }
+}
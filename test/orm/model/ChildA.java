@@ -0,0 +1,49 @@
+package orm.model;
+
+import orm.annotations.Column;
+import orm.annotations.Entity;
+import orm.annotations.GeneratedValue;
+import orm.annotations.ID;
+import orm.annotations.JoinColumn;
+import orm.annotations.ManyToOne;
+import orm.annotations.Table;
+
+/**
+ * Child of an {@link Owner}, its foreign key has the same name as the one of the other child table.
+ */
+@Entity
+@Table(name = "CHILD_A")
+public class ChildA {
+
+    @ID
+    @GeneratedValue
+    @Column(name = "ID")
+    private int id;
+
+    @Column(name = "NAME")
+    private String name;
+
+    @ManyToOne
+    @JoinColumn(name = "FK_OWNER_ID")
+    private Owner owner;
+
+    public int getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public Owner getOwner() {
+        return owner;
+    }
+
+    public void setOwner(Owner owner) {
+        this.owner = owner;
+    }
+}
@@ -0,0 +1,52 @@
+package orm.model;
+
+import orm.annotations.Column;
+import orm.annotations.Entity;
+import orm.annotations.GeneratedValue;
+import orm.annotations.ID;
+import orm.annotations.OneToMany;
+import orm.annotations.Table;
+
+import java.util.List;
+
+/**
+ * Entity with two OneToMany associations whose child tables use the same foreign key name.
+ */
+@Entity
+@Table(name = "OWNER")
+public class Owner {
+
+    @ID
+    @GeneratedValue
+    @Column(name = "ID")
+    private int id;
+
+    @Column(name = "NAME")
+    private String name;
+
+    @OneToMany(mappedBy = "owner")
+    private List<ChildA> childrenA;
+
+    @OneToMany(mappedBy = "owner")
+    private List<ChildB> childrenB;
+
+    public int getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public List<ChildA> getChildrenA() {
+        return childrenA;
+    }
+
+    public List<ChildB> getChildrenB() {
+        return childrenB;
+    }
+}